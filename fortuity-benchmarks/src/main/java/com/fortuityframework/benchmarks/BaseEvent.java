@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import com.fortuityframework.core.event.PrioritizedEvent;
+
+/**
+ * Root of the event hierarchy used by the benchmarks
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class BaseEvent implements PrioritizedEvent<Integer> {
+	private final Integer source;
+
+	/**
+	 * Creates a new event
+	 *
+	 * @param source
+	 *            The source of the event
+	 */
+	public BaseEvent(Integer source) {
+		this.source = source;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.event.Event#getSource()
+	 */
+	@Override
+	public Integer getSource() {
+		return source;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.event.PrioritizedEvent#getPriority()
+	 */
+	@Override
+	public int getPriority() {
+		return 0;
+	}
+}
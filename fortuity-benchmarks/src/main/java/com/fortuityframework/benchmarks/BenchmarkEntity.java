@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import com.fortuityframework.core.annotation.jpa.FortuityEntity;
+
+/**
+ * Entity saved by the benchmarks of the Hibernate interceptor
+ *
+ * @author Jeroen Steenbeeke
+ */
+@Entity
+@FortuityEntity(onCreate = BenchmarkEntityCreateEvent.class)
+public class BenchmarkEntity {
+	@Id
+	private Long id;
+
+	@Column
+	private String name;
+
+	/**
+	 * @return The ID of the entity
+	 */
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * @param id
+	 *            The ID of the entity
+	 */
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return The name of the entity
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param name
+	 *            The name of the entity
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+}
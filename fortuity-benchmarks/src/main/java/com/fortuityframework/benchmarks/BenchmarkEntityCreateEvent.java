@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import com.fortuityframework.core.event.jpa.JPAEntityCreateEvent;
+
+/**
+ * Event raised when a {@link BenchmarkEntity} is saved
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class BenchmarkEntityCreateEvent extends
+		JPAEntityCreateEvent<BenchmarkEntity> {
+	/**
+	 * Creates a new event
+	 *
+	 * @param entity
+	 *            The entity that was saved
+	 */
+	public BenchmarkEntityCreateEvent(BenchmarkEntity entity) {
+		super(entity);
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks with the GC profiler enabled, so allocation rates are
+ * reported along with throughput and latency percentiles. An optional
+ * argument restricts the run to benchmarks matching the given pattern
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class BenchmarkRunner {
+	/**
+	 * Runs the benchmarks
+	 *
+	 * @param args
+	 *            An optional pattern of benchmarks to include
+	 * @throws RunnerException
+	 *             If the benchmarks cannot be run
+	 */
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "com.fortuityframework.*";
+
+		Options options = new OptionsBuilder().include(include)
+				.addProfiler(GCProfiler.class).build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.broker.FIFOQueueEventBroker;
+import com.fortuityframework.core.dispatch.broker.LIFOQueueEventBroker;
+import com.fortuityframework.core.dispatch.broker.PriorityQueueEventBroker;
+
+/**
+ * The event brokers compared by the benchmarks
+ *
+ * @author Jeroen Steenbeeke
+ */
+public enum BrokerType {
+	/**
+	 * {@link FIFOQueueEventBroker}
+	 */
+	FIFO {
+		@Override
+		public EventBroker create() {
+			return new FIFOQueueEventBroker();
+		}
+	},
+	/**
+	 * {@link LIFOQueueEventBroker}
+	 */
+	LIFO {
+		@Override
+		public EventBroker create() {
+			return new LIFOQueueEventBroker();
+		}
+	},
+	/**
+	 * {@link PriorityQueueEventBroker}
+	 */
+	PRIORITY {
+		@Override
+		public EventBroker create() {
+			return new PriorityQueueEventBroker();
+		}
+	};
+
+	/**
+	 * @return A new broker of this type
+	 */
+	public abstract EventBroker create();
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortuityframework.core.dispatch.EventBroker;
+
+/**
+ * Measures chains of events, each triggered from the listener of the
+ * previous one through EventContext.triggerEvent
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CascadeBenchmark {
+	@Param
+	public BrokerType broker;
+
+	@Param({ "1", "10", "100" })
+	public int depth;
+
+	private EventBroker eventBroker;
+
+	private CascadeListener listener;
+
+	private CascadeEvent event;
+
+	/**
+	 * Creates the broker and its listener
+	 */
+	@Setup
+	public void setUp() {
+		HierarchyLocator locator = new HierarchyLocator();
+		listener = new CascadeListener();
+		locator.register(CascadeEvent.class, listener);
+
+		eventBroker = broker.create();
+		eventBroker.setEventListenerLocator(locator);
+
+		// The first event counts towards the depth
+		event = new CascadeEvent(depth - 1);
+	}
+
+	/**
+	 * Dispatches an event that causes a cascade of the configured depth
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long cascade() {
+		eventBroker.dispatchEvent(event);
+		return listener.getCount();
+	}
+}
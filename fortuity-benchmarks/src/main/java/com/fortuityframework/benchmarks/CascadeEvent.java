@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+/**
+ * Event that causes a {@link CascadeListener} to trigger another cascade
+ * event, until the remaining depth reaches zero
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class CascadeEvent extends BaseEvent {
+	/**
+	 * Creates a new event
+	 *
+	 * @param remaining
+	 *            The number of events still to trigger after this one
+	 */
+	public CascadeEvent(Integer remaining) {
+		super(remaining);
+	}
+}
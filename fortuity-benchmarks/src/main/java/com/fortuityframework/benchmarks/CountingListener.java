@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+
+/**
+ * Listener that counts the events it receives
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class CountingListener implements EventListener {
+	private long count = 0;
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventListener#dispatchEvent(com.fortuityframework.core.dispatch.EventContext)
+	 */
+	@Override
+	public void dispatchEvent(EventContext<?> context) throws EventException {
+		count++;
+	}
+
+	/**
+	 * @return The number of events received
+	 */
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Measures dispatching single events and lists of events to a varying number
+ * of listeners
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+	private static final int BULK_SIZE = 100;
+
+	@Param
+	public BrokerType broker;
+
+	@Param({ "1", "10", "100" })
+	public int fanOut;
+
+	private EventBroker eventBroker;
+
+	private CountingListener listener;
+
+	private BaseEvent event;
+
+	private List<Event<?>> events;
+
+	/**
+	 * Creates the broker and its listeners
+	 */
+	@Setup
+	public void setUp() {
+		HierarchyLocator locator = new HierarchyLocator();
+		listener = new CountingListener();
+		for (int i = 0; i < fanOut; i++) {
+			locator.register(BaseEvent.class, listener);
+		}
+
+		eventBroker = broker.create();
+		eventBroker.setEventListenerLocator(locator);
+
+		event = new BaseEvent(0);
+
+		events = new ArrayList<Event<?>>(BULK_SIZE);
+		for (int i = 0; i < BULK_SIZE; i++) {
+			events.add(new BaseEvent(i));
+		}
+	}
+
+	/**
+	 * Dispatches a single event
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long singleDispatch() {
+		eventBroker.dispatchEvent(event);
+		return listener.getCount();
+	}
+
+	/**
+	 * Dispatches {@value #BULK_SIZE} events at once
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long bulkDispatch() {
+		eventBroker.dispatchEvents(events);
+		return listener.getCount();
+	}
+}
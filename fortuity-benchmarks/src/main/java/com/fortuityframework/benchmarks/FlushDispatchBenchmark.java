@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AnnotationConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.broker.PriorityQueueEventBroker;
+import com.fortuityframework.hibernate.DispatchMode;
+import com.fortuityframework.hibernate.EventInterceptor;
+
+/**
+ * Measures saving a large number of entities in a single transaction, with
+ * their events dispatched immediately or at the end of the flush
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class FlushDispatchBenchmark {
+	@Param({ "IMMEDIATE", "FLUSH" })
+	public DispatchMode mode;
+
+	@Param({ "5000" })
+	public int entities;
+
+	private SessionFactory sessionFactory;
+
+	private CountingListener listener;
+
+	private long nextId = 0;
+
+	/**
+	 * Creates a session factory on an in-memory database, with an interceptor
+	 * in the given dispatch mode
+	 */
+	@Setup
+	public void setUp() {
+		AnnotationConfiguration config = new AnnotationConfiguration();
+
+		Properties properties = new Properties();
+		properties.setProperty("hibernate.connection.driver_class",
+				"org.hsqldb.jdbcDriver");
+		properties.setProperty("hibernate.connection.url",
+				"jdbc:hsqldb:mem:benchmark");
+		properties.setProperty("hibernate.connection.username", "sa");
+		properties.setProperty("hibernate.connection.password", "");
+		properties.setProperty("hibernate.hbm2ddl.auto", "create");
+		properties.setProperty("hibernate.dialect",
+				"org.hibernate.dialect.HSQLDialect");
+		config.setProperties(properties);
+		config.addAnnotatedClass(BenchmarkEntity.class);
+
+		HierarchyLocator locator = new HierarchyLocator();
+		listener = new CountingListener();
+		locator.register(BenchmarkEntityCreateEvent.class, listener);
+
+		EventBroker broker = new PriorityQueueEventBroker();
+		broker.setEventListenerLocator(locator);
+
+		EventInterceptor interceptor = new EventInterceptor(broker);
+		interceptor.setDispatchMode(mode);
+		config.setInterceptor(interceptor);
+
+		sessionFactory = config.buildSessionFactory();
+	}
+
+	/**
+	 * Closes the session factory
+	 */
+	@TearDown
+	public void closeSessionFactory() {
+		sessionFactory.close();
+	}
+
+	/**
+	 * Saves the entities in a single transaction
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long saveAll() {
+		long before = listener.getCount();
+
+		Session session = sessionFactory.openSession();
+		try {
+			Transaction t = session.beginTransaction();
+			for (int i = 0; i < entities; i++) {
+				BenchmarkEntity entity = new BenchmarkEntity();
+				entity.setId(nextId++);
+				entity.setName("benchmark");
+				session.save(entity);
+			}
+			t.commit();
+		} finally {
+			session.close();
+		}
+
+		long received = listener.getCount();
+		if (received - before != entities) {
+			throw new IllegalStateException("Expected " + entities
+					+ " events, received " + (received - before));
+		}
+
+		return received;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortuityframework.core.dispatch.CachingEventListenerLocator;
+import com.fortuityframework.core.dispatch.EventBroker;
+
+/**
+ * Measures dispatching an event with listeners registered for its
+ * superclasses, with and without caching the listener lookup
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HierarchyBenchmark {
+	@Param
+	public BrokerType broker;
+
+	@Param({ "false", "true" })
+	public boolean cached;
+
+	private EventBroker eventBroker;
+
+	private CountingListener listener;
+
+	private LeafEvent leaf;
+
+	private MiddleEvent middle;
+
+	/**
+	 * Creates the broker and a listener for each level of the hierarchy
+	 */
+	@Setup
+	public void setUp() {
+		HierarchyLocator locator = new HierarchyLocator();
+		listener = new CountingListener();
+		locator.register(BaseEvent.class, listener);
+		locator.register(MiddleEvent.class, listener);
+		locator.register(LeafEvent.class, listener);
+
+		eventBroker = broker.create();
+		if (cached) {
+			eventBroker.setEventListenerLocator(new CachingEventListenerLocator(
+					locator));
+		} else {
+			eventBroker.setEventListenerLocator(locator);
+		}
+
+		leaf = new LeafEvent(0);
+		middle = new MiddleEvent(0);
+	}
+
+	/**
+	 * Dispatches an event with listeners on all three levels
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long leafEvent() {
+		eventBroker.dispatchEvent(leaf);
+		return listener.getCount();
+	}
+
+	/**
+	 * Dispatches an event with listeners on two levels
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long middleEvent() {
+		eventBroker.dispatchEvent(middle);
+		return listener.getCount();
+	}
+}
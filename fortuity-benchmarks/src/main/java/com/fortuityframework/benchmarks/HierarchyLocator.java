@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Locator that returns the listeners registered for an event class and all
+ * of its superclasses, walking the hierarchy on every lookup, like the
+ * annotation based locators do before caching
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class HierarchyLocator implements EventListenerLocator {
+	private final Map<Class<?>, List<EventListener>> listeners = new HashMap<Class<?>, List<EventListener>>();
+
+	/**
+	 * Registers a listener
+	 *
+	 * @param eventClass
+	 *            The class of events to listen to, including subclasses
+	 * @param listener
+	 *            The listener to register
+	 */
+	public void register(Class<? extends Event<?>> eventClass,
+			EventListener listener) {
+		List<EventListener> registered = listeners.get(eventClass);
+		if (registered == null) {
+			registered = new ArrayList<EventListener>();
+			listeners.put(eventClass, registered);
+		}
+		registered.add(listener);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventListenerLocator#getEventListeners(java.lang.Class)
+	 */
+	@Override
+	public List<EventListener> getEventListeners(
+			Class<? extends Event<?>> eventClass) {
+		List<EventListener> result = new ArrayList<EventListener>();
+
+		Class<?> next = eventClass;
+		while (next != null && Event.class.isAssignableFrom(next)) {
+			List<EventListener> registered = listeners.get(next);
+			if (registered != null) {
+				result.addAll(registered);
+			}
+			next = next.getSuperclass();
+		}
+
+		return result;
+	}
+}
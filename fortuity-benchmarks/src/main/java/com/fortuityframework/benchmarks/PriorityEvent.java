@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+/**
+ * Event with a priority of its own, for benchmarks that order events by
+ * priority
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class PriorityEvent extends BaseEvent {
+	private final int priority;
+
+	/**
+	 * Creates a new event
+	 *
+	 * @param source
+	 *            The source of the event
+	 * @param priority
+	 *            The priority of the event
+	 */
+	public PriorityEvent(Integer source, int priority) {
+		super(source);
+		this.priority = priority;
+	}
+
+	/**
+	 * @see com.fortuityframework.benchmarks.BaseEvent#getPriority()
+	 */
+	@Override
+	public int getPriority() {
+		return priority;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.broker.PriorityQueueEventBroker;
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.core.event.PrioritizedEvent;
+
+/**
+ * Measures dispatching a large number of events with random priorities at
+ * once, comparing the heap of the PriorityQueueEventBroker against the
+ * previous implementation, which re-sorted the entire queue on every enqueue.
+ * Larger sizes can be given with {@code -p size=100000}, though the previous
+ * implementation takes a long time at that size
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class PriorityQueueBenchmark {
+	private static final int PRIORITIES = 16;
+
+	/**
+	 * The ways of keeping events in order of priority
+	 */
+	public enum Ordering {
+		/**
+		 * {@link PriorityQueueEventBroker}
+		 */
+		HEAP {
+			@Override
+			EventBroker create() {
+				return new PriorityQueueEventBroker();
+			}
+		},
+		/**
+		 * The enqueue behavior of Fortuity 1.4 and earlier
+		 */
+		RESORT {
+			@Override
+			EventBroker create() {
+				return new SortingPriorityBroker();
+			}
+		};
+
+		abstract EventBroker create();
+	}
+
+	/**
+	 * Broker that sorts its entire queue whenever an event is added
+	 */
+	private static class SortingPriorityBroker extends EventBroker {
+		private final Comparator<Event<?>> comparator = new Comparator<Event<?>>() {
+			@Override
+			public int compare(Event<?> o1, Event<?> o2) {
+				int priority1 = ((PrioritizedEvent<?>) o1).getPriority();
+				int priority2 = ((PrioritizedEvent<?>) o2).getPriority();
+
+				return priority1 > priority2 ? -1 : (priority1 == priority2 ? 0
+						: 1);
+			}
+		};
+
+		/**
+		 * @see com.fortuityframework.core.dispatch.EventBroker#enqueueEvent(com.fortuityframework.core.event.Event)
+		 */
+		@Override
+		protected void enqueueEvent(Event<?> event) {
+			getQueue().add(event);
+
+			Collections.sort(getQueue(), comparator);
+		}
+
+		/**
+		 * @see com.fortuityframework.core.dispatch.EventBroker#createContext(com.fortuityframework.core.event.Event)
+		 */
+		@Override
+		protected <T extends Event<?>> EventContext<T> createContext(
+				final T event) {
+			return new EventContext<T>() {
+				@Override
+				public T getEvent() {
+					return event;
+				}
+
+				@Override
+				public void triggerEvent(Event<?> triggered) {
+					enqueueEvent(triggered);
+				}
+			};
+		}
+	}
+
+	@Param
+	public Ordering ordering;
+
+	@Param({ "1000", "10000" })
+	public int size;
+
+	private EventBroker eventBroker;
+
+	private CountingListener listener;
+
+	private List<Event<?>> events;
+
+	/**
+	 * Creates the broker and the events, with priorities that are the same
+	 * for every run
+	 */
+	@Setup
+	public void setUp() {
+		HierarchyLocator locator = new HierarchyLocator();
+		listener = new CountingListener();
+		locator.register(BaseEvent.class, listener);
+
+		eventBroker = ordering.create();
+		eventBroker.setEventListenerLocator(locator);
+
+		Random random = new Random(size);
+		events = new ArrayList<Event<?>>(size);
+		for (int i = 0; i < size; i++) {
+			events.add(new PriorityEvent(i, random.nextInt(PRIORITIES)));
+		}
+	}
+
+	/**
+	 * Dispatches all events at once
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long dispatchAll() {
+		eventBroker.dispatchEvents(events);
+		return listener.getCount();
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.fortuityframework.core.annotation.ioc.OnFortuityEvent;
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.broker.FIFOQueueEventBroker;
+import com.fortuityframework.spring.broker.SpringFIFOQueueEventBroker;
+
+/**
+ * Measures dispatching an event to a method of a Spring bean, depending on
+ * how the method is invoked
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpringListenerBenchmark {
+	private static final String BEAN_NAME = "counter";
+
+	/**
+	 * The ways of invoking the listener method
+	 */
+	public enum Invocation {
+		/**
+		 * Look up the bean and invoke the method reflectively for every event,
+		 * as the Spring brokers used to
+		 */
+		REFLECTIVE {
+			@Override
+			EventBroker create(final ApplicationContext context) {
+				final Method method;
+				try {
+					method = CountingBean.class.getMethod("onEvent",
+							EventContext.class);
+				} catch (NoSuchMethodException e) {
+					throw new IllegalStateException(e);
+				}
+
+				HierarchyLocator locator = new HierarchyLocator();
+				locator.register(BaseEvent.class, new EventListener() {
+					@Override
+					public void dispatchEvent(EventContext<?> eventContext)
+							throws EventException {
+						try {
+							method.invoke(context.getBean(BEAN_NAME),
+									eventContext);
+						} catch (IllegalAccessException e) {
+							throw new EventException(e);
+						} catch (InvocationTargetException e) {
+							throw new EventException(e);
+						}
+					}
+				});
+
+				EventBroker broker = new FIFOQueueEventBroker();
+				broker.setEventListenerLocator(locator);
+				return broker;
+			}
+		},
+		/**
+		 * Use the listeners of a Spring broker
+		 */
+		LISTENER {
+			@Override
+			EventBroker create(ApplicationContext context) {
+				return context.getBean("eventBroker", EventBroker.class);
+			}
+		};
+
+		abstract EventBroker create(ApplicationContext context);
+	}
+
+	/**
+	 * Bean that counts the events it receives
+	 */
+	public static class CountingBean {
+		private long count = 0;
+
+		/**
+		 * Receives an event
+		 *
+		 * @param context
+		 *            The context of the event
+		 */
+		@OnFortuityEvent(BaseEvent.class)
+		public void onEvent(EventContext<BaseEvent> context) {
+			count++;
+		}
+
+		/**
+		 * @return The number of events received
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+
+	@Param
+	public Invocation invocation;
+
+	private GenericApplicationContext applicationContext;
+
+	private EventBroker eventBroker;
+
+	private CountingBean counter;
+
+	private BaseEvent event;
+
+	/**
+	 * Creates a context with the listening bean and a Spring broker
+	 */
+	@Setup
+	public void setUp() {
+		applicationContext = new GenericApplicationContext();
+		applicationContext.registerBeanDefinition(BEAN_NAME,
+				new RootBeanDefinition(CountingBean.class));
+		applicationContext.registerBeanDefinition("eventBroker",
+				new RootBeanDefinition(SpringFIFOQueueEventBroker.class));
+		applicationContext.refresh();
+
+		eventBroker = invocation.create(applicationContext);
+		counter = applicationContext.getBean(BEAN_NAME, CountingBean.class);
+		event = new BaseEvent(0);
+	}
+
+	/**
+	 * Closes the context
+	 */
+	@TearDown
+	public void closeContext() {
+		applicationContext.close();
+	}
+
+	/**
+	 * Dispatches a single event to the bean
+	 *
+	 * @return The number of events received, to prevent dead code elimination
+	 */
+	@Benchmark
+	public long dispatch() {
+		eventBroker.dispatchEvent(event);
+		return counter.getCount();
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.fortuityframework.core.annotation.ioc.OnFortuityEvent;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.spring.broker.SpringFIFOQueueEventBroker;
+
+/**
+ * Measures refreshing a Spring context with a large number of beans, a few of
+ * which listen to events, depending on how the listeners are discovered
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class SpringStartupBenchmark {
+	private static final int LISTENER_INTERVAL = 100;
+
+	/**
+	 * The ways of discovering listener beans
+	 */
+	public enum Discovery {
+		/**
+		 * Look up the type of every bean once the context is refreshed, and
+		 * inspect all of its methods, as the Spring brokers used to
+		 */
+		SCAN {
+			@Override
+			RootBeanDefinition createDefinition() {
+				return new RootBeanDefinition(ScanningListener.class);
+			}
+		},
+		/**
+		 * Inspect beans as they are created, using a Spring broker
+		 */
+		BEANS {
+			@Override
+			RootBeanDefinition createDefinition() {
+				return new RootBeanDefinition(SpringFIFOQueueEventBroker.class);
+			}
+		},
+		/**
+		 * Inspect beans in the given packages as they are created, using a
+		 * Spring broker
+		 */
+		PACKAGES {
+			@Override
+			RootBeanDefinition createDefinition() {
+				RootBeanDefinition definition = BEANS.createDefinition();
+				definition.getPropertyValues().add("basePackages",
+						new String[] { "com.fortuityframework" });
+				return definition;
+			}
+		};
+
+		abstract RootBeanDefinition createDefinition();
+	}
+
+	/**
+	 * Bean without listener methods
+	 */
+	public static class PlainBean {
+		/**
+		 * Does nothing
+		 */
+		public void doNothing() {
+			// Not used
+		}
+	}
+
+	/**
+	 * Bean with a listener method
+	 */
+	public static class ListenerBean {
+		/**
+		 * Receives an event
+		 *
+		 * @param context
+		 *            The context of the event
+		 */
+		@OnFortuityEvent(BaseEvent.class)
+		public void onEvent(EventContext<BaseEvent> context) {
+			// Not used
+		}
+	}
+
+	/**
+	 * Finds listener methods by scanning all bean definitions once the
+	 * context is refreshed
+	 */
+	public static class ScanningListener implements
+			ApplicationListener<ContextRefreshedEvent> {
+		private final List<Method> listeners = new ArrayList<Method>();
+
+		/**
+		 * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
+		 */
+		@Override
+		public void onApplicationEvent(ContextRefreshedEvent event) {
+			ApplicationContext context = event.getApplicationContext();
+
+			for (String name : context.getBeanDefinitionNames()) {
+				Class<?> type = context.getType(name);
+				for (Method m : type.getMethods()) {
+					if (m.isAnnotationPresent(OnFortuityEvent.class)
+							&& m.getParameterTypes().length == 1) {
+						listeners.add(m);
+					}
+				}
+			}
+		}
+	}
+
+	@Param
+	public Discovery discovery;
+
+	@Param({ "10000" })
+	public int beans;
+
+	private GenericApplicationContext applicationContext;
+
+	/**
+	 * Creates a context that has not been refreshed yet. With single shot
+	 * measurement, each iteration refreshes one context
+	 */
+	@Setup(Level.Iteration)
+	public void createContext() {
+		applicationContext = new GenericApplicationContext();
+		applicationContext.registerBeanDefinition("locator",
+				discovery.createDefinition());
+
+		for (int i = 0; i < beans; i++) {
+			Class<?> type;
+			if (i % LISTENER_INTERVAL == 0) {
+				type = ListenerBean.class;
+			} else if (i % 2 == 0) {
+				type = PlainBean.class;
+			} else {
+				type = HashMap.class;
+			}
+
+			applicationContext.registerBeanDefinition("bean" + i,
+					new RootBeanDefinition(type));
+		}
+	}
+
+	/**
+	 * Closes the context
+	 */
+	@TearDown(Level.Iteration)
+	public void closeContext() {
+		applicationContext.close();
+	}
+
+	/**
+	 * Refreshes the context, creating all beans
+	 *
+	 * @return The context, to prevent dead code elimination
+	 */
+	@Benchmark
+	public ApplicationContext refresh() {
+		applicationContext.refresh();
+		return applicationContext;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap used by the registry of sessions when a large number of
+ * sessions is garbage collected without being unbound. Each invocation
+ * registers the given number of sessions and waits until the registry has
+ * removed them all. The used heap after that should stay level from one
+ * iteration to the next, and is reported as the {@code heapBytes} counter.
+ * This benchmark is in the package of the registry, which is not public
+ *
+ * @author Jeroen Steenbeeke
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionRegistryBenchmark {
+	private static final long COLLECT_TIMEOUT_MILLIS = 10000;
+
+	@Param({ "1000000" })
+	public int sessions;
+
+	private SessionRegistry<Object, Object> registry;
+
+	private int round = 0;
+
+	/**
+	 * The state of the registry and the heap after the last invocation of
+	 * an iteration
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Retained {
+		/**
+		 * The number of entries left in the registry
+		 */
+		public long entries;
+
+		/**
+		 * The used heap, in bytes
+		 */
+		public long heapBytes;
+	}
+
+	/**
+	 * Creates the registry, which is shared by all iterations
+	 */
+	@Setup
+	public void setUp() {
+		registry = new SessionRegistry<Object, Object>();
+	}
+
+	/**
+	 * Registers the sessions, and waits until they have been collected and
+	 * removed from the registry
+	 *
+	 * @param retained
+	 *            The state after the invocation
+	 * @return The number of entries left, to prevent dead code elimination
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for garbage collection
+	 */
+	@Benchmark
+	public int collectedSessions(Retained retained)
+			throws InterruptedException {
+		for (int i = 0; i < sessions; i++) {
+			String id = round + "-" + i;
+			registry.register(id, new Object());
+			registry.pageRendered(id, 0);
+		}
+		round++;
+
+		long deadline = System.currentTimeMillis() + COLLECT_TIMEOUT_MILLIS;
+		while (registry.size() > 0 && System.currentTimeMillis() < deadline) {
+			System.gc();
+			Thread.sleep(10);
+			registry.expunge();
+		}
+
+		System.gc();
+
+		Runtime runtime = Runtime.getRuntime();
+		retained.entries = registry.size();
+		retained.heapBytes = runtime.totalMemory() - runtime.freeMemory();
+
+		return registry.size();
+	}
+}
@@ -28,6 +28,10 @@ import com.fortuityframework.core.event.Event;
  * FortuityEvent occurs. Note that this will only happen if the class the
  * annotated method is in is in some way connected to the event broker.
  * 
+ * Annotated methods take a single EventContext parameter, or, if the event
+ * mechanism supports it, a {@code List} of EventContexts to receive several
+ * events at once.
+ * 
  * @author Jeroen Steenbeeke
  * 
  */
@@ -42,4 +46,14 @@ public @interface OnFortuityEvent {
 	 */
 
 	Class<? extends Event<?>>[] value() default {};
+
+	/**
+	 * The maximum number of events to pass in a single invocation, for
+	 * methods that accept a {@code List} of event contexts instead of a single
+	 * context. Such methods receive the events of the same type that are
+	 * queued together in one call. Ignored for other methods
+	 * 
+	 * @return The maximum number of events per invocation
+	 */
+	int maxBatchSize() default 100;
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import java.util.List;
+
+/**
+ * Event listener that can process several events of the same type in a
+ * single call. When the event broker finds a batch listener for an event, it
+ * takes the events of the same type that directly follow it in the queue,
+ * and hands them to the listener together, in chunks of at most
+ * {@link #getMaxBatchSize()} events. Events that reach the broker one at a
+ * time are still delivered through
+ * {@link #dispatchEvent(EventContext)}.
+ * 
+ * @author Jeroen Steenbeeke
+ * 
+ */
+public interface BatchEventListener extends EventListener {
+	/**
+	 * @return The maximum number of events to pass to a single invocation of
+	 *         {@link #dispatchEvents(List)}. Must be at least 1
+	 */
+	int getMaxBatchSize();
+
+	/**
+	 * Dispatch several events of the same type
+	 * 
+	 * @param contexts
+	 *            The contexts of the events, in the order in which they were
+	 *            queued
+	 * @throws EventException
+	 *             If the processing of the events raises an exception or
+	 *             encounters an error
+	 */
+	void dispatchEvents(List<EventContext<?>> contexts) throws EventException;
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Event listener locator that remembers the listeners found by another
+ * locator, so the lookup for a given event class is only performed once.
+ * Subsequent lookups return the same, unmodifiable list.
+ *
+ * This locator does not know when listeners are added to or removed from
+ * the wrapped locator. Code that registers listeners should call
+ * {@link #invalidate()} or {@link #invalidate(Class)} afterwards. Locators
+ * whose results change on every call, such as locators that filter out
+ * inactive listeners, should not be wrapped.
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public class CachingEventListenerLocator implements EventListenerLocator {
+	private final EventListenerLocator delegate;
+
+	private final ConcurrentMap<Class<? extends Event<?>>, List<EventListener>> cache = new ConcurrentHashMap<Class<? extends Event<?>>, List<EventListener>>();
+
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Creates a new caching locator
+	 *
+	 * @param delegate
+	 *            The locator to cache the results of
+	 */
+	public CachingEventListenerLocator(EventListenerLocator delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventListenerLocator#getEventListeners(java.lang.Class)
+	 */
+	@Override
+	public List<EventListener> getEventListeners(
+			Class<? extends Event<?>> eventClass) {
+		List<EventListener> cached = cache.get(eventClass);
+		if (cached != null) {
+			return cached;
+		}
+
+		long expectedGeneration = generation.get();
+
+		List<EventListener> resolved = snapshot(delegate
+				.getEventListeners(eventClass));
+
+		List<EventListener> existing = cache.putIfAbsent(eventClass, resolved);
+		if (existing != null) {
+			return existing;
+		}
+
+		// If the cache was invalidated while resolving, the result may
+		// predate the registration that caused the invalidation
+		if (generation.get() != expectedGeneration) {
+			cache.remove(eventClass, resolved);
+		}
+
+		return resolved;
+	}
+
+	/**
+	 * Discards all cached results
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		cache.clear();
+	}
+
+	/**
+	 * Discards the cached results for the given event class and its
+	 * subclasses, which inherit its listeners
+	 *
+	 * @param eventClass
+	 *            The event class for which listeners were added or removed
+	 */
+	public void invalidate(Class<? extends Event<?>> eventClass) {
+		generation.incrementAndGet();
+
+		Iterator<Class<? extends Event<?>>> iterator = cache.keySet()
+				.iterator();
+		while (iterator.hasNext()) {
+			if (eventClass.isAssignableFrom(iterator.next())) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static List<EventListener> snapshot(List<EventListener> listeners) {
+		if (listeners.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(Arrays.asList(listeners
+				.toArray(new EventListener[listeners.size()])));
+	}
+}
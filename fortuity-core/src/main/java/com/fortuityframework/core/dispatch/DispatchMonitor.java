@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Receives notifications of the work done by an {@link EventBroker}, for
+ * instance to gather statistics. A monitor is set using
+ * {@link EventBroker#setDispatchMonitor(DispatchMonitor)}; without one, the
+ * broker does not measure anything.
+ * 
+ * Monitors are called from the threads that dispatch events, and should
+ * therefore be thread-safe and return quickly. Exceptions thrown by a
+ * monitor are not caught by the broker.
+ * 
+ * @author Jeroen Steenbeeke
+ * 
+ */
+public interface DispatchMonitor {
+	/**
+	 * Called when an event is handed to the broker, either directly or by
+	 * being triggered from a listener
+	 * 
+	 * @param event
+	 *            The event that was queued
+	 */
+	void eventQueued(Event<?> event);
+
+	/**
+	 * Called when the broker starts processing an event
+	 * 
+	 * @param event
+	 *            The event being processed
+	 * @param queueDepth
+	 *            The number of events still waiting in the queue, or -1 if
+	 *            the event is not processed from a queue
+	 */
+	void eventStarted(Event<?> event, int queueDepth);
+
+	/**
+	 * Called when all listeners of an event have been invoked. Events
+	 * dispatched to batch listeners finish together, and all report the time
+	 * taken by the entire batch
+	 * 
+	 * @param event
+	 *            The event that was processed
+	 * @param durationNanos
+	 *            The time taken to process the event, in nanoseconds
+	 */
+	void eventFinished(Event<?> event, long durationNanos);
+
+	/**
+	 * Called before each invocation of a listener
+	 * 
+	 * @param eventClass
+	 *            The class of the event passed to the listener
+	 * @param listener
+	 *            The listener about to be invoked
+	 */
+	void listenerStarted(Class<? extends Event<?>> eventClass,
+			EventListener listener);
+
+	/**
+	 * Called after each invocation of a listener, on the same thread as the
+	 * corresponding call to {@link #listenerStarted(Class, EventListener)}
+	 * 
+	 * @param eventClass
+	 *            The class of the event passed to the listener
+	 * @param listener
+	 *            The listener that was invoked
+	 * @param eventCount
+	 *            The number of events passed to the listener, which is more
+	 *            than one for batch listeners
+	 * @param durationNanos
+	 *            The time taken by the listener, in nanoseconds
+	 * @param error
+	 *            The exception thrown by the listener, or {@code null} if it
+	 *            completed normally
+	 */
+	void listenerInvoked(Class<? extends Event<?>> eventClass,
+			EventListener listener, int eventCount, long durationNanos,
+			RuntimeException error);
+}
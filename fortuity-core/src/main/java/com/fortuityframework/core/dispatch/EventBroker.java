@@ -15,12 +15,13 @@
  */
 package com.fortuityframework.core.dispatch;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fortuityframework.core.dispatch.queue.FIFOEventQueue;
 import com.fortuityframework.core.event.Event;
 
 /**
@@ -39,13 +40,17 @@ public abstract class EventBroker implements IEventBroker {
 	private static final Logger log = LoggerFactory
 			.getLogger(EventBroker.class);
 
-	private EventListenerLocator locator;
+	private volatile EventListenerLocator locator;
 
-	private List<Event<?>> queue = new LinkedList<Event<?>>();
+	private EventQueue queue;
 
-	private ErrorPolicy eventErrorPolicy = ErrorPolicy.THROW;
+	private List<Event<?>> queueView;
 
-	private ErrorPolicy runtimeExceptionPolicy = ErrorPolicy.THROW;
+	private volatile ErrorPolicy eventErrorPolicy = ErrorPolicy.THROW;
+
+	private volatile ErrorPolicy runtimeExceptionPolicy = ErrorPolicy.THROW;
+
+	private volatile DispatchMonitor monitor;
 
 	private ThreadLocal<Boolean> inProcessor = new ThreadLocal<Boolean>() {
 		protected Boolean initialValue() {
@@ -64,6 +69,19 @@ public abstract class EventBroker implements IEventBroker {
 		this.locator = locator;
 	}
 
+	/**
+	 * Creates the queue used to hold events until they are processed. The
+	 * queue determines the order in which events are dispatched. The default
+	 * implementation creates a First-In-First-Out queue.
+	 * 
+	 * This method is called once, when the queue is first needed
+	 * 
+	 * @return A new, empty event queue
+	 */
+	protected EventQueue createQueue() {
+		return new FIFOEventQueue();
+	}
+
 	/**
 	 * Get a reference to the event queue of this broker. When an implementing
 	 * class receives a new event, it can use a specific ordering mechanism to
@@ -73,10 +91,31 @@ public abstract class EventBroker implements IEventBroker {
 	 * 
 	 * @return A reference to the queue of this broker
 	 */
-	protected final List<Event<?>> getQueue() {
+	protected final EventQueue getEventQueue() {
+		if (queue == null) {
+			queue = createQueue();
+		}
 		return queue;
 	}
 
+	/**
+	 * Get a list view of the event queue of this broker. Kept for subclasses
+	 * written against earlier versions of Fortuity, new code should use
+	 * {@link #getEventQueue()} instead. Positional access is only fully
+	 * supported if the queue is a
+	 * {@link com.fortuityframework.core.dispatch.queue.RingBufferEventQueue}
+	 * 
+	 * Normally this method should not be invoked except by the framework.
+	 * 
+	 * @return A list view of the queue of this broker
+	 */
+	protected final List<Event<?>> getQueue() {
+		if (queueView == null) {
+			queueView = new EventQueueList(getEventQueue());
+		}
+		return queueView;
+	}
+
 	/**
 	 * Determines what the event broker should do in case of Fortuity errors
 	 * (usually the case when the calling of event handlers fails). Default is
@@ -89,6 +128,13 @@ public abstract class EventBroker implements IEventBroker {
 		this.eventErrorPolicy = eventErrorPolicy;
 	}
 
+	/**
+	 * @return The policy for Fortuity errors
+	 */
+	public ErrorPolicy getEventErrorPolicy() {
+		return eventErrorPolicy;
+	}
+
 	/**
 	 * Determines what the event broker should do in case of runtime errors
 	 * (usually happens inside event handlers). Default is THROW.
@@ -100,6 +146,50 @@ public abstract class EventBroker implements IEventBroker {
 		this.runtimeExceptionPolicy = runtimeExceptionPolicy;
 	}
 
+	/**
+	 * @return The policy for runtime errors
+	 */
+	public ErrorPolicy getRuntimeExceptionPolicy() {
+		return runtimeExceptionPolicy;
+	}
+
+	/**
+	 * Sets the monitor to notify of queued events, processed events and
+	 * listener invocations. Default is no monitor, in which case nothing is
+	 * measured
+	 * 
+	 * @param monitor
+	 *            The monitor to use, or {@code null} to disable monitoring
+	 */
+	public void setDispatchMonitor(DispatchMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * @return The monitor notified of the work done by this broker, or
+	 *         {@code null} if there is none
+	 */
+	public DispatchMonitor getDispatchMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Notifies the dispatch monitor, if any, that an event was handed to this
+	 * broker. Subclasses that override {@link #dispatchEvent(Event)} or
+	 * {@link #dispatchEvents(List)} should call this method for every event
+	 * passed to them. Events triggered through an EventContext are reported
+	 * by this class
+	 * 
+	 * @param event
+	 *            The event that was queued
+	 */
+	protected final void eventQueued(Event<?> event) {
+		DispatchMonitor currentMonitor = monitor;
+		if (currentMonitor != null) {
+			currentMonitor.eventQueued(event);
+		}
+	}
+
 	/**
 	 * Dispatch a single event to be processed. WARNING: Do not call this method
 	 * from within a method that is itself an event responder! Use the
@@ -111,7 +201,8 @@ public abstract class EventBroker implements IEventBroker {
 	 *             If an event encountered an error
 	 */
 	@Override
-	public final void dispatchEvent(Event<?> event) throws EventException {
+	public void dispatchEvent(Event<?> event) throws EventException {
+		eventQueued(event);
 		enqueueEvent(event);
 
 		processEvents();
@@ -129,9 +220,10 @@ public abstract class EventBroker implements IEventBroker {
 	 *             If an event encountered an error
 	 */
 	@Override
-	public final void dispatchEvents(List<Event<?>> events)
+	public void dispatchEvents(List<Event<?>> events)
 			throws EventException {
 		for (Event<?> event : events) {
+			eventQueued(event);
 			enqueueEvent(event);
 		}
 
@@ -153,69 +245,375 @@ public abstract class EventBroker implements IEventBroker {
 		if (!inProcessor.get()) {
 			try {
 				inProcessor.set(true);
-				events: while (!getQueue().isEmpty()) {
-					Event<?> event = getQueue().remove(0);
-
-					log.debug("Processing event of type "
-							+ event.getClass().getName());
-
-					EventContext<?> context = createContext(event);
-
-					Class<? extends Event<?>> eventClass = getEventClass(event);
-
-					// Prevent NullPointerException
-					if (locator != null) {
-						listeners: for (EventListener listener : locator
-								.getEventListeners(eventClass)) {
-							log.trace("Dispatching to listener of type "
-									+ listener.getClass().getName());
-							try {
-								listener.dispatchEvent(context);
-							} catch (EventException e) {
-								log.error("Event processing error message");
-								log.error(e.getMessage(), e);
-								log.trace(String.format(
-										"Event error policy: %s",
-										eventErrorPolicy.name()));
-								switch (eventErrorPolicy) {
-									case THROW:
-										throw e;
-									case IGNORE_LISTENER:
-										continue listeners;
-									case IGNORE_EVENT:
-										continue events;
-									case STOP:
-										return;
-								}
-							} catch (RuntimeException e) {
-								log.error("Event processing error message");
-								log.error(e.getMessage(), e);
-								log.trace(String.format(
-										"Runtime exception policy: %s",
-										runtimeExceptionPolicy.name()));
-								switch (runtimeExceptionPolicy) {
-									case THROW:
-										throw e;
-									case IGNORE_LISTENER:
-										continue listeners;
-									case IGNORE_EVENT:
-										continue events;
-									case STOP:
-										return;
-								}
+				processQueue(getEventQueue());
+			} finally {
+				// Prevent deadlocking the event processor
+				inProcessor.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Dispatch all events in the given queue to event listeners, until the
+	 * queue is empty or the error policy dictates that processing should stop.
+	 * If one of the listeners of an event is a {@link BatchEventListener},
+	 * the events of the same type that directly follow it in the queue are
+	 * dispatched along with it, each listener receiving all of them before
+	 * the next listener is invoked. Unlike {@link #processEvents()}, this
+	 * method does not acquire any locks: callers must make sure that the given
+	 * queue is not processed by more than one thread at a time.
+	 * 
+	 * @param eventQueue
+	 *            The queue to process
+	 * @throws EventException
+	 *             If the execution of the event goes awry
+	 */
+	protected final void processQueue(EventQueue eventQueue)
+			throws EventException {
+		Event<?> event;
+
+		while ((event = eventQueue.poll()) != null) {
+			log.debug("Processing event of type {}", event.getClass()
+					.getName());
+
+			EventListenerLocator currentLocator = locator;
+
+			// Prevent NullPointerException
+			if (currentLocator == null) {
+				log.warn("No event listener locator");
+				continue;
+			}
+
+			Class<? extends Event<?>> eventClass = getEventClass(event);
+			List<EventListener> listeners = currentLocator
+					.getEventListeners(eventClass);
+
+			DispatchMonitor currentMonitor = monitor;
+			long start = 0L;
+			if (currentMonitor != null) {
+				currentMonitor.eventStarted(event, eventQueue.size());
+				start = System.nanoTime();
+			}
+
+			int batchSize = getMaxBatchSize(listeners);
+			boolean proceed;
+
+			if (batchSize > 1 && isOfClass(eventQueue.peek(), eventClass)) {
+				List<Event<?>> batch = new ArrayList<Event<?>>();
+				batch.add(event);
+
+				while (batch.size() < batchSize
+						&& isOfClass(eventQueue.peek(), eventClass)) {
+					Event<?> next = eventQueue.poll();
+					if (currentMonitor != null) {
+						currentMonitor.eventStarted(next, eventQueue.size());
+					}
+					batch.add(next);
+				}
+
+				try {
+					proceed = dispatchBatch(eventClass, batch, listeners,
+							currentMonitor);
+				} finally {
+					if (currentMonitor != null) {
+						long duration = System.nanoTime() - start;
+						for (Event<?> batched : batch) {
+							currentMonitor.eventFinished(batched, duration);
+						}
+					}
+				}
+			} else {
+				try {
+					proceed = dispatchToListeners(eventClass,
+							createContext(event, currentMonitor), listeners,
+							currentMonitor);
+				} finally {
+					if (currentMonitor != null) {
+						currentMonitor.eventFinished(event, System.nanoTime()
+								- start);
+					}
+				}
+			}
+
+			if (!proceed) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Dispatch a single event to all listeners for that event. Like
+	 * {@link #processQueue(EventQueue)}, this method does not acquire any
+	 * locks, and may be called from any thread
+	 * 
+	 * @param event
+	 *            The event to dispatch
+	 * @return {@code false} if the error policy dictates that processing
+	 *         should stop, {@code true} otherwise
+	 * @throws EventException
+	 *             If the execution of the event goes awry
+	 */
+	protected final boolean processEvent(Event<?> event) throws EventException {
+		log.debug("Processing event of type {}", event.getClass().getName());
+
+		DispatchMonitor currentMonitor = monitor;
+
+		EventContext<?> context = createContext(event, currentMonitor);
+
+		Class<? extends Event<?>> eventClass = getEventClass(event);
+
+		EventListenerLocator currentLocator = locator;
+
+		// Prevent NullPointerException
+		if (currentLocator == null) {
+			log.warn("No event listener locator");
+			return true;
+		}
+
+		long start = 0L;
+		if (currentMonitor != null) {
+			currentMonitor.eventStarted(event, -1);
+			start = System.nanoTime();
+		}
+
+		try {
+			return dispatchToListeners(eventClass, context,
+					currentLocator.getEventListeners(eventClass),
+					currentMonitor);
+		} finally {
+			if (currentMonitor != null) {
+				currentMonitor.eventFinished(event, System.nanoTime() - start);
+			}
+		}
+	}
+
+	private boolean dispatchToListeners(Class<? extends Event<?>> eventClass,
+			EventContext<?> context, List<EventListener> listeners,
+			DispatchMonitor currentMonitor) throws EventException {
+		for (EventListener listener : listeners) {
+			log.trace("Dispatching to listener of type {}", listener
+					.getClass().getName());
+			long start = 0L;
+			if (currentMonitor != null) {
+				currentMonitor.listenerStarted(eventClass, listener);
+				start = System.nanoTime();
+			}
+			try {
+				listener.dispatchEvent(context);
+				if (currentMonitor != null) {
+					currentMonitor.listenerInvoked(eventClass, listener, 1,
+							System.nanoTime() - start, null);
+				}
+			} catch (RuntimeException e) {
+				if (currentMonitor != null) {
+					currentMonitor.listenerInvoked(eventClass, listener, 1,
+							System.nanoTime() - start, e);
+				}
+				switch (handleError(e)) {
+					case IGNORE_EVENT:
+						return true;
+					case STOP:
+						return false;
+					default:
+						// Continue with the next listener
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Dispatch several events of the same class. Batch listeners receive the
+	 * events in chunks, other listeners receive them one by one. An error
+	 * policy of IGNORE_EVENT applies to all events of the chunk that caused
+	 * the error
+	 */
+	private boolean dispatchBatch(Class<? extends Event<?>> eventClass,
+			List<Event<?>> events, List<EventListener> listeners,
+			DispatchMonitor currentMonitor) throws EventException {
+		int size = events.size();
+
+		List<EventContext<?>> contexts = new ArrayList<EventContext<?>>(size);
+		for (Event<?> event : events) {
+			contexts.add(createContext(event, currentMonitor));
+		}
+
+		boolean[] ignored = new boolean[size];
+
+		for (EventListener listener : listeners) {
+			log.trace("Dispatching {} events to listener of type {}", size,
+					listener.getClass().getName());
+
+			if (listener instanceof BatchEventListener) {
+				BatchEventListener batchListener = (BatchEventListener) listener;
+				int max = Math.max(1, batchListener.getMaxBatchSize());
+
+				int from = 0;
+				while (from < size) {
+					List<EventContext<?>> chunk = new ArrayList<EventContext<?>>(
+							Math.min(max, size - from));
+					int to = from;
+					while (to < size && chunk.size() < max) {
+						if (!ignored[to]) {
+							chunk.add(contexts.get(to));
+						}
+						to++;
+					}
+
+					if (!chunk.isEmpty()) {
+						long start = 0L;
+						if (currentMonitor != null) {
+							currentMonitor.listenerStarted(eventClass,
+									listener);
+							start = System.nanoTime();
+						}
+						try {
+							batchListener.dispatchEvents(chunk);
+							if (currentMonitor != null) {
+								currentMonitor.listenerInvoked(eventClass,
+										listener, chunk.size(),
+										System.nanoTime() - start, null);
+							}
+						} catch (RuntimeException e) {
+							if (currentMonitor != null) {
+								currentMonitor.listenerInvoked(eventClass,
+										listener, chunk.size(),
+										System.nanoTime() - start, e);
 							}
+							switch (handleError(e)) {
+								case IGNORE_EVENT:
+									for (int i = from; i < to; i++) {
+										ignored[i] = true;
+									}
+									break;
+								case STOP:
+									return false;
+								default:
+									// Continue with the next chunk
+							}
+						}
+					}
+
+					from = to;
+				}
+			} else {
+				for (int i = 0; i < size; i++) {
+					if (ignored[i]) {
+						continue;
+					}
 
+					long start = 0L;
+					if (currentMonitor != null) {
+						currentMonitor.listenerStarted(eventClass, listener);
+						start = System.nanoTime();
+					}
+					try {
+						listener.dispatchEvent(contexts.get(i));
+						if (currentMonitor != null) {
+							currentMonitor.listenerInvoked(eventClass,
+									listener, 1, System.nanoTime() - start,
+									null);
+						}
+					} catch (RuntimeException e) {
+						if (currentMonitor != null) {
+							currentMonitor.listenerInvoked(eventClass,
+									listener, 1, System.nanoTime() - start, e);
+						}
+						switch (handleError(e)) {
+							case IGNORE_EVENT:
+								ignored[i] = true;
+								break;
+							case STOP:
+								return false;
+							default:
+								// Continue with the next event
 						}
-					} else {
-						log.warn("No event listener locator");
 					}
 				}
+			}
+		}
 
-			} finally {
-				// Prevent deadlocking the event processor
-				inProcessor.set(false);
+		return true;
+	}
+
+	/**
+	 * Logs the given exception, and determines how to proceed
+	 * 
+	 * @return The error policy to apply, never THROW
+	 * @throws EventException
+	 *             If the policy dictates that EventExceptions should be
+	 *             thrown
+	 * @throws RuntimeException
+	 *             If the policy dictates that runtime exceptions should be
+	 *             thrown
+	 */
+	private ErrorPolicy handleError(RuntimeException e) {
+		log.error("Event processing error message");
+		log.error(e.getMessage(), e);
+
+		ErrorPolicy policy;
+		if (e instanceof EventException) {
+			policy = eventErrorPolicy;
+			log.trace(String.format("Event error policy: %s", policy.name()));
+		} else {
+			policy = runtimeExceptionPolicy;
+			log.trace(String.format("Runtime exception policy: %s",
+					policy.name()));
+		}
+
+		if (policy == ErrorPolicy.THROW) {
+			throw e;
+		}
+
+		return policy;
+	}
+
+	/**
+	 * Determines the largest batch any of the given listeners accepts
+	 * 
+	 * @return The largest batch size, or 1 if none of the listeners is a
+	 *         batch listener
+	 */
+	private static int getMaxBatchSize(List<EventListener> listeners) {
+		int max = 1;
+		for (EventListener listener : listeners) {
+			if (listener instanceof BatchEventListener) {
+				max = Math.max(max,
+						((BatchEventListener) listener).getMaxBatchSize());
 			}
 		}
+		return max;
+	}
+
+	/**
+	 * Creates the context for the given event, reporting events triggered
+	 * through it to the given monitor
+	 */
+	private <T extends Event<?>> EventContext<T> createContext(T event,
+			final DispatchMonitor currentMonitor) {
+		final EventContext<T> context = createContext(event);
+
+		if (currentMonitor == null) {
+			return context;
+		}
+
+		return new EventContext<T>() {
+			@Override
+			public T getEvent() {
+				return context.getEvent();
+			}
+
+			@Override
+			public void triggerEvent(Event<?> triggered) {
+				currentMonitor.eventQueued(triggered);
+				context.triggerEvent(triggered);
+			}
+		};
+	}
+
+	private static boolean isOfClass(Event<?> event, Class<?> eventClass) {
+		return event != null && event.getClass() == eventClass;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import com.fortuityframework.core.dispatch.queue.FIFOEventQueue;
+import com.fortuityframework.core.dispatch.queue.LIFOEventQueue;
+import com.fortuityframework.core.dispatch.queue.PriorityEventQueue;
+
+/**
+ * The order in which queued events are processed, for brokers that allow the
+ * ordering to be chosen through configuration
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public enum EventOrdering {
+	/**
+	 * Process events in the order in which they were triggered
+	 */
+	FIFO {
+		@Override
+		public EventQueue createQueue() {
+			return new FIFOEventQueue();
+		}
+	},
+	/**
+	 * Process the most recently triggered event first
+	 */
+	LIFO {
+		@Override
+		public EventQueue createQueue() {
+			return new LIFOEventQueue();
+		}
+	},
+	/**
+	 * Process events with a higher priority first, see
+	 * {@link com.fortuityframework.core.event.PrioritizedEvent}
+	 */
+	PRIORITY {
+		@Override
+		public EventQueue createQueue() {
+			return new PriorityEventQueue();
+		}
+	};
+
+	/**
+	 * Creates a new, empty queue that uses this ordering
+	 *
+	 * @return A new event queue
+	 */
+	public abstract EventQueue createQueue();
+}
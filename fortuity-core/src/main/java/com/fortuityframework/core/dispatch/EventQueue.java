@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Queue of events waiting to be processed by an {@link EventBroker}. The
+ * implementation decides in which order events are handed out, which allows
+ * brokers to select an ordering without touching the processing loop.
+ *
+ * Implementations are not required to be thread-safe; the broker guarantees
+ * that only a single thread accesses a queue at any given time.
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public interface EventQueue {
+	/**
+	 * Adds an event to the queue, at the position dictated by the ordering of
+	 * this queue
+	 *
+	 * @param event
+	 *            The event to add
+	 */
+	void offer(Event<?> event);
+
+	/**
+	 * Removes and returns the next event to process
+	 *
+	 * @return The next event, or {@code null} if the queue is empty
+	 */
+	Event<?> poll();
+
+	/**
+	 * Returns the next event to process without removing it
+	 *
+	 * @return The next event, or {@code null} if the queue is empty
+	 */
+	Event<?> peek();
+
+	/**
+	 * @return The number of events in this queue
+	 */
+	int size();
+
+	/**
+	 * @return {@code true} if there are no events in this queue,
+	 *         {@code false} otherwise
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Removes all events from this queue
+	 */
+	void clear();
+}
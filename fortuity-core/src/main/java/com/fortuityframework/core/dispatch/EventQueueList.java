@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import java.util.AbstractList;
+
+import com.fortuityframework.core.dispatch.queue.RingBufferEventQueue;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * List view of an {@link EventQueue}, used to keep subclasses that
+ * manipulate {@link EventBroker#getQueue()} working. Ring buffer queues
+ * support full positional access. For other queues only the head of the
+ * queue can be accessed, and adding to the end of the list delegates to
+ * {@link EventQueue#offer(Event)}
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+class EventQueueList extends AbstractList<Event<?>> {
+	private final EventQueue queue;
+
+	/**
+	 * Creates a new list view of the given queue
+	 *
+	 * @param queue
+	 *            The queue to wrap
+	 */
+	EventQueueList(EventQueue queue) {
+		this.queue = queue;
+	}
+
+	/**
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public Event<?> get(int index) {
+		if (queue instanceof RingBufferEventQueue) {
+			return ((RingBufferEventQueue) queue).get(index);
+		}
+
+		if (index == 0 && !queue.isEmpty()) {
+			return queue.peek();
+		}
+
+		throw unsupported(index);
+	}
+
+	/**
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	@Override
+	public Event<?> set(int index, Event<?> element) {
+		if (queue instanceof RingBufferEventQueue) {
+			return ((RingBufferEventQueue) queue).set(index, element);
+		}
+
+		throw unsupported(index);
+	}
+
+	/**
+	 * @see java.util.AbstractList#add(int, java.lang.Object)
+	 */
+	@Override
+	public void add(int index, Event<?> element) {
+		if (queue instanceof RingBufferEventQueue) {
+			((RingBufferEventQueue) queue).insert(index, element);
+		} else if (index == queue.size()) {
+			queue.offer(element);
+		} else {
+			throw unsupported(index);
+		}
+		modCount++;
+	}
+
+	/**
+	 * @see java.util.AbstractList#remove(int)
+	 */
+	@Override
+	public Event<?> remove(int index) {
+		Event<?> removed;
+
+		if (queue instanceof RingBufferEventQueue) {
+			removed = ((RingBufferEventQueue) queue).remove(index);
+		} else if (index == 0 && !queue.isEmpty()) {
+			removed = queue.poll();
+		} else {
+			throw unsupported(index);
+		}
+		modCount++;
+
+		return removed;
+	}
+
+	/**
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	/**
+	 * @see java.util.AbstractList#clear()
+	 */
+	@Override
+	public void clear() {
+		queue.clear();
+		modCount++;
+	}
+
+	private UnsupportedOperationException unsupported(int index) {
+		return new UnsupportedOperationException(String.format(
+				"%s does not support positional access (index %d)", queue
+						.getClass().getName(), index));
+	}
+}
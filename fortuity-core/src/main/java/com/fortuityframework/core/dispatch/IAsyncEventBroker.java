@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Event broker that can process events in the background. Mainly used for
+ * dependency injection, where injecting an abstract class yields errors
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public interface IAsyncEventBroker extends IEventBroker {
+	/**
+	 * Dispatch a single event to be processed in the background. The returned
+	 * future completes once the event, and all events triggered by its
+	 * listeners, have been processed. If processing fails and the error policy
+	 * is {@link ErrorPolicy#THROW}, the failure is reported through the
+	 * future as the cause of an
+	 * {@link java.util.concurrent.ExecutionException}
+	 *
+	 * @param event
+	 *            The event to dispatch
+	 * @return A future representing the completion of the dispatch
+	 * @throws EventException
+	 *             If the event could not be scheduled for processing
+	 */
+	public Future<Void> dispatchEventAsync(Event<?> event)
+			throws EventException;
+
+	/**
+	 * Dispatch multiple events to be processed in the background, using the
+	 * queuing mechanism to take care of ordering. The returned future
+	 * completes once all events have been processed
+	 *
+	 * @param events
+	 *            The events to dispatch
+	 * @return A future representing the completion of the dispatch
+	 * @throws EventException
+	 *             If the events could not be scheduled for processing
+	 */
+	public Future<Void> dispatchEventsAsync(List<Event<?>> events)
+			throws EventException;
+}
@@ -15,7 +15,7 @@
  */
 package com.fortuityframework.core.dispatch;
 
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 import com.fortuityframework.core.event.Event;
@@ -34,7 +34,7 @@ public class NullEventListenerLocator implements EventListenerLocator {
 	@Override
 	public List<EventListener> getEventListeners(
 			Class<? extends Event<?>> eventClass) {
-		return new LinkedList<EventListener>();
+		return Collections.emptyList();
 	}
 
 }
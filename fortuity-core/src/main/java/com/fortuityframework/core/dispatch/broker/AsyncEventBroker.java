@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.IAsyncEventBroker;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Event broker that can process events on an {@link Executor}, so callers
+ * do not have to wait for slow listeners. Each asynchronous dispatch is
+ * processed on a single thread of the executor, so events triggered by
+ * listeners are processed in the same order as they would be by a
+ * synchronous dispatch. Independent asynchronous dispatches may run in
+ * parallel, depending on the executor.
+ *
+ * The regular {@link #dispatchEvent(Event)} and {@link #dispatchEvents(List)}
+ * methods still process events on the calling thread.
+ *
+ * Error policies are applied as usual. When the policy is
+ * {@link com.fortuityframework.core.dispatch.ErrorPolicy#THROW}, the exception
+ * is reported through the future returned by the asynchronous dispatch
+ * methods; the other policies complete the future normally.
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class AsyncEventBroker extends ConcurrentEventBroker implements
+		IAsyncEventBroker {
+	private final Executor executor;
+
+	/**
+	 * Creates a new asynchronous event broker
+	 *
+	 * @param executor
+	 *            The executor to process asynchronous dispatches on
+	 */
+	public AsyncEventBroker(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.IAsyncEventBroker#dispatchEventAsync(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	public Future<Void> dispatchEventAsync(final Event<?> event)
+			throws EventException {
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				dispatchEvent(event);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.IAsyncEventBroker#dispatchEventsAsync(java.util.List)
+	 */
+	@Override
+	public Future<Void> dispatchEventsAsync(List<Event<?>> events)
+			throws EventException {
+		// Copy the list, the caller may modify it after this method returns
+		final List<Event<?>> copy = new ArrayList<Event<?>>(events);
+
+		return submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				dispatchEvents(copy);
+				return null;
+			}
+		});
+	}
+
+	private Future<Void> submit(Callable<Void> dispatch) throws EventException {
+		FutureTask<Void> task = new FutureTask<Void>(dispatch);
+
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			throw new EventException("Executor did not accept event dispatch",
+					e);
+		}
+
+		return task;
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventOrdering;
+import com.fortuityframework.core.dispatch.EventQueue;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Thread-safe event broker that allows multiple threads to dispatch events at
+ * the same time. Instead of sharing a single queue guarded by a lock, every
+ * call to {@link #dispatchEvent(Event)} or {@link #dispatchEvents(List)}
+ * processes its own queue on the calling thread. Events triggered by
+ * listeners are added to the queue of the dispatch they originated from, so
+ * the ordering within a single chain of events is the same as that of the
+ * non-concurrent brokers, while unrelated threads do not wait for each other.
+ *
+ * Listeners may trigger events from other threads than the dispatching one.
+ * Such events are handed over through a lock-free queue and picked up by the
+ * dispatching thread. If the originating dispatch has already finished, the
+ * event starts a new dispatch on the triggering thread.
+ *
+ * The ordering of events within a dispatch is configured using
+ * {@link #setOrdering(EventOrdering)}, and defaults to FIFO.
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class ConcurrentEventBroker extends EventBroker {
+	private final ThreadLocal<Dispatch> currentDispatch = new ThreadLocal<Dispatch>();
+
+	private final Queue<Event<?>> pending = new ConcurrentLinkedQueue<Event<?>>();
+
+	private volatile EventOrdering ordering = EventOrdering.FIFO;
+
+	/**
+	 * Sets the order in which events within a single dispatch are processed.
+	 * Affects dispatches started after this call
+	 *
+	 * @param ordering
+	 *            The ordering to use
+	 */
+	public void setOrdering(EventOrdering ordering) {
+		this.ordering = ordering;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventBroker#createQueue()
+	 */
+	@Override
+	protected EventQueue createQueue() {
+		return ordering.createQueue();
+	}
+
+	/**
+	 * Dispatch a single event to be processed on the calling thread. If the
+	 * calling thread is already dispatching events, the event is added to the
+	 * running dispatch instead
+	 *
+	 * @see com.fortuityframework.core.dispatch.EventBroker#dispatchEvent(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	public void dispatchEvent(Event<?> event) throws EventException {
+		eventQueued(event);
+		dispatchQueued(event);
+	}
+
+	/**
+	 * Dispatches an event the dispatch monitor has already been notified of,
+	 * such as an event triggered through an EventContext
+	 */
+	private void dispatchQueued(Event<?> event) throws EventException {
+		Dispatch running = currentDispatch.get();
+		if (running != null) {
+			running.offer(event);
+			return;
+		}
+
+		Dispatch dispatch = startDispatch();
+		dispatch.offer(event);
+		run(dispatch);
+	}
+
+	/**
+	 * Dispatch multiple events to be processed on the calling thread. If the
+	 * calling thread is already dispatching events, the events are added to
+	 * the running dispatch instead
+	 *
+	 * @see com.fortuityframework.core.dispatch.EventBroker#dispatchEvents(java.util.List)
+	 */
+	@Override
+	public void dispatchEvents(List<Event<?>> events) throws EventException {
+		for (Event<?> event : events) {
+			eventQueued(event);
+		}
+
+		Dispatch running = currentDispatch.get();
+		if (running != null) {
+			for (Event<?> event : events) {
+				running.offer(event);
+			}
+			return;
+		}
+
+		Dispatch dispatch = startDispatch();
+		for (Event<?> event : events) {
+			dispatch.offer(event);
+		}
+		run(dispatch);
+	}
+
+	/**
+	 * Adds the event to the dispatch running on the current thread. If there
+	 * is none, the event is held until the next dispatch on any thread
+	 *
+	 * @see com.fortuityframework.core.dispatch.EventBroker#enqueueEvent(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	protected void enqueueEvent(Event<?> event) {
+		Dispatch running = currentDispatch.get();
+		if (running != null) {
+			running.offer(event);
+		} else {
+			pending.offer(event);
+		}
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventBroker#createContext(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	protected final <T extends Event<?>> EventContext<T> createContext(
+			final T contextEvent) {
+		final Dispatch dispatch = currentDispatch.get();
+
+		return new EventContext<T>() {
+			/**
+			 * @see com.fortuityframework.core.dispatch.EventContext#getEvent()
+			 */
+			@Override
+			public T getEvent() {
+				return contextEvent;
+			}
+
+			/**
+			 * @see com.fortuityframework.core.dispatch.EventContext#triggerEvent(com.fortuityframework.core.event.Event)
+			 */
+			@Override
+			public void triggerEvent(Event<?> event) {
+				if (dispatch != null) {
+					dispatch.trigger(event);
+				} else {
+					dispatchQueued(event);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Creates a dispatch for the current thread, which starts with any events
+	 * that were enqueued outside of a dispatch
+	 */
+	private Dispatch startDispatch() {
+		Dispatch dispatch = new Dispatch(createQueue());
+
+		Event<?> event;
+		while ((event = pending.poll()) != null) {
+			dispatch.offer(event);
+		}
+
+		return dispatch;
+	}
+
+	private void run(Dispatch dispatch) throws EventException {
+		currentDispatch.set(dispatch);
+		try {
+			processQueue(dispatch);
+		} finally {
+			currentDispatch.remove();
+			dispatch.finish();
+		}
+	}
+
+	/**
+	 * The queue of a single dispatch. Only the owning thread takes events from
+	 * this queue. Events added by other threads go through a lock-free inbox
+	 * that is drained into the ordered queue whenever the owner polls
+	 */
+	private final class Dispatch implements EventQueue {
+		private final Thread owner;
+
+		private final EventQueue queue;
+
+		private final Queue<Event<?>> inbox = new ConcurrentLinkedQueue<Event<?>>();
+
+		private volatile boolean closed = false;
+
+		private boolean running = true;
+
+		Dispatch(EventQueue queue) {
+			this.owner = Thread.currentThread();
+			this.queue = queue;
+		}
+
+		/**
+		 * Adds an event triggered by a listener of this dispatch
+		 */
+		void trigger(Event<?> event) {
+			if (Thread.currentThread() == owner && running) {
+				queue.offer(event);
+				return;
+			}
+
+			inbox.offer(event);
+
+			// If the owner has already stopped looking at the inbox, take the
+			// event back and start a new dispatch for it instead. If removal
+			// fails, the owner has taken the event and will process it
+			if (closed && inbox.remove(event)) {
+				dispatchQueued(event);
+			}
+		}
+
+		/**
+		 * Called by the owner when it stops processing this dispatch. Any
+		 * events that were not processed, for instance because the error
+		 * policy dictated processing should stop, are kept for the next
+		 * dispatch, as the other brokers would
+		 */
+		void finish() {
+			running = false;
+
+			Event<?> event;
+			if (!closed) {
+				// Processing ended before the queue was exhausted, so other
+				// threads still consider this dispatch open
+				closed = true;
+				while ((event = inbox.poll()) != null) {
+					pending.offer(event);
+				}
+			}
+			while ((event = queue.poll()) != null) {
+				pending.offer(event);
+			}
+		}
+
+		@Override
+		public void offer(Event<?> event) {
+			queue.offer(event);
+		}
+
+		@Override
+		public Event<?> poll() {
+			drainInbox();
+
+			Event<?> event = queue.poll();
+			if (event == null && !closed) {
+				// Any event added to the inbox before this point is
+				// guaranteed to be seen by the drain below. Events added
+				// after will be taken back by the triggering thread
+				closed = true;
+				drainInbox();
+				event = queue.poll();
+			}
+
+			return event;
+		}
+
+		@Override
+		public Event<?> peek() {
+			drainInbox();
+			return queue.peek();
+		}
+
+		@Override
+		public int size() {
+			return queue.size() + inbox.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return queue.isEmpty() && inbox.isEmpty();
+		}
+
+		@Override
+		public void clear() {
+			inbox.clear();
+			queue.clear();
+		}
+
+		private void drainInbox() {
+			Event<?> event;
+			while ((event = inbox.poll()) != null) {
+				queue.offer(event);
+			}
+		}
+	}
+}
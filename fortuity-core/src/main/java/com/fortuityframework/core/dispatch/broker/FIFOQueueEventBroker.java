@@ -17,6 +17,8 @@ package com.fortuityframework.core.dispatch.broker;
 
 import com.fortuityframework.core.dispatch.EventBroker;
 import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventQueue;
+import com.fortuityframework.core.dispatch.queue.FIFOEventQueue;
 import com.fortuityframework.core.event.Event;
 
 /**
@@ -53,12 +55,20 @@ public class FIFOQueueEventBroker extends EventBroker {
 		};
 	}
 
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventBroker#createQueue()
+	 */
+	@Override
+	protected EventQueue createQueue() {
+		return new FIFOEventQueue();
+	}
+
 	/**
 	 * @see com.fortuityframework.core.dispatch.EventBroker#enqueueEvent(com.fortuityframework.core.event.Event)
 	 */
 	@Override
 	protected void enqueueEvent(Event<?> event) {
-		getQueue().add(event);
+		getEventQueue().offer(event);
 	}
 
 }
@@ -17,6 +17,8 @@ package com.fortuityframework.core.dispatch.broker;
 
 import com.fortuityframework.core.dispatch.EventBroker;
 import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventQueue;
+import com.fortuityframework.core.dispatch.queue.LIFOEventQueue;
 import com.fortuityframework.core.event.Event;
 
 /**
@@ -52,12 +54,20 @@ public class LIFOQueueEventBroker extends EventBroker {
 		};
 	}
 
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventBroker#createQueue()
+	 */
+	@Override
+	protected EventQueue createQueue() {
+		return new LIFOEventQueue();
+	}
+
 	/**
 	 * @see com.fortuityframework.core.dispatch.EventBroker#enqueueEvent(com.fortuityframework.core.event.Event)
 	 */
 	@Override
 	protected void enqueueEvent(Event<?> event) {
-		getQueue().add(0, event);
+		getEventQueue().offer(event);
 	}
 
 }
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventOrdering;
+import com.fortuityframework.core.dispatch.EventQueue;
+import com.fortuityframework.core.dispatch.queue.PriorityEventQueue;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Event broker that processes independent events in parallel, for listeners
+ * that spend most of their time waiting on I/O. Events are processed in
+ * waves: all events in the queue are taken out, and the listeners of each
+ * event are run as a separate task on the configured {@link Executor}. Once
+ * every task of the wave has finished, the events triggered by those
+ * listeners form the next wave. The call to {@link #dispatchEvent(Event)} or
+ * {@link #dispatchEvents(List)} only returns once all waves are done.
+ *
+ * This gives the following ordering guarantees:
+ * <ul>
+ * <li>The listeners of a single event are invoked one after the other, in
+ * the order given by the locator</li>
+ * <li>An event is always fully processed before any event it triggers</li>
+ * <li>Tasks of a wave are started in the order dictated by the configured
+ * {@link EventOrdering}. When using {@link EventOrdering#PRIORITY}, a wave
+ * only contains events of the same priority, so events with a higher
+ * priority are always fully processed before events with a lower
+ * priority</li>
+ * </ul>
+ *
+ * The number of tasks running at the same time can be limited by passing a
+ * maximum concurrency to the constructor. The limit applies to all dispatches
+ * of this broker together.
+ *
+ * Any executor can be used. On Java 21 and up,
+ * {@code Executors.newVirtualThreadPerTaskExecutor()} runs every task on its
+ * own virtual thread, so blocking listeners do not tie up platform threads.
+ *
+ * Error policies are applied after the wave has finished, in wave order. As
+ * the other events of the wave may already have been processed, STOP only
+ * prevents subsequent waves from being processed. Unprocessed events are kept
+ * until the next dispatch.
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class ParallelEventBroker extends EventBroker {
+	private final ThreadLocal<Task> currentTask = new ThreadLocal<Task>();
+
+	private final Queue<Event<?>> pending = new ConcurrentLinkedQueue<Event<?>>();
+
+	private final Executor executor;
+
+	private final Semaphore permits;
+
+	private volatile EventOrdering ordering = EventOrdering.FIFO;
+
+	/**
+	 * Creates a new parallel event broker that does not limit the number of
+	 * concurrently processed events
+	 *
+	 * @param executor
+	 *            The executor to process events on
+	 */
+	public ParallelEventBroker(Executor executor) {
+		this(executor, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new parallel event broker
+	 *
+	 * @param executor
+	 *            The executor to process events on
+	 * @param maxConcurrency
+	 *            The maximum number of events processed at the same time
+	 */
+	public ParallelEventBroker(Executor executor, int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException(
+					"Maximum concurrency should be at least 1");
+		}
+		this.executor = executor;
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * Sets the order in which events are started. Affects dispatches started
+	 * after this call
+	 *
+	 * @param ordering
+	 *            The ordering to use
+	 */
+	public void setOrdering(EventOrdering ordering) {
+		this.ordering = ordering;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventBroker#createQueue()
+	 */
+	@Override
+	protected EventQueue createQueue() {
+		return ordering.createQueue();
+	}
+
+	/**
+	 * Dispatch a single event, and wait until it and all events it triggers
+	 * have been processed. If called from a listener, the event is triggered
+	 * as if through the listener's context instead
+	 *
+	 * @see com.fortuityframework.core.dispatch.EventBroker#dispatchEvent(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	public void dispatchEvent(Event<?> event) throws EventException {
+		eventQueued(event);
+		dispatchQueued(event);
+	}
+
+	/**
+	 * Dispatches an event the dispatch monitor has already been notified of,
+	 * such as an event triggered through an EventContext
+	 */
+	private void dispatchQueued(Event<?> event) throws EventException {
+		Task task = currentTask.get();
+		if (task != null) {
+			task.trigger(event);
+			return;
+		}
+
+		EventQueue queue = startDispatch();
+		queue.offer(event);
+		run(queue);
+	}
+
+	/**
+	 * Dispatch multiple events, and wait until they and all events they
+	 * trigger have been processed. If called from a listener, the events are
+	 * triggered as if through the listener's context instead
+	 *
+	 * @see com.fortuityframework.core.dispatch.EventBroker#dispatchEvents(java.util.List)
+	 */
+	@Override
+	public void dispatchEvents(List<Event<?>> events) throws EventException {
+		for (Event<?> event : events) {
+			eventQueued(event);
+		}
+
+		Task task = currentTask.get();
+		if (task != null) {
+			for (Event<?> event : events) {
+				task.trigger(event);
+			}
+			return;
+		}
+
+		EventQueue queue = startDispatch();
+		for (Event<?> event : events) {
+			queue.offer(event);
+		}
+		run(queue);
+	}
+
+	/**
+	 * Adds the event to the events triggered by the listener running on the
+	 * current thread. If there is none, the event is held until the next
+	 * dispatch on any thread
+	 *
+	 * @see com.fortuityframework.core.dispatch.EventBroker#enqueueEvent(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	protected void enqueueEvent(Event<?> event) {
+		Task task = currentTask.get();
+		if (task != null) {
+			task.trigger(event);
+		} else {
+			pending.offer(event);
+		}
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventBroker#createContext(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	protected final <T extends Event<?>> EventContext<T> createContext(
+			final T contextEvent) {
+		final Task task = currentTask.get();
+
+		return new EventContext<T>() {
+			/**
+			 * @see com.fortuityframework.core.dispatch.EventContext#getEvent()
+			 */
+			@Override
+			public T getEvent() {
+				return contextEvent;
+			}
+
+			/**
+			 * @see com.fortuityframework.core.dispatch.EventContext#triggerEvent(com.fortuityframework.core.event.Event)
+			 */
+			@Override
+			public void triggerEvent(Event<?> event) {
+				if (task != null) {
+					task.trigger(event);
+				} else {
+					dispatchQueued(event);
+				}
+			}
+		};
+	}
+
+	private EventQueue startDispatch() {
+		EventQueue queue = createQueue();
+
+		Event<?> event;
+		while ((event = pending.poll()) != null) {
+			queue.offer(event);
+		}
+
+		return queue;
+	}
+
+	private void run(EventQueue queue) throws EventException {
+		try {
+			List<Event<?>> wave;
+			while (!(wave = nextWave(queue)).isEmpty()) {
+				if (!processWave(wave, queue)) {
+					return;
+				}
+			}
+		} finally {
+			// Keep unprocessed events for the next dispatch, as the other
+			// brokers would
+			Event<?> event;
+			while ((event = queue.poll()) != null) {
+				pending.offer(event);
+			}
+		}
+	}
+
+	private List<Event<?>> nextWave(EventQueue queue) {
+		List<Event<?>> wave = new ArrayList<Event<?>>(queue.size());
+
+		Event<?> first = queue.poll();
+		if (first == null) {
+			return wave;
+		}
+		wave.add(first);
+
+		if (ordering == EventOrdering.PRIORITY) {
+			int priority = PriorityEventQueue.getPriority(first);
+			Event<?> next;
+			while ((next = queue.peek()) != null
+					&& PriorityEventQueue.getPriority(next) == priority) {
+				wave.add(queue.poll());
+			}
+		} else {
+			Event<?> next;
+			while ((next = queue.poll()) != null) {
+				wave.add(next);
+			}
+		}
+
+		return wave;
+	}
+
+	/**
+	 * Processes all events of a wave, and adds the events they trigger to the
+	 * queue
+	 *
+	 * @return {@code false} if the error policy dictates that processing
+	 *         should stop, {@code true} otherwise
+	 */
+	private boolean processWave(List<Event<?>> wave, EventQueue queue)
+			throws EventException {
+		CountDownLatch done = new CountDownLatch(wave.size());
+		List<Task> tasks = new ArrayList<Task>(wave.size());
+		EventException submitFailure = null;
+
+		for (Event<?> event : wave) {
+			if (submitFailure != null) {
+				// Not started, so kept for the next dispatch
+				queue.offer(event);
+				done.countDown();
+				continue;
+			}
+
+			Task task = new Task(event, done);
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				submitFailure = new EventException(
+						"Interrupted while waiting to process event", e);
+				queue.offer(event);
+				done.countDown();
+				continue;
+			}
+
+			try {
+				executor.execute(task);
+				tasks.add(task);
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				submitFailure = new EventException(
+						"Executor did not accept event", e);
+				queue.offer(event);
+				done.countDown();
+			}
+		}
+
+		awaitUninterruptibly(done);
+
+		Task failed = null;
+		boolean proceed = true;
+
+		for (Task task : tasks) {
+			if (proceed && failed == null) {
+				if (task.failure != null) {
+					failed = task;
+				} else {
+					proceed = task.proceed;
+				}
+			}
+			for (Event<?> event : task.collect()) {
+				queue.offer(event);
+			}
+		}
+
+		if (failed != null) {
+			failed.rethrowFailure();
+		}
+		if (submitFailure != null) {
+			throw submitFailure;
+		}
+
+		return proceed;
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch latch) {
+		// Listeners may still be running, so returning early would break the
+		// guarantee that dispatching is done once dispatchEvent returns
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * The processing of a single event within a wave
+	 */
+	private final class Task implements Runnable {
+		private final Event<?> event;
+
+		private final CountDownLatch done;
+
+		private List<Event<?>> triggered = new ArrayList<Event<?>>();
+
+		private boolean proceed = true;
+
+		private Throwable failure;
+
+		Task(Event<?> event, CountDownLatch done) {
+			this.event = event;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			Task previous = currentTask.get();
+			currentTask.set(this);
+			try {
+				proceed = processEvent(event);
+			} catch (Throwable t) {
+				failure = t;
+			} finally {
+				if (previous != null) {
+					currentTask.set(previous);
+				} else {
+					currentTask.remove();
+				}
+				permits.release();
+				done.countDown();
+			}
+		}
+
+		/**
+		 * Adds an event triggered by a listener of this task. Events triggered
+		 * after the wave has finished start a new dispatch
+		 */
+		void trigger(Event<?> event) {
+			synchronized (this) {
+				if (triggered != null) {
+					triggered.add(event);
+					return;
+				}
+			}
+
+			dispatchQueued(event);
+		}
+
+		/**
+		 * Returns the triggered events. Any event triggered after this call
+		 * starts a new dispatch
+		 */
+		synchronized List<Event<?>> collect() {
+			List<Event<?>> result = triggered;
+			triggered = null;
+			return result;
+		}
+
+		void rethrowFailure() throws EventException {
+			if (failure instanceof EventException) {
+				throw (EventException) failure;
+			} else if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (failure instanceof Error) {
+				throw (Error) failure;
+			}
+		}
+	}
+}
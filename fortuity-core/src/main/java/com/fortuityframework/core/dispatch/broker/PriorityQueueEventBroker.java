@@ -15,18 +15,20 @@
  */
 package com.fortuityframework.core.dispatch.broker;
 
-import java.util.Collections;
 import java.util.Comparator;
 
 import com.fortuityframework.core.dispatch.EventBroker;
 import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventQueue;
+import com.fortuityframework.core.dispatch.queue.PriorityEventQueue;
 import com.fortuityframework.core.event.Event;
 import com.fortuityframework.core.event.PrioritizedEvent;
 
 /**
  * Event broker that orders additional events using a priority queue. To take advantage
  * of this queue, events should implement the {@link PrioritizedEvent} interface. Events
- * that do not implement this interface will get a priority of {@link Integer.MIN_VALUE}
+ * that do not implement this interface will get a priority of {@link Integer.MIN_VALUE}.
+ * Events with equal priority are processed in the order in which they were enqueued
  * 
  * @author Jeroen Steenbeeke
  */
@@ -57,14 +59,20 @@ public class PriorityQueueEventBroker extends EventBroker {
 		};
 	}
 
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventBroker#createQueue()
+	 */
+	@Override
+	protected EventQueue createQueue() {
+		return new PriorityEventQueue();
+	}
+
 	/**
 	 * @see com.fortuityframework.core.dispatch.EventBroker#enqueueEvent(com.fortuityframework.core.event.Event)
 	 */
 	@Override
 	protected void enqueueEvent(Event<?> event) {
-		getQueue().add(event);
-
-		Collections.sort(getQueue(), new PriorityComparator());
+		getEventQueue().offer(event);
 	}
 
 	/**
@@ -81,14 +89,11 @@ public class PriorityQueueEventBroker extends EventBroker {
 		 */
 		@Override
 		public int compare(Event<?> o1, Event<?> o2) {
-			Integer priority1 = o1 instanceof PrioritizedEvent<?> ? ((PrioritizedEvent<?>) o1)
-					.getPriority()
-					: Integer.MIN_VALUE;
-			Integer priority2 = o2 instanceof PrioritizedEvent<?> ? ((PrioritizedEvent<?>) o2)
-					.getPriority()
-					: Integer.MIN_VALUE;
+			int priority1 = PriorityEventQueue.getPriority(o1);
+			int priority2 = PriorityEventQueue.getPriority(o2);
 
-			return -priority1.compareTo(priority2);
+			return priority1 > priority2 ? -1 : (priority1 == priority2 ? 0
+					: 1);
 		}
 	}
 
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.monitor;
+
+/**
+ * Snapshot of the statistics recorded for a single event class or listener
+ * by a {@link StatisticsDispatchMonitor}. Latencies are kept in a histogram
+ * with buckets of powers of two, so percentiles are accurate to within a
+ * factor of two.
+ * 
+ * @author Jeroen Steenbeeke
+ */
+public final class DispatchStatistics {
+	private final long count;
+
+	private final long errorCount;
+
+	private final long totalNanos;
+
+	private final long maxNanos;
+
+	private final long[] buckets;
+
+	DispatchStatistics(long count, long errorCount, long totalNanos,
+			long maxNanos, long[] buckets) {
+		this.count = count;
+		this.errorCount = errorCount;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+		this.buckets = buckets;
+	}
+
+	/**
+	 * @return The number of invocations recorded. For listeners, this is the
+	 *         number of events passed to them
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The number of invocations that ended with an exception
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @return The total time spent, in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * @return The longest time recorded, in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * @return The average time per recorded duration, in nanoseconds, or 0 if
+	 *         nothing was recorded
+	 */
+	public long getMeanNanos() {
+		long recorded = 0;
+		for (long bucket : buckets) {
+			recorded += bucket;
+		}
+
+		return recorded == 0 ? 0 : totalNanos / recorded;
+	}
+
+	/**
+	 * Estimates a percentile of the recorded durations
+	 * 
+	 * @param percentile
+	 *            The percentile to estimate, between 0 and 100
+	 * @return The upper bound of the histogram bucket containing the
+	 *         percentile, in nanoseconds, capped at the longest recorded time.
+	 *         Returns 0 if nothing was recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		long recorded = 0;
+		for (long bucket : buckets) {
+			recorded += bucket;
+		}
+
+		if (recorded == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(recorded * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank && buckets[i] > 0) {
+				return Math.min(StatisticsRecorder.upperBound(i), maxNanos);
+			}
+		}
+
+		return maxNanos;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"count=%d, errors=%d, mean=%dns, p50=%dns, p99=%dns, max=%dns",
+				count, errorCount, getMeanNanos(), getPercentileNanos(50),
+				getPercentileNanos(99), maxNanos);
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortuityframework.core.dispatch.DispatchMonitor;
+import com.fortuityframework.core.dispatch.ErrorPolicy;
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Exposes the statistics and error policies of an event broker through JMX.
+ * Creating a monitor installs a {@link StatisticsDispatchMonitor} on the
+ * broker; {@link #register()} makes it available on the platform MBean server
+ * as {@code com.fortuityframework:type=EventBroker,name=<name>}.
+ * 
+ * A broker notifies a single {@link DispatchMonitor}. If the broker already
+ * has a different monitor, such as one that records Flight Recorder events,
+ * that monitor is left in place and this one remains disabled; enabling it
+ * through JMX has no effect until the other monitor is removed. Disabling
+ * this monitor never removes a monitor it did not install.
+ * 
+ * When using Spring, declare the monitor as a bean with
+ * {@code init-method="register"} and {@code destroy-method="unregister"}.
+ * 
+ * @author Jeroen Steenbeeke
+ */
+public class EventBrokerMonitor implements EventBrokerMonitorMBean {
+	private static final int SLOWEST_LISTENERS = 10;
+
+	private static final Logger log = LoggerFactory
+			.getLogger(EventBrokerMonitor.class);
+
+	private final EventBroker broker;
+
+	private final String name;
+
+	private final StatisticsDispatchMonitor statistics = new StatisticsDispatchMonitor();
+
+	private ObjectName objectName;
+
+	/**
+	 * Creates a new monitor for the given broker, and starts gathering
+	 * statistics unless the broker already has a different monitor
+	 * 
+	 * @param broker
+	 *            The broker to monitor
+	 * @param name
+	 *            The name under which to register the MBean
+	 */
+	public EventBrokerMonitor(EventBroker broker, String name) {
+		this.broker = broker;
+		this.name = name;
+		setEnabled(true);
+	}
+
+	/**
+	 * Registers this monitor with the platform MBean server
+	 * 
+	 * @throws EventException
+	 *             If the MBean could not be registered
+	 */
+	public synchronized void register() throws EventException {
+		if (objectName != null) {
+			return;
+		}
+
+		try {
+			ObjectName candidate = ObjectName
+					.getInstance("com.fortuityframework:type=EventBroker,name="
+							+ ObjectName.quote(name));
+			getServer().registerMBean(this, candidate);
+			objectName = candidate;
+		} catch (JMException e) {
+			throw new EventException("Could not register MBean for broker "
+					+ name, e);
+		}
+	}
+
+	/**
+	 * Removes this monitor from the platform MBean server, if registered
+	 * 
+	 * @throws EventException
+	 *             If the MBean could not be unregistered
+	 */
+	public synchronized void unregister() throws EventException {
+		if (objectName == null) {
+			return;
+		}
+
+		try {
+			getServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			throw new EventException("Could not unregister MBean for broker "
+					+ name, e);
+		} finally {
+			objectName = null;
+		}
+	}
+
+	/**
+	 * @return The name under which this monitor is registered, or
+	 *         {@code null} if it is not registered
+	 */
+	public synchronized ObjectName getObjectName() {
+		return objectName;
+	}
+
+	/**
+	 * @return The statistics gathered by this monitor
+	 */
+	public StatisticsDispatchMonitor getStatistics() {
+		return statistics;
+	}
+
+	private static MBeanServer getServer() {
+		return ManagementFactory.getPlatformMBeanServer();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return broker.getDispatchMonitor() == statistics;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#setEnabled(boolean)
+	 */
+	@Override
+	public synchronized void setEnabled(boolean enabled) {
+		DispatchMonitor current = broker.getDispatchMonitor();
+
+		if (enabled) {
+			if (current == null) {
+				broker.setDispatchMonitor(statistics);
+			} else if (current != statistics) {
+				log.warn(
+						"Broker {} already has dispatch monitor {}, not gathering statistics",
+						name, current);
+			}
+		} else if (current == statistics) {
+			broker.setDispatchMonitor(null);
+		}
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#isDetailedTiming()
+	 */
+	@Override
+	public boolean isDetailedTiming() {
+		return statistics.isDetailed();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#setDetailedTiming(boolean)
+	 */
+	@Override
+	public void setDetailedTiming(boolean detailedTiming) {
+		statistics.setDetailed(detailedTiming);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getQueuedCount()
+	 */
+	@Override
+	public long getQueuedCount() {
+		return statistics.getQueuedCount();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getProcessedCount()
+	 */
+	@Override
+	public long getProcessedCount() {
+		return statistics.getProcessedCount();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getProcessedPerSecond()
+	 */
+	@Override
+	public double getProcessedPerSecond() {
+		long elapsed = System.currentTimeMillis() - statistics.getStartTime();
+		if (elapsed <= 0) {
+			return 0.0;
+		}
+
+		return statistics.getProcessedCount() * 1000.0 / elapsed;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getErrorCount()
+	 */
+	@Override
+	public long getErrorCount() {
+		return statistics.getErrorCount();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getQueueDepth()
+	 */
+	@Override
+	public int getQueueDepth() {
+		return statistics.getQueueDepth();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getPeakQueueDepth()
+	 */
+	@Override
+	public long getPeakQueueDepth() {
+		return statistics.getMaxQueueDepth();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getSlowestListeners()
+	 */
+	@Override
+	public String[] getSlowestListeners() {
+		List<Map.Entry<EventListener, DispatchStatistics>> entries = new ArrayList<Map.Entry<EventListener, DispatchStatistics>>(
+				statistics.getListenerStatistics().entrySet());
+
+		Collections.sort(entries,
+				new Comparator<Map.Entry<EventListener, DispatchStatistics>>() {
+					@Override
+					public int compare(
+							Map.Entry<EventListener, DispatchStatistics> o1,
+							Map.Entry<EventListener, DispatchStatistics> o2) {
+						return compareDescending(o1.getValue().getMeanNanos(),
+								o2.getValue().getMeanNanos());
+					}
+				});
+
+		int size = Math.min(SLOWEST_LISTENERS, entries.size());
+		String[] result = new String[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = entries.get(i).getKey() + ": "
+					+ entries.get(i).getValue();
+		}
+
+		return result;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getEventStatistics()
+	 */
+	@Override
+	public String[] getEventStatistics() {
+		List<Map.Entry<Class<? extends Event<?>>, DispatchStatistics>> entries = new ArrayList<Map.Entry<Class<? extends Event<?>>, DispatchStatistics>>(
+				statistics.getEventStatistics().entrySet());
+
+		Collections
+				.sort(entries,
+						new Comparator<Map.Entry<Class<? extends Event<?>>, DispatchStatistics>>() {
+							@Override
+							public int compare(
+									Map.Entry<Class<? extends Event<?>>, DispatchStatistics> o1,
+									Map.Entry<Class<? extends Event<?>>, DispatchStatistics> o2) {
+								return compareDescending(o1.getValue()
+										.getTotalNanos(), o2.getValue()
+										.getTotalNanos());
+							}
+						});
+
+		String[] result = new String[entries.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = entries.get(i).getKey().getName() + ": "
+					+ entries.get(i).getValue();
+		}
+
+		return result;
+	}
+
+	private static int compareDescending(long a, long b) {
+		return a > b ? -1 : (a < b ? 1 : 0);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getEventErrorPolicy()
+	 */
+	@Override
+	public String getEventErrorPolicy() {
+		return broker.getEventErrorPolicy().name();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#setEventErrorPolicy(java.lang.String)
+	 */
+	@Override
+	public void setEventErrorPolicy(String policy) {
+		broker.setEventErrorPolicy(ErrorPolicy.valueOf(policy));
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#getRuntimeExceptionPolicy()
+	 */
+	@Override
+	public String getRuntimeExceptionPolicy() {
+		return broker.getRuntimeExceptionPolicy().name();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#setRuntimeExceptionPolicy(java.lang.String)
+	 */
+	@Override
+	public void setRuntimeExceptionPolicy(String policy) {
+		broker.setRuntimeExceptionPolicy(ErrorPolicy.valueOf(policy));
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.monitor.EventBrokerMonitorMBean#resetStatistics()
+	 */
+	@Override
+	public void resetStatistics() {
+		statistics.reset();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.monitor;
+
+/**
+ * Management interface of an {@link EventBrokerMonitor}
+ * 
+ * @author Jeroen Steenbeeke
+ */
+public interface EventBrokerMonitorMBean {
+	/**
+	 * @return {@code true} if the broker reports to this monitor,
+	 *         {@code false} otherwise
+	 */
+	boolean isEnabled();
+
+	/**
+	 * @param enabled
+	 *            {@code true} to gather statistics, {@code false} to stop
+	 *            measuring altogether
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * @return {@code true} if timings are kept per listener, {@code false}
+	 *         otherwise
+	 */
+	boolean isDetailedTiming();
+
+	/**
+	 * @param detailedTiming
+	 *            {@code true} to keep timings per listener, {@code false}
+	 *            otherwise
+	 */
+	void setDetailedTiming(boolean detailedTiming);
+
+	/**
+	 * @return The number of events handed to the broker
+	 */
+	long getQueuedCount();
+
+	/**
+	 * @return The number of events processed
+	 */
+	long getProcessedCount();
+
+	/**
+	 * @return The average number of events processed per second since the
+	 *         statistics were last reset
+	 */
+	double getProcessedPerSecond();
+
+	/**
+	 * @return The number of failed listener invocations
+	 */
+	long getErrorCount();
+
+	/**
+	 * @return The number of events waiting when the last event was taken from
+	 *         the queue
+	 */
+	int getQueueDepth();
+
+	/**
+	 * @return The largest number of events waiting when an event was taken
+	 *         from the queue
+	 */
+	long getPeakQueueDepth();
+
+	/**
+	 * @return The listeners with the highest average time per invocation,
+	 *         slowest first, along with their statistics
+	 */
+	String[] getSlowestListeners();
+
+	/**
+	 * @return The statistics per event class, by total time spent, highest
+	 *         first
+	 */
+	String[] getEventStatistics();
+
+	/**
+	 * @return The name of the error policy for Fortuity errors
+	 */
+	String getEventErrorPolicy();
+
+	/**
+	 * @param policy
+	 *            The name of the error policy to use for Fortuity errors
+	 */
+	void setEventErrorPolicy(String policy);
+
+	/**
+	 * @return The name of the error policy for runtime exceptions
+	 */
+	String getRuntimeExceptionPolicy();
+
+	/**
+	 * @param policy
+	 *            The name of the error policy to use for runtime exceptions
+	 */
+	void setRuntimeExceptionPolicy(String policy);
+
+	/**
+	 * Discards all statistics gathered so far
+	 */
+	void resetStatistics();
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.monitor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fortuityframework.core.dispatch.DispatchMonitor;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Dispatch monitor that keeps counts, error counts and latency histograms
+ * per event class and per listener, as well as the depth of the event queue.
+ * Recording only uses atomic counters, so it can be left enabled in
+ * production. Statistics are read using the getters, which return
+ * snapshots.
+ * 
+ * @author Jeroen Steenbeeke
+ */
+public class StatisticsDispatchMonitor implements DispatchMonitor {
+	private final ConcurrentMap<Class<?>, StatisticsRecorder> events = new ConcurrentHashMap<Class<?>, StatisticsRecorder>();
+
+	private final ConcurrentMap<EventListener, StatisticsRecorder> listeners = new ConcurrentHashMap<EventListener, StatisticsRecorder>();
+
+	private final AtomicLong queued = new AtomicLong();
+
+	private final AtomicLong maxQueueDepth = new AtomicLong();
+
+	private final AtomicLong processed = new AtomicLong();
+
+	private final AtomicLong errors = new AtomicLong();
+
+	private volatile int lastQueueDepth = 0;
+
+	private volatile boolean detailed = true;
+
+	private volatile long resetTime = System.currentTimeMillis();
+
+	/**
+	 * Sets whether or not statistics are kept per listener. Statistics per
+	 * event class and totals are always kept. Default is {@code true}
+	 * 
+	 * @param detailed
+	 *            {@code true} to keep statistics per listener, {@code false}
+	 *            otherwise
+	 */
+	public void setDetailed(boolean detailed) {
+		this.detailed = detailed;
+	}
+
+	/**
+	 * @return {@code true} if statistics are kept per listener, {@code false}
+	 *         otherwise
+	 */
+	public boolean isDetailed() {
+		return detailed;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#eventQueued(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	public void eventQueued(Event<?> event) {
+		queued.incrementAndGet();
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#eventStarted(com.fortuityframework.core.event.Event,
+	 *      int)
+	 */
+	@Override
+	public void eventStarted(Event<?> event, int queueDepth) {
+		if (queueDepth < 0) {
+			return;
+		}
+
+		lastQueueDepth = queueDepth;
+
+		long max;
+		while ((max = maxQueueDepth.get()) < queueDepth) {
+			if (maxQueueDepth.compareAndSet(max, queueDepth)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#eventFinished(com.fortuityframework.core.event.Event,
+	 *      long)
+	 */
+	@Override
+	public void eventFinished(Event<?> event, long durationNanos) {
+		processed.incrementAndGet();
+		getRecorder(events, event.getClass()).record(1, durationNanos,
+				false);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#listenerStarted(java.lang.Class,
+	 *      com.fortuityframework.core.dispatch.EventListener)
+	 */
+	@Override
+	public void listenerStarted(Class<? extends Event<?>> eventClass,
+			EventListener listener) {
+		// Durations are passed to listenerInvoked
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#listenerInvoked(java.lang.Class,
+	 *      com.fortuityframework.core.dispatch.EventListener, int, long,
+	 *      java.lang.RuntimeException)
+	 */
+	@Override
+	public void listenerInvoked(Class<? extends Event<?>> eventClass,
+			EventListener listener, int eventCount, long durationNanos,
+			RuntimeException error) {
+		if (detailed) {
+			getRecorder(listeners, listener).record(eventCount, durationNanos,
+					error != null);
+		}
+
+		if (error != null) {
+			errors.incrementAndGet();
+			getRecorder(events, eventClass).recordError();
+		}
+	}
+
+	/**
+	 * @return Snapshots of the statistics of every event class processed so
+	 *         far. Error counts are the number of failed listener invocations
+	 *         for the event class
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<Class<? extends Event<?>>, DispatchStatistics> getEventStatistics() {
+		Map<Class<? extends Event<?>>, DispatchStatistics> result = new HashMap<Class<? extends Event<?>>, DispatchStatistics>();
+		for (Map.Entry<Class<?>, StatisticsRecorder> entry : events.entrySet()) {
+			result.put((Class<? extends Event<?>>) entry.getKey(), entry
+					.getValue().snapshot());
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * @param eventClass
+	 *            The event class to get the statistics of
+	 * @return A snapshot of the statistics of the given event class, or
+	 *         {@code null} if no events of that class were processed
+	 */
+	public DispatchStatistics getEventStatistics(
+			Class<? extends Event<?>> eventClass) {
+		StatisticsRecorder recorder = events.get(eventClass);
+		return recorder != null ? recorder.snapshot() : null;
+	}
+
+	/**
+	 * @return Snapshots of the statistics of every listener invoked so far
+	 */
+	public Map<EventListener, DispatchStatistics> getListenerStatistics() {
+		Map<EventListener, DispatchStatistics> result = new HashMap<EventListener, DispatchStatistics>();
+		for (Map.Entry<EventListener, StatisticsRecorder> entry : listeners
+				.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * @param listener
+	 *            The listener to get the statistics of
+	 * @return A snapshot of the statistics of the given listener, or
+	 *         {@code null} if the listener was not invoked
+	 */
+	public DispatchStatistics getListenerStatistics(EventListener listener) {
+		StatisticsRecorder recorder = listeners.get(listener);
+		return recorder != null ? recorder.snapshot() : null;
+	}
+
+	/**
+	 * @return The number of events handed to the broker
+	 */
+	public long getQueuedCount() {
+		return queued.get();
+	}
+
+	/**
+	 * @return The number of events processed
+	 */
+	public long getProcessedCount() {
+		return processed.get();
+	}
+
+	/**
+	 * @return The number of failed listener invocations
+	 */
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	/**
+	 * @return The time at which recording started, or was last reset, in
+	 *         milliseconds since the epoch
+	 */
+	public long getStartTime() {
+		return resetTime;
+	}
+
+	/**
+	 * @return The number of events waiting in the queue when the most recent
+	 *         event was taken from it
+	 */
+	public int getQueueDepth() {
+		return lastQueueDepth;
+	}
+
+	/**
+	 * @return The largest number of events waiting in the queue when an event
+	 *         was taken from it
+	 */
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * Discards all statistics recorded so far
+	 */
+	public void reset() {
+		events.clear();
+		listeners.clear();
+		queued.set(0);
+		processed.set(0);
+		errors.set(0);
+		maxQueueDepth.set(0);
+		lastQueueDepth = 0;
+		resetTime = System.currentTimeMillis();
+	}
+
+	private static <K> StatisticsRecorder getRecorder(
+			ConcurrentMap<K, StatisticsRecorder> recorders, K key) {
+		StatisticsRecorder recorder = recorders.get(key);
+		if (recorder == null) {
+			recorder = new StatisticsRecorder();
+			StatisticsRecorder existing = recorders.putIfAbsent(key, recorder);
+			if (existing != null) {
+				recorder = existing;
+			}
+		}
+		return recorder;
+	}
+}
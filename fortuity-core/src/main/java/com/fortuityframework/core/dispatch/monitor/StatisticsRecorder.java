@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe recorder of counts and latencies for a single event class or
+ * listener
+ * 
+ * @author Jeroen Steenbeeke
+ */
+final class StatisticsRecorder {
+	private static final int BUCKETS = 64;
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong errorCount = new AtomicLong();
+
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Records an invocation
+	 * 
+	 * @param events
+	 *            The number of events handled by the invocation
+	 * @param durationNanos
+	 *            The duration of the invocation
+	 * @param failed
+	 *            Whether or not the invocation ended with an exception
+	 */
+	void record(int events, long durationNanos, boolean failed) {
+		count.addAndGet(events);
+		if (failed) {
+			errorCount.incrementAndGet();
+		}
+
+		long duration = Math.max(0L, durationNanos);
+
+		totalNanos.addAndGet(duration);
+		buckets.incrementAndGet(bucketOf(duration));
+
+		long max;
+		while ((max = maxNanos.get()) < duration) {
+			if (maxNanos.compareAndSet(max, duration)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Records an error without recording an invocation
+	 */
+	void recordError() {
+		errorCount.incrementAndGet();
+	}
+
+	/**
+	 * @return A snapshot of the current statistics. Values recorded while the
+	 *         snapshot is taken may be partially included
+	 */
+	DispatchStatistics snapshot() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+		}
+
+		return new DispatchStatistics(count.get(), errorCount.get(),
+				totalNanos.get(), maxNanos.get(), counts);
+	}
+
+	/**
+	 * Bucket i holds the durations below 2^i nanoseconds that do not fit in
+	 * a lower bucket
+	 */
+	private static int bucketOf(long duration) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(duration));
+	}
+
+	/**
+	 * @param bucket
+	 *            The index of a bucket
+	 * @return The largest duration that falls into the bucket
+	 */
+	static long upperBound(int bucket) {
+		if (bucket >= BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		return (1L << bucket) - 1;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.queue;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * First-In-First-Out event queue. New events are added to the back of the queue
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public class FIFOEventQueue extends RingBufferEventQueue {
+	/**
+	 * Creates a new FIFO event queue with the default initial capacity
+	 */
+	public FIFOEventQueue() {
+		super();
+	}
+
+	/**
+	 * Creates a new FIFO event queue with the given initial capacity
+	 *
+	 * @param initialCapacity
+	 *            The number of events the queue can hold before it needs to
+	 *            grow
+	 */
+	public FIFOEventQueue(int initialCapacity) {
+		super(initialCapacity);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#offer(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	public void offer(Event<?> event) {
+		addLast(event);
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.queue;
+
+import com.fortuityframework.core.dispatch.EventQueue;
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.core.event.PrioritizedEvent;
+
+/**
+ * Event queue that orders events by their priority, using an array-backed
+ * binary heap. Events with a higher priority are returned first. Events that
+ * do not implement {@link PrioritizedEvent} get a priority of
+ * {@code Integer.MIN_VALUE}.
+ *
+ * Events with equal priority are returned in the order in which they were
+ * added. To achieve this, each event is stored together with a sequence
+ * number, which is used to break ties. Both insertion and removal take
+ * O(log n) time.
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public class PriorityEventQueue implements EventQueue {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private Event<?>[] events;
+
+	private int[] priorities;
+
+	private long[] sequences;
+
+	private int size = 0;
+
+	private long nextSequence = 0;
+
+	/**
+	 * Creates a new priority event queue with the default initial capacity
+	 */
+	public PriorityEventQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new priority event queue with the given initial capacity
+	 *
+	 * @param initialCapacity
+	 *            The number of events the queue can hold before it needs to
+	 *            grow
+	 */
+	public PriorityEventQueue(int initialCapacity) {
+		int capacity = Math.max(initialCapacity, 1);
+		events = new Event<?>[capacity];
+		priorities = new int[capacity];
+		sequences = new long[capacity];
+	}
+
+	/**
+	 * Determines the priority of the given event
+	 *
+	 * @param event
+	 *            The event to get the priority of
+	 * @return The priority of the event if it is a {@link PrioritizedEvent},
+	 *         or {@code Integer.MIN_VALUE} otherwise
+	 */
+	public static int getPriority(Event<?> event) {
+		return event instanceof PrioritizedEvent<?> ? ((PrioritizedEvent<?>) event)
+				.getPriority() : Integer.MIN_VALUE;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#offer(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	public void offer(Event<?> event) {
+		if (size == events.length) {
+			grow();
+		}
+
+		siftUp(size, event, getPriority(event), nextSequence++);
+		size++;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#poll()
+	 */
+	@Override
+	public Event<?> poll() {
+		if (size == 0) {
+			return null;
+		}
+
+		Event<?> result = events[0];
+
+		size--;
+		if (size > 0) {
+			siftDown(0, events[size], priorities[size], sequences[size]);
+		}
+		events[size] = null;
+
+		if (size == 0) {
+			// Restart numbering so the sequence never overflows in practice
+			nextSequence = 0;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#peek()
+	 */
+	@Override
+	public Event<?> peek() {
+		return size == 0 ? null : events[0];
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#isEmpty()
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#clear()
+	 */
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			events[i] = null;
+		}
+		size = 0;
+		nextSequence = 0;
+	}
+
+	/**
+	 * Determines whether the entry with the first priority and sequence should
+	 * be processed before the entry with the second
+	 */
+	private static boolean before(int priority1, long sequence1,
+			int priority2, long sequence2) {
+		return priority1 > priority2
+				|| (priority1 == priority2 && sequence1 < sequence2);
+	}
+
+	private void siftUp(int index, Event<?> event, int priority, long sequence) {
+		int current = index;
+
+		while (current > 0) {
+			int parent = (current - 1) >>> 1;
+			if (!before(priority, sequence, priorities[parent],
+					sequences[parent])) {
+				break;
+			}
+			set(current, events[parent], priorities[parent], sequences[parent]);
+			current = parent;
+		}
+
+		set(current, event, priority, sequence);
+	}
+
+	private void siftDown(int index, Event<?> event, int priority,
+			long sequence) {
+		int current = index;
+		int half = size >>> 1;
+
+		while (current < half) {
+			int child = (current << 1) + 1;
+			int right = child + 1;
+
+			if (right < size
+					&& before(priorities[right], sequences[right],
+							priorities[child], sequences[child])) {
+				child = right;
+			}
+
+			if (!before(priorities[child], sequences[child], priority,
+					sequence)) {
+				break;
+			}
+
+			set(current, events[child], priorities[child], sequences[child]);
+			current = child;
+		}
+
+		set(current, event, priority, sequence);
+	}
+
+	private void set(int index, Event<?> event, int priority, long sequence) {
+		events[index] = event;
+		priorities[index] = priority;
+		sequences[index] = sequence;
+	}
+
+	private void grow() {
+		int capacity = events.length << 1;
+
+		Event<?>[] grownEvents = new Event<?>[capacity];
+		int[] grownPriorities = new int[capacity];
+		long[] grownSequences = new long[capacity];
+
+		System.arraycopy(events, 0, grownEvents, 0, size);
+		System.arraycopy(priorities, 0, grownPriorities, 0, size);
+		System.arraycopy(sequences, 0, grownSequences, 0, size);
+
+		events = grownEvents;
+		priorities = grownPriorities;
+		sequences = grownSequences;
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.queue;
+
+import com.fortuityframework.core.dispatch.EventQueue;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Array-backed double-ended event queue. Events are stored in a circular
+ * buffer that doubles in size when full, so adding and removing events at
+ * either end does not allocate once the buffer has grown to the size of the
+ * largest burst. Subclasses decide at which end new events are added.
+ *
+ * Besides the operations of {@link EventQueue}, this queue supports
+ * positional access, which is used to keep the legacy {@code List} view of
+ * the broker queue working.
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public abstract class RingBufferEventQueue implements EventQueue {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private Event<?>[] elements;
+
+	private int head = 0;
+
+	private int size = 0;
+
+	/**
+	 * Creates a new ring buffer queue with the default initial capacity
+	 */
+	protected RingBufferEventQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new ring buffer queue with the given initial capacity
+	 *
+	 * @param initialCapacity
+	 *            The number of events the queue can hold before it needs to
+	 *            grow. Rounded up to the nearest power of two
+	 */
+	protected RingBufferEventQueue(int initialCapacity) {
+		int capacity = 1;
+		while (capacity < initialCapacity) {
+			capacity <<= 1;
+		}
+		elements = new Event<?>[capacity];
+	}
+
+	/**
+	 * Adds an event to the front of the queue, making it the next event to be
+	 * returned by {@link #poll()}
+	 *
+	 * @param event
+	 *            The event to add
+	 */
+	public final void addFirst(Event<?> event) {
+		ensureCapacity();
+		head = (head - 1) & (elements.length - 1);
+		elements[head] = event;
+		size++;
+	}
+
+	/**
+	 * Adds an event to the back of the queue
+	 *
+	 * @param event
+	 *            The event to add
+	 */
+	public final void addLast(Event<?> event) {
+		ensureCapacity();
+		elements[(head + size) & (elements.length - 1)] = event;
+		size++;
+	}
+
+	/**
+	 * Inserts an event at the given position, shifting the events at and
+	 * after that position back by one
+	 *
+	 * @param index
+	 *            The position to insert the event at, between 0 and
+	 *            {@link #size()} inclusive
+	 * @param event
+	 *            The event to insert
+	 */
+	public final void insert(int index, Event<?> event) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+
+		if (index == 0) {
+			addFirst(event);
+		} else if (index == size) {
+			addLast(event);
+		} else {
+			ensureCapacity();
+			int mask = elements.length - 1;
+			if (index < size / 2) {
+				// Shift the front part one position forward
+				head = (head - 1) & mask;
+				for (int i = 0; i < index; i++) {
+					elements[(head + i) & mask] = elements[(head + i + 1)
+							& mask];
+				}
+			} else {
+				// Shift the back part one position backward
+				for (int i = size; i > index; i--) {
+					elements[(head + i) & mask] = elements[(head + i - 1)
+							& mask];
+				}
+			}
+			elements[(head + index) & mask] = event;
+			size++;
+		}
+	}
+
+	/**
+	 * Returns the event at the given position
+	 *
+	 * @param index
+	 *            The position of the event, where 0 is the next event to be
+	 *            processed
+	 * @return The event at the given position
+	 */
+	public final Event<?> get(int index) {
+		checkIndex(index);
+		return elements[(head + index) & (elements.length - 1)];
+	}
+
+	/**
+	 * Replaces the event at the given position
+	 *
+	 * @param index
+	 *            The position of the event
+	 * @param event
+	 *            The new event
+	 * @return The event previously at the given position
+	 */
+	public final Event<?> set(int index, Event<?> event) {
+		checkIndex(index);
+		int slot = (head + index) & (elements.length - 1);
+		Event<?> previous = elements[slot];
+		elements[slot] = event;
+		return previous;
+	}
+
+	/**
+	 * Removes the event at the given position, shifting the events after it
+	 * forward by one
+	 *
+	 * @param index
+	 *            The position of the event to remove
+	 * @return The removed event
+	 */
+	public final Event<?> remove(int index) {
+		checkIndex(index);
+
+		int mask = elements.length - 1;
+		Event<?> removed = elements[(head + index) & mask];
+
+		if (index < size / 2) {
+			for (int i = index; i > 0; i--) {
+				elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+			}
+			elements[head] = null;
+			head = (head + 1) & mask;
+		} else {
+			for (int i = index; i < size - 1; i++) {
+				elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+			}
+			elements[(head + size - 1) & mask] = null;
+		}
+		size--;
+
+		return removed;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#poll()
+	 */
+	@Override
+	public final Event<?> poll() {
+		if (size == 0) {
+			return null;
+		}
+
+		Event<?> event = elements[head];
+		elements[head] = null;
+		head = (head + 1) & (elements.length - 1);
+		size--;
+
+		return event;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#peek()
+	 */
+	@Override
+	public final Event<?> peek() {
+		return size == 0 ? null : elements[head];
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#size()
+	 */
+	@Override
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#isEmpty()
+	 */
+	@Override
+	public final boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventQueue#clear()
+	 */
+	@Override
+	public final void clear() {
+		int mask = elements.length - 1;
+		for (int i = 0; i < size; i++) {
+			elements[(head + i) & mask] = null;
+		}
+		head = 0;
+		size = 0;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+	}
+
+	private void ensureCapacity() {
+		if (size == elements.length) {
+			Event<?>[] grown = new Event<?>[elements.length << 1];
+			int firstPart = elements.length - head;
+			System.arraycopy(elements, head, grown, 0, firstPart);
+			System.arraycopy(elements, 0, grown, firstPart, head);
+			elements = grown;
+			head = 0;
+		}
+	}
+}
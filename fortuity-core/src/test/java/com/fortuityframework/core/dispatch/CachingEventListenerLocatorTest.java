@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the caching event listener locator
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class CachingEventListenerLocatorTest {
+	private CountingLocator delegate;
+
+	private CachingEventListenerLocator locator;
+
+	/**
+	 * Creates the locator under test
+	 */
+	@Before
+	public void createLocator() {
+		delegate = new CountingLocator();
+		locator = new CachingEventListenerLocator(delegate);
+	}
+
+	/**
+	 * Tests that the wrapped locator is only consulted once per event class
+	 */
+	@Test
+	public void testCaching() {
+		delegate.listeners.add(new NoopListener());
+
+		List<EventListener> first = locator.getEventListeners(BaseEvent.class);
+		List<EventListener> second = locator
+				.getEventListeners(BaseEvent.class);
+
+		assertEquals(1, first.size());
+		assertSame(first, second);
+		assertEquals(1, delegate.lookups);
+
+		locator.getEventListeners(SubEvent.class);
+		assertEquals(2, delegate.lookups);
+	}
+
+	/**
+	 * Tests that invalidating an event class also invalidates its subclasses,
+	 * but leaves unrelated classes alone
+	 */
+	@Test
+	public void testInvalidateClass() {
+		locator.getEventListeners(BaseEvent.class);
+		locator.getEventListeners(SubEvent.class);
+		locator.getEventListeners(OtherEvent.class);
+		assertEquals(3, delegate.lookups);
+
+		delegate.listeners.add(new NoopListener());
+		locator.invalidate(BaseEvent.class);
+
+		assertEquals(1, locator.getEventListeners(BaseEvent.class).size());
+		assertEquals(1, locator.getEventListeners(SubEvent.class).size());
+		assertEquals(0, locator.getEventListeners(OtherEvent.class).size());
+		assertEquals(5, delegate.lookups);
+	}
+
+	/**
+	 * Tests that invalidating the cache discards all results
+	 */
+	@Test
+	public void testInvalidate() {
+		locator.getEventListeners(BaseEvent.class);
+		locator.getEventListeners(OtherEvent.class);
+
+		locator.invalidate();
+
+		locator.getEventListeners(BaseEvent.class);
+		locator.getEventListeners(OtherEvent.class);
+		assertEquals(4, delegate.lookups);
+	}
+
+	/**
+	 * Tests that cached results cannot be modified by callers
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testUnmodifiable() {
+		delegate.listeners.add(new NoopListener());
+
+		locator.getEventListeners(BaseEvent.class).add(new NoopListener());
+	}
+
+	private static class CountingLocator implements EventListenerLocator {
+		private final List<EventListener> listeners = new ArrayList<EventListener>();
+
+		private int lookups = 0;
+
+		@Override
+		public List<EventListener> getEventListeners(
+				Class<? extends Event<?>> eventClass) {
+			lookups++;
+			if (eventClass == OtherEvent.class) {
+				return new ArrayList<EventListener>();
+			}
+			return new ArrayList<EventListener>(listeners);
+		}
+	}
+
+	private static class NoopListener implements EventListener {
+		@Override
+		public void dispatchEvent(EventContext<?> context)
+				throws EventException {
+			// Does nothing
+		}
+	}
+
+	private static class BaseEvent implements Event<Object> {
+		@Override
+		public Object getSource() {
+			return null;
+		}
+	}
+
+	private static class SubEvent extends BaseEvent {
+	}
+
+	private static class OtherEvent implements Event<Object> {
+		@Override
+		public Object getSource() {
+			return null;
+		}
+	}
+}
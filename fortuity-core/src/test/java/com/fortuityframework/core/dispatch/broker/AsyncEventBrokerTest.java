@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.ErrorPolicy;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the asynchronous event broker
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class AsyncEventBrokerTest {
+	private ExecutorService executor;
+
+	private AsyncEventBroker broker;
+
+	/**
+	 * Creates the broker under test
+	 */
+	@Before
+	public void createBroker() {
+		executor = Executors.newSingleThreadExecutor();
+		broker = new AsyncEventBroker(executor);
+	}
+
+	/**
+	 * Stops the executor
+	 */
+	@After
+	public void stopExecutor() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Tests that events are processed on the executor, in order
+	 *
+	 * @throws Exception
+	 *             If the dispatch fails
+	 */
+	@Test
+	public void testAsyncOrdering() throws Exception {
+		RecordingLocator locator = new RecordingLocator();
+		broker.setEventListenerLocator(locator);
+
+		Future<Void> result = broker.dispatchEventAsync(new OrderedTestEvent(
+				"a", 0, new OrderedTestEvent("b", 0, new OrderedTestEvent("d",
+						0)), new OrderedTestEvent("c", 0)));
+
+		result.get(5, TimeUnit.SECONDS);
+
+		assertTrue(result.isDone());
+		assertEquals(Arrays.asList("a", "b", "c", "d"), locator.getProcessed());
+	}
+
+	/**
+	 * Tests that failures are reported through the future when the error
+	 * policy is THROW
+	 *
+	 * @throws Exception
+	 *             If the dispatch fails in an unexpected way
+	 */
+	@Test
+	public void testThrowPolicy() throws Exception {
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new FailingListener()));
+
+		Future<Void> result = broker.dispatchEventAsync(new OrderedTestEvent(
+				"a", 0));
+
+		try {
+			result.get(5, TimeUnit.SECONDS);
+			fail("Expected failure");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof EventException);
+		}
+	}
+
+	/**
+	 * Tests that other error policies complete the future normally
+	 *
+	 * @throws Exception
+	 *             If the dispatch fails
+	 */
+	@Test
+	public void testIgnorePolicy() throws Exception {
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new FailingListener()));
+		broker.setEventErrorPolicy(ErrorPolicy.IGNORE_EVENT);
+
+		List<Event<?>> events = Arrays.<Event<?>> asList(new OrderedTestEvent(
+				"a", 0), new OrderedTestEvent("b", 0));
+
+		assertNull(broker.dispatchEventsAsync(events).get(5, TimeUnit.SECONDS));
+	}
+
+	private static class FailingListener implements EventListener {
+		@Override
+		public void dispatchEvent(EventContext<?> context)
+				throws EventException {
+			throw new EventException("Listener failed");
+		}
+	}
+}
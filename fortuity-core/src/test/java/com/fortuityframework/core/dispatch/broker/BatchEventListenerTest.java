@@ -0,0 +1,202 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.BatchEventListener;
+import com.fortuityframework.core.dispatch.ErrorPolicy;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the delivery of events to batch listeners
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class BatchEventListenerTest {
+	private final List<String> received = new ArrayList<String>();
+
+	/**
+	 * Tests that consecutive events of the same type are delivered in chunks
+	 * of at most the maximum batch size. A single remaining event is
+	 * delivered on its own
+	 */
+	@Test
+	public void testBatches() {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new RecordingBatchListener(2, false)));
+
+		broker.dispatchEvents(events("a", "b", "c", "d", "e"));
+
+		assertEquals(Arrays.asList("[a, b]", "[c, d]", "e"), received);
+	}
+
+	/**
+	 * Tests that single events, and events of a different type, are not
+	 * batched
+	 */
+	@Test
+	public void testSingleEvents() {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new RecordingBatchListener(10, false)));
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0));
+
+		List<Event<?>> mixed = events("b", "c");
+		mixed.add(new OtherEvent("x"));
+		mixed.addAll(events("d"));
+		broker.dispatchEvents(mixed);
+
+		assertEquals(Arrays.asList("a", "[b, c]", "x", "d"), received);
+	}
+
+	/**
+	 * Tests that regular listeners of a batched event still receive every
+	 * event, after the batch listener has received the entire batch
+	 */
+	@Test
+	public void testMixedListeners() {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(locator(new RecordingBatchListener(10,
+				false), new RecordingListener()));
+
+		broker.dispatchEvents(events("a", "b"));
+
+		assertEquals(Arrays.asList("[a, b]", "a", "b"), received);
+	}
+
+	/**
+	 * Tests that an error policy of IGNORE_EVENT skips the events of the
+	 * failed chunk for the remaining listeners
+	 */
+	@Test
+	public void testIgnoreEvent() {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventErrorPolicy(ErrorPolicy.IGNORE_EVENT);
+		broker.setEventListenerLocator(locator(new RecordingBatchListener(2,
+				true), new RecordingListener()));
+
+		broker.dispatchEvents(events("a", "b", "c", "d"));
+
+		assertEquals(Arrays.asList("[a, b]", "[c, d]", "c", "d"), received);
+	}
+
+	/**
+	 * Tests that errors in batch listeners are thrown by default
+	 */
+	@Test(expected = EventException.class)
+	public void testThrow() {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new RecordingBatchListener(2, true)));
+
+		broker.dispatchEvents(events("a", "b"));
+	}
+
+	private static List<Event<?>> events(String... names) {
+		List<Event<?>> events = new ArrayList<Event<?>>();
+		for (String name : names) {
+			events.add(new OrderedTestEvent(name, 0));
+		}
+		return events;
+	}
+
+	private static EventListenerLocator locator(
+			final EventListener... listeners) {
+		return new EventListenerLocator() {
+			@Override
+			public List<EventListener> getEventListeners(
+					Class<? extends Event<?>> eventClass) {
+				return Arrays.asList(listeners);
+			}
+		};
+	}
+
+	/**
+	 * Listener that records the events it receives
+	 */
+	private class RecordingListener implements EventListener {
+		@Override
+		public void dispatchEvent(EventContext<?> context)
+				throws EventException {
+			received.add(String.valueOf(context.getEvent().getSource()));
+		}
+	}
+
+	/**
+	 * Batch listener that records the batches it receives, and optionally
+	 * fails on the first batch
+	 */
+	private class RecordingBatchListener extends RecordingListener implements
+			BatchEventListener {
+		private final int maxBatchSize;
+
+		private boolean failFirst;
+
+		RecordingBatchListener(int maxBatchSize, boolean failFirst) {
+			this.maxBatchSize = maxBatchSize;
+			this.failFirst = failFirst;
+		}
+
+		@Override
+		public int getMaxBatchSize() {
+			return maxBatchSize;
+		}
+
+		@Override
+		public void dispatchEvents(List<EventContext<?>> contexts)
+				throws EventException {
+			List<Object> sources = new ArrayList<Object>();
+			for (EventContext<?> context : contexts) {
+				sources.add(context.getEvent().getSource());
+			}
+			received.add(sources.toString());
+
+			if (failFirst) {
+				failFirst = false;
+				throw new EventException("First batch fails");
+			}
+		}
+	}
+
+	/**
+	 * Event of a different type
+	 */
+	private static class OtherEvent implements Event<String> {
+		private final String name;
+
+		OtherEvent(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getSource() {
+			return name;
+		}
+	}
+}
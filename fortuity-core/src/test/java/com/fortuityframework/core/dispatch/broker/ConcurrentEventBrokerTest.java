@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.EventOrdering;
+import com.fortuityframework.core.dispatch.monitor.StatisticsDispatchMonitor;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the concurrent event broker
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class ConcurrentEventBrokerTest {
+	/**
+	 * Tests that the ordering within a single dispatch matches the configured
+	 * ordering
+	 */
+	@Test
+	public void testOrdering() {
+		RecordingLocator locator = new RecordingLocator();
+
+		ConcurrentEventBroker broker = new ConcurrentEventBroker();
+		broker.setOrdering(EventOrdering.LIFO);
+		broker.setEventListenerLocator(locator);
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0, new OrderedTestEvent(
+				"b", 0, new OrderedTestEvent("d", 0)), new OrderedTestEvent("c",
+				0, new OrderedTestEvent("e", 0))));
+
+		assertEquals(Arrays.asList("a", "c", "e", "b", "d"),
+				locator.getProcessed());
+	}
+
+	/**
+	 * Tests that two threads can dispatch at the same time. The listener of
+	 * the first dispatch waits for the listener of the second dispatch, which
+	 * would deadlock if dispatches were serialized
+	 *
+	 * @throws InterruptedException
+	 *             If the test is interrupted
+	 */
+	@Test(timeout = 10000)
+	public void testParallelDispatch() throws InterruptedException {
+		final CountDownLatch secondStarted = new CountDownLatch(1);
+
+		ConcurrentEventBroker broker = new ConcurrentEventBroker();
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new EventListener() {
+					@Override
+					public void dispatchEvent(EventContext<?> context)
+							throws EventException {
+						OrderedTestEvent event = (OrderedTestEvent) context
+								.getEvent();
+						if ("first".equals(event.getSource())) {
+							try {
+								assertTrue(secondStarted.await(5,
+										TimeUnit.SECONDS));
+							} catch (InterruptedException e) {
+								throw new EventException(e);
+							}
+						} else {
+							secondStarted.countDown();
+						}
+					}
+				}));
+
+		Thread first = dispatchInThread(broker, new OrderedTestEvent("first",
+				0));
+		Thread second = dispatchInThread(broker, new OrderedTestEvent(
+				"second", 0));
+
+		first.join();
+		second.join();
+
+		assertEquals(0, secondStarted.getCount());
+	}
+
+	/**
+	 * Tests that events triggered from another thread while the dispatch is
+	 * running are processed as part of that dispatch
+	 */
+	@Test(timeout = 10000)
+	public void testTriggerFromOtherThread() {
+		final AtomicInteger processed = new AtomicInteger();
+
+		ConcurrentEventBroker broker = new ConcurrentEventBroker();
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new EventListener() {
+					@Override
+					public void dispatchEvent(final EventContext<?> context)
+							throws EventException {
+						OrderedTestEvent event = (OrderedTestEvent) context
+								.getEvent();
+						processed.incrementAndGet();
+
+						if ("root".equals(event.getSource())) {
+							Thread helper = new Thread() {
+								@Override
+								public void run() {
+									context.triggerEvent(new OrderedTestEvent(
+											"child", 0));
+								}
+							};
+							helper.start();
+							try {
+								helper.join();
+							} catch (InterruptedException e) {
+								throw new EventException(e);
+							}
+						}
+					}
+				}));
+
+		broker.dispatchEvent(new OrderedTestEvent("root", 0));
+
+		assertEquals(2, processed.get());
+	}
+
+	/**
+	 * Tests that events triggered after their dispatch has finished start a
+	 * new dispatch, and are reported to the dispatch monitor only once
+	 */
+	@Test(timeout = 10000)
+	public void testTriggerAfterDispatch() {
+		final AtomicInteger processed = new AtomicInteger();
+		final AtomicReference<EventContext<?>> rootContext = new AtomicReference<EventContext<?>>();
+
+		ConcurrentEventBroker broker = new ConcurrentEventBroker();
+		StatisticsDispatchMonitor monitor = new StatisticsDispatchMonitor();
+		broker.setDispatchMonitor(monitor);
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new EventListener() {
+					@Override
+					public void dispatchEvent(EventContext<?> context)
+							throws EventException {
+						processed.incrementAndGet();
+						rootContext.compareAndSet(null, context);
+					}
+				}));
+
+		broker.dispatchEvent(new OrderedTestEvent("root", 0));
+		rootContext.get().triggerEvent(new OrderedTestEvent("late", 0));
+
+		assertEquals(2, processed.get());
+		assertEquals(2, monitor.getQueuedCount());
+		assertEquals(2, monitor.getProcessedCount());
+	}
+
+	private Thread dispatchInThread(final ConcurrentEventBroker broker,
+			final Event<?> event) {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				broker.dispatchEvent(event);
+			}
+		};
+		thread.start();
+		return thread;
+	}
+}
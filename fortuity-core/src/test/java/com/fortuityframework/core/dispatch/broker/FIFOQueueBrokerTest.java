@@ -15,8 +15,14 @@
  */
 package com.fortuityframework.core.dispatch.broker;
 
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
 import org.junit.Test;
 
+import com.fortuityframework.core.event.Event;
+
 /**
  * @author Jeroen Steenbeeke
  * 
@@ -27,6 +33,38 @@ public class FIFOQueueBrokerTest {
 	 */
 	@Test
 	public void testOrdering() {
-		// TODO
+		RecordingLocator locator = new RecordingLocator();
+
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(locator);
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0, new OrderedTestEvent(
+				"b", 0, new OrderedTestEvent("d", 0)), new OrderedTestEvent("c",
+				0, new OrderedTestEvent("e", 0))));
+
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e"),
+				locator.getProcessed());
+	}
+
+	/**
+	 * Tests that the legacy list view of the queue still supports positional
+	 * access
+	 */
+	@Test
+	public void testQueueView() {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker() {
+			@Override
+			protected void enqueueEvent(Event<?> event) {
+				getQueue().add(getQueue().size() / 2, event);
+			}
+		};
+		RecordingLocator locator = new RecordingLocator();
+		broker.setEventListenerLocator(locator);
+
+		broker.dispatchEvents(Arrays.<Event<?>> asList(new OrderedTestEvent(
+				"a", 0), new OrderedTestEvent("b", 0), new OrderedTestEvent("c",
+				0)));
+
+		assertEquals(Arrays.asList("b", "c", "a"), locator.getProcessed());
 	}
 }
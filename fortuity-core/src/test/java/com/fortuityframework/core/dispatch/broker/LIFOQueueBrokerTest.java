@@ -15,6 +15,10 @@
  */
 package com.fortuityframework.core.dispatch.broker;
 
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
 import org.junit.Test;
 
 /**
@@ -27,6 +31,16 @@ public class LIFOQueueBrokerTest {
 	 */
 	@Test
 	public void testOrdering() {
-		// TODO
+		RecordingLocator locator = new RecordingLocator();
+
+		LIFOQueueEventBroker broker = new LIFOQueueEventBroker();
+		broker.setEventListenerLocator(locator);
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0, new OrderedTestEvent(
+				"b", 0, new OrderedTestEvent("d", 0)), new OrderedTestEvent("c",
+				0, new OrderedTestEvent("e", 0))));
+
+		assertEquals(Arrays.asList("a", "c", "e", "b", "d"),
+				locator.getProcessed());
 	}
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.fortuityframework.core.event.PrioritizedEvent;
+
+/**
+ * Event used for testing the ordering of brokers. Each event has a name, a
+ * priority and a number of child events it triggers when processed
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class OrderedTestEvent implements PrioritizedEvent<String> {
+	private final String name;
+
+	private final int priority;
+
+	private final List<OrderedTestEvent> children;
+
+	/**
+	 * Creates a new test event
+	 *
+	 * @param name
+	 *            The name of the event
+	 * @param priority
+	 *            The priority of the event
+	 * @param children
+	 *            The events to trigger when this event is processed
+	 */
+	public OrderedTestEvent(String name, int priority,
+			OrderedTestEvent... children) {
+		this.name = name;
+		this.priority = priority;
+		this.children = Arrays.asList(children);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.event.Event#getSource()
+	 */
+	@Override
+	public String getSource() {
+		return name;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.event.PrioritizedEvent#getPriority()
+	 */
+	@Override
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return The events to trigger when this event is processed
+	 */
+	public List<OrderedTestEvent> getChildren() {
+		return children;
+	}
+}
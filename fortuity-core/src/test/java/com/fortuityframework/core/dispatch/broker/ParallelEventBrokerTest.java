@@ -0,0 +1,271 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.ErrorPolicy;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.EventOrdering;
+import com.fortuityframework.core.dispatch.monitor.StatisticsDispatchMonitor;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the parallel event broker
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class ParallelEventBrokerTest {
+	private ExecutorService executor;
+
+	/**
+	 * Creates the executor to process events on
+	 */
+	@Before
+	public void createExecutor() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	/**
+	 * Stops the executor
+	 */
+	@After
+	public void stopExecutor() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Tests that waves are started in the configured order. With a concurrency
+	 * of 1, this makes the processing order deterministic
+	 */
+	@Test(timeout = 10000)
+	public void testWaveOrdering() {
+		RecordingLocator locator = new RecordingLocator();
+
+		ParallelEventBroker broker = new ParallelEventBroker(executor, 1);
+		broker.setOrdering(EventOrdering.LIFO);
+		broker.setEventListenerLocator(locator);
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0, new OrderedTestEvent(
+				"b", 0, new OrderedTestEvent("d", 0)), new OrderedTestEvent("c",
+				0, new OrderedTestEvent("e", 0))));
+
+		assertEquals(Arrays.asList("a", "c", "b", "d", "e"),
+				locator.getProcessed());
+	}
+
+	/**
+	 * Tests that higher priority events are processed before lower priority
+	 * events are started
+	 */
+	@Test(timeout = 10000)
+	public void testPriorityWaves() {
+		RecordingLocator locator = new RecordingLocator();
+
+		ParallelEventBroker broker = new ParallelEventBroker(executor);
+		broker.setOrdering(EventOrdering.PRIORITY);
+		broker.setEventListenerLocator(locator);
+
+		List<Event<?>> events = Arrays.<Event<?>> asList(new OrderedTestEvent(
+				"low", 1), new OrderedTestEvent("high", 5));
+		broker.dispatchEvents(events);
+
+		assertEquals(Arrays.asList("high", "low"), locator.getProcessed());
+	}
+
+	/**
+	 * Tests that events in the same wave are processed at the same time. Both
+	 * listeners wait for each other, which would deadlock if the events were
+	 * processed one after the other
+	 */
+	@Test(timeout = 10000)
+	public void testParallelProcessing() {
+		final CountDownLatch started = new CountDownLatch(2);
+
+		ParallelEventBroker broker = new ParallelEventBroker(executor);
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new EventListener() {
+					@Override
+					public void dispatchEvent(EventContext<?> context)
+							throws EventException {
+						started.countDown();
+						try {
+							assertTrue(started.await(5, TimeUnit.SECONDS));
+						} catch (InterruptedException e) {
+							throw new EventException(e);
+						}
+					}
+				}));
+
+		List<Event<?>> events = Arrays.<Event<?>> asList(new OrderedTestEvent(
+				"a", 0), new OrderedTestEvent("b", 0));
+		broker.dispatchEvents(events);
+
+		assertEquals(0, started.getCount());
+	}
+
+	/**
+	 * Tests that no more events are processed at the same time than the
+	 * configured maximum
+	 */
+	@Test(timeout = 10000)
+	public void testConcurrencyLimit() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		ParallelEventBroker broker = new ParallelEventBroker(executor, 2);
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new EventListener() {
+					@Override
+					public void dispatchEvent(EventContext<?> context)
+							throws EventException {
+						int current = running.incrementAndGet();
+						int max;
+						while ((max = maxRunning.get()) < current
+								&& !maxRunning.compareAndSet(max, current)) {
+							// Retry
+						}
+						try {
+							Thread.sleep(20);
+						} catch (InterruptedException e) {
+							throw new EventException(e);
+						}
+						running.decrementAndGet();
+					}
+				}));
+
+		List<Event<?>> events = Arrays.<Event<?>> asList(new OrderedTestEvent(
+				"a", 0), new OrderedTestEvent("b", 0), new OrderedTestEvent(
+				"c", 0), new OrderedTestEvent("d", 0), new OrderedTestEvent(
+				"e", 0), new OrderedTestEvent("f", 0));
+		broker.dispatchEvents(events);
+
+		assertTrue(maxRunning.get() <= 2);
+	}
+
+	/**
+	 * Tests that listener failures are thrown to the dispatching thread when
+	 * the error policy is THROW, and ignored otherwise
+	 */
+	@Test(timeout = 10000)
+	public void testErrorPolicy() {
+		ParallelEventBroker broker = new ParallelEventBroker(executor);
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new EventListener() {
+					@Override
+					public void dispatchEvent(EventContext<?> context)
+							throws EventException {
+						throw new EventException("Listener failed");
+					}
+				}));
+
+		try {
+			broker.dispatchEvent(new OrderedTestEvent("a", 0));
+			fail("Expected failure");
+		} catch (EventException e) {
+			assertEquals("Listener failed", e.getMessage());
+		}
+
+		broker.setEventErrorPolicy(ErrorPolicy.IGNORE_EVENT);
+		broker.dispatchEvent(new OrderedTestEvent("b", 0));
+	}
+
+	/**
+	 * Tests that events triggered after their wave has finished start a new
+	 * dispatch, and are reported to the dispatch monitor only once
+	 */
+	@Test(timeout = 10000)
+	public void testTriggerAfterDispatch() {
+		final AtomicInteger processed = new AtomicInteger();
+		final AtomicReference<EventContext<?>> rootContext = new AtomicReference<EventContext<?>>();
+
+		ParallelEventBroker broker = new ParallelEventBroker(executor);
+		StatisticsDispatchMonitor monitor = new StatisticsDispatchMonitor();
+		broker.setDispatchMonitor(monitor);
+		broker.setEventListenerLocator(new SingleListenerLocator(
+				new EventListener() {
+					@Override
+					public void dispatchEvent(EventContext<?> context)
+							throws EventException {
+						processed.incrementAndGet();
+						rootContext.compareAndSet(null, context);
+					}
+				}));
+
+		broker.dispatchEvent(new OrderedTestEvent("root", 0));
+		rootContext.get().triggerEvent(new OrderedTestEvent("late", 0));
+
+		assertEquals(2, processed.get());
+		assertEquals(2, monitor.getQueuedCount());
+		assertEquals(2, monitor.getProcessedCount());
+	}
+
+	/**
+	 * Tests that events the executor does not accept are kept, and processed
+	 * by the next dispatch
+	 */
+	@Test(timeout = 10000)
+	public void testRejectedEvents() {
+		final AtomicBoolean accepting = new AtomicBoolean(false);
+		RecordingLocator locator = new RecordingLocator();
+
+		ParallelEventBroker broker = new ParallelEventBroker(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				if (!accepting.get()) {
+					throw new RejectedExecutionException("Not accepting");
+				}
+				executor.execute(command);
+			}
+		}, 1);
+		broker.setEventListenerLocator(locator);
+
+		List<Event<?>> events = Arrays.<Event<?>> asList(new OrderedTestEvent(
+				"a", 0), new OrderedTestEvent("b", 0), new OrderedTestEvent(
+				"c", 0));
+		try {
+			broker.dispatchEvents(events);
+			fail("Expected failure");
+		} catch (EventException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+
+		assertTrue(locator.getProcessed().isEmpty());
+
+		accepting.set(true);
+		broker.dispatchEvent(new OrderedTestEvent("d", 0));
+
+		assertEquals(Arrays.asList("a", "b", "c", "d"), locator.getProcessed());
+	}
+}
@@ -15,6 +15,10 @@
  */
 package com.fortuityframework.core.dispatch.broker;
 
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
 import org.junit.Test;
 
 /**
@@ -27,6 +31,16 @@ public class PriorityQueueBrokerTest {
 	 */
 	@Test
 	public void testQueueingOrder() {
-		// TODO
+		RecordingLocator locator = new RecordingLocator();
+
+		PriorityQueueEventBroker broker = new PriorityQueueEventBroker();
+		broker.setEventListenerLocator(locator);
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0, new OrderedTestEvent(
+				"b", 1), new OrderedTestEvent("c", 5, new OrderedTestEvent("f",
+				1)), new OrderedTestEvent("d", 1), new OrderedTestEvent("e", 5)));
+
+		assertEquals(Arrays.asList("a", "c", "e", "b", "d", "f"),
+				locator.getProcessed());
 	}
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Locator that records the names of processed {@link OrderedTestEvent}s, and
+ * triggers their child events
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class RecordingLocator implements EventListenerLocator {
+	private final List<String> processed = Collections
+			.synchronizedList(new ArrayList<String>());
+
+	private final List<EventListener> listeners;
+
+	/**
+	 * Creates a new recording locator
+	 */
+	public RecordingLocator() {
+		EventListener listener = new EventListener() {
+			@Override
+			public void dispatchEvent(EventContext<?> context)
+					throws EventException {
+				OrderedTestEvent event = (OrderedTestEvent) context.getEvent();
+
+				processed.add(event.getSource());
+
+				for (OrderedTestEvent child : event.getChildren()) {
+					context.triggerEvent(child);
+				}
+			}
+		};
+
+		listeners = Collections.singletonList(listener);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventListenerLocator#getEventListeners(java.lang.Class)
+	 */
+	@Override
+	public List<EventListener> getEventListeners(
+			Class<? extends Event<?>> eventClass) {
+		if (OrderedTestEvent.class.isAssignableFrom(eventClass)) {
+			return listeners;
+		}
+
+		return Collections.emptyList();
+	}
+
+	/**
+	 * @return The names of the processed events, in order of processing
+	 */
+	public List<String> getProcessed() {
+		return processed;
+	}
+}
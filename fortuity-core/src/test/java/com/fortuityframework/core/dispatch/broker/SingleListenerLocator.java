@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.broker;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Locator that returns the same listener for every event
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class SingleListenerLocator implements EventListenerLocator {
+	private final List<EventListener> listeners;
+
+	/**
+	 * Creates a new locator for the given listener
+	 *
+	 * @param listener
+	 *            The listener to return for every event
+	 */
+	public SingleListenerLocator(EventListener listener) {
+		this.listeners = Collections.singletonList(listener);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventListenerLocator#getEventListeners(java.lang.Class)
+	 */
+	@Override
+	public List<EventListener> getEventListeners(
+			Class<? extends Event<?>> eventClass) {
+		return listeners;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.monitor;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.ErrorPolicy;
+import com.fortuityframework.core.dispatch.EventBroker;
+import com.fortuityframework.core.dispatch.broker.FIFOQueueEventBroker;
+import com.fortuityframework.core.dispatch.broker.OrderedTestEvent;
+import com.fortuityframework.core.dispatch.broker.RecordingLocator;
+
+/**
+ * Tests the JMX interface of EventBrokerMonitor
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class EventBrokerMonitorTest {
+	private final MBeanServer server = ManagementFactory
+			.getPlatformMBeanServer();
+
+	private FIFOQueueEventBroker broker;
+
+	private EventBrokerMonitor monitor;
+
+	/**
+	 * Creates and registers a monitored broker
+	 */
+	@Before
+	public void register() {
+		broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(new RecordingLocator());
+
+		monitor = new EventBrokerMonitor(broker, "test");
+		monitor.register();
+	}
+
+	/**
+	 * Unregisters the monitor
+	 */
+	@After
+	public void unregister() {
+		monitor.unregister();
+	}
+
+	/**
+	 * Tests that statistics can be read through the MBean server
+	 *
+	 * @throws Exception
+	 *             If the MBean cannot be accessed
+	 */
+	@Test
+	public void testStatistics() throws Exception {
+		ObjectName name = monitor.getObjectName();
+		assertTrue(server.isRegistered(name));
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0, new OrderedTestEvent(
+				"b", 0)));
+
+		assertEquals(2L, server.getAttribute(name, "ProcessedCount"));
+		assertEquals(2L, server.getAttribute(name, "QueuedCount"));
+		assertEquals(0L, server.getAttribute(name, "ErrorCount"));
+		assertEquals(1, ((String[]) server.getAttribute(name,
+				"SlowestListeners")).length);
+		String[] events = (String[]) server.getAttribute(name,
+				"EventStatistics");
+		assertEquals(1, events.length);
+		assertTrue(events[0].startsWith(OrderedTestEvent.class.getName()));
+
+		server.invoke(name, "resetStatistics", new Object[0], new String[0]);
+
+		assertEquals(0L, server.getAttribute(name, "ProcessedCount"));
+	}
+
+	/**
+	 * Tests that monitoring and error policies can be changed at runtime
+	 *
+	 * @throws Exception
+	 *             If the MBean cannot be accessed
+	 */
+	@Test
+	public void testControls() throws Exception {
+		ObjectName name = monitor.getObjectName();
+
+		server.setAttribute(name, new Attribute("EventErrorPolicy", "STOP"));
+		assertEquals(ErrorPolicy.STOP, broker.getEventErrorPolicy());
+		assertEquals("THROW",
+				server.getAttribute(name, "RuntimeExceptionPolicy"));
+
+		server.setAttribute(name, new Attribute("DetailedTiming", false));
+		broker.dispatchEvent(new OrderedTestEvent("a", 0));
+		assertEquals(0, ((String[]) server.getAttribute(name,
+				"SlowestListeners")).length);
+		assertEquals(1L, server.getAttribute(name, "ProcessedCount"));
+
+		server.setAttribute(name, new Attribute("Enabled", false));
+		broker.dispatchEvent(new OrderedTestEvent("b", 0));
+		assertEquals(1L, server.getAttribute(name, "ProcessedCount"));
+	}
+
+	/**
+	 * Tests that a monitor already installed on the broker is neither
+	 * replaced nor removed
+	 */
+	@Test
+	public void testExistingMonitor() {
+		EventBroker other = new FIFOQueueEventBroker();
+		StatisticsDispatchMonitor existing = new StatisticsDispatchMonitor();
+		other.setDispatchMonitor(existing);
+
+		EventBrokerMonitor second = new EventBrokerMonitor(other, "other");
+		assertFalse(second.isEnabled());
+		assertSame(existing, other.getDispatchMonitor());
+
+		second.setEnabled(true);
+		assertSame(existing, other.getDispatchMonitor());
+
+		second.setEnabled(false);
+		assertSame(existing, other.getDispatchMonitor());
+
+		other.setDispatchMonitor(null);
+		second.setEnabled(true);
+		assertTrue(second.isEnabled());
+		assertSame(second.getStatistics(), other.getDispatchMonitor());
+	}
+}
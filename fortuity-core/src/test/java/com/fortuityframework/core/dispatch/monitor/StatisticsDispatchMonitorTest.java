@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.monitor;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.ErrorPolicy;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.broker.FIFOQueueEventBroker;
+import com.fortuityframework.core.dispatch.broker.OrderedTestEvent;
+import com.fortuityframework.core.dispatch.broker.RecordingLocator;
+import com.fortuityframework.core.dispatch.broker.SingleListenerLocator;
+
+/**
+ * Tests the statistics gathered by StatisticsDispatchMonitor
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class StatisticsDispatchMonitorTest {
+	/**
+	 * Tests that dispatched and triggered events are counted per event class
+	 * and per listener
+	 */
+	@Test
+	public void testCounts() {
+		StatisticsDispatchMonitor monitor = new StatisticsDispatchMonitor();
+		RecordingLocator locator = new RecordingLocator();
+
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(locator);
+		broker.setDispatchMonitor(monitor);
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0, new OrderedTestEvent(
+				"b", 0), new OrderedTestEvent("c", 0)));
+
+		assertEquals(3, monitor.getQueuedCount());
+		assertEquals(1, monitor.getMaxQueueDepth());
+		assertEquals(0, monitor.getQueueDepth());
+
+		DispatchStatistics events = monitor
+				.getEventStatistics(OrderedTestEvent.class);
+		assertEquals(3, events.getCount());
+		assertEquals(0, events.getErrorCount());
+
+		assertEquals(1, monitor.getListenerStatistics().size());
+		DispatchStatistics listener = monitor.getListenerStatistics().values()
+				.iterator().next();
+		assertEquals(3, listener.getCount());
+		assertTrue(listener.getMaxNanos() <= events.getTotalNanos());
+
+		monitor.reset();
+		assertNull(monitor.getEventStatistics(OrderedTestEvent.class));
+		assertEquals(0, monitor.getQueuedCount());
+	}
+
+	/**
+	 * Tests that failing listeners are counted as errors
+	 */
+	@Test
+	public void testErrors() {
+		StatisticsDispatchMonitor monitor = new StatisticsDispatchMonitor();
+		EventListener failing = new EventListener() {
+			@Override
+			public void dispatchEvent(EventContext<?> context)
+					throws EventException {
+				throw new EventException("Failure");
+			}
+		};
+
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setEventListenerLocator(new SingleListenerLocator(failing));
+		broker.setEventErrorPolicy(ErrorPolicy.IGNORE_LISTENER);
+		broker.setDispatchMonitor(monitor);
+
+		broker.dispatchEvent(new OrderedTestEvent("a", 0));
+		broker.dispatchEvent(new OrderedTestEvent("b", 0));
+
+		assertEquals(2, monitor.getListenerStatistics(failing).getErrorCount());
+		assertEquals(2, monitor.getEventStatistics(OrderedTestEvent.class)
+				.getErrorCount());
+	}
+
+	/**
+	 * Tests the estimation of percentiles from the latency histogram
+	 */
+	@Test
+	public void testPercentiles() {
+		long[] buckets = new long[64];
+		// 90 durations between 8 and 15, 10 between 1024 and 2047
+		buckets[4] = 90;
+		buckets[11] = 10;
+
+		DispatchStatistics statistics = new DispatchStatistics(100, 0,
+				90 * 10 + 10 * 1500, 1500, buckets);
+
+		assertEquals(15, statistics.getPercentileNanos(50));
+		assertEquals(15, statistics.getPercentileNanos(90));
+		assertEquals(1500, statistics.getPercentileNanos(99));
+		assertEquals(159, statistics.getMeanNanos());
+		assertEquals(0, new DispatchStatistics(0, 0, 0, 0, new long[64])
+				.getPercentileNanos(99));
+	}
+}
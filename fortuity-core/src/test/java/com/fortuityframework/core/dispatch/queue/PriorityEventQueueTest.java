@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.queue;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.core.event.PrioritizedEvent;
+
+/**
+ * Tests if the heap-based priority queue returns events in the same order as
+ * a stable sort by priority
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class PriorityEventQueueTest {
+	private static class TestPriorityEvent implements PrioritizedEvent<Void> {
+		private final int priority;
+
+		TestPriorityEvent(int priority) {
+			this.priority = priority;
+		}
+
+		@Override
+		public int getPriority() {
+			return priority;
+		}
+
+		@Override
+		public Void getSource() {
+			return null;
+		}
+	}
+
+	private static class PlainEvent implements Event<Void> {
+		@Override
+		public Void getSource() {
+			return null;
+		}
+	}
+
+	private static final Comparator<Event<?>> BY_PRIORITY = new Comparator<Event<?>>() {
+		@Override
+		public int compare(Event<?> o1, Event<?> o2) {
+			int p1 = PriorityEventQueue.getPriority(o1);
+			int p2 = PriorityEventQueue.getPriority(o2);
+
+			return p1 > p2 ? -1 : (p1 == p2 ? 0 : 1);
+		}
+	};
+
+	/**
+	 * Tests that events with equal priority keep their insertion order, and
+	 * that events without priority come last
+	 */
+	@Test
+	public void testStableOrdering() {
+		Random random = new Random(7);
+		PriorityEventQueue queue = new PriorityEventQueue(1);
+		List<Event<?>> reference = new ArrayList<Event<?>>();
+
+		for (int i = 0; i < 5000; i++) {
+			Event<?> event = random.nextInt(10) == 0 ? new PlainEvent()
+					: new TestPriorityEvent(random.nextInt(8));
+			queue.offer(event);
+			reference.add(event);
+		}
+
+		Collections.sort(reference, BY_PRIORITY);
+
+		assertEquals(reference.size(), queue.size());
+		for (Event<?> expected : reference) {
+			assertSame(expected, queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+
+	/**
+	 * Tests interleaved insertion and removal, as happens when listeners
+	 * trigger new events while the queue is being processed
+	 */
+	@Test
+	public void testInterleaved() {
+		Random random = new Random(11);
+		PriorityEventQueue queue = new PriorityEventQueue();
+		List<Event<?>> reference = new ArrayList<Event<?>>();
+
+		for (int round = 0; round < 500; round++) {
+			for (int i = random.nextInt(5); i >= 0; i--) {
+				Event<?> event = new TestPriorityEvent(random.nextInt(4));
+				queue.offer(event);
+				reference.add(event);
+			}
+
+			Collections.sort(reference, BY_PRIORITY);
+
+			for (int i = random.nextInt(4); i >= 0 && !reference.isEmpty(); i--) {
+				assertSame(reference.remove(0), queue.poll());
+			}
+		}
+
+		queue.clear();
+		assertTrue(queue.isEmpty());
+	}
+}
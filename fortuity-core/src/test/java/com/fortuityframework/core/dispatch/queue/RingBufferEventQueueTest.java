@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.core.dispatch.queue;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the ring buffer event queues against the behavior of a LinkedList
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class RingBufferEventQueueTest {
+	private static class NumberedEvent implements Event<Integer> {
+		private final int number;
+
+		NumberedEvent(int number) {
+			this.number = number;
+		}
+
+		@Override
+		public Integer getSource() {
+			return number;
+		}
+	}
+
+	/**
+	 * Tests the basic FIFO behavior, including growing beyond the initial
+	 * capacity while the buffer wraps around
+	 */
+	@Test
+	public void testFIFO() {
+		FIFOEventQueue queue = new FIFOEventQueue(4);
+
+		for (int i = 0; i < 3; i++) {
+			queue.offer(new NumberedEvent(i));
+		}
+		assertEquals(0, queue.poll().getSource());
+
+		for (int i = 3; i < 100; i++) {
+			queue.offer(new NumberedEvent(i));
+		}
+
+		assertEquals(99, queue.size());
+		for (int i = 1; i < 100; i++) {
+			assertEquals(i, queue.poll().getSource());
+		}
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+
+	/**
+	 * Tests the basic LIFO behavior
+	 */
+	@Test
+	public void testLIFO() {
+		LIFOEventQueue queue = new LIFOEventQueue(2);
+
+		for (int i = 0; i < 10; i++) {
+			queue.offer(new NumberedEvent(i));
+		}
+
+		assertEquals(9, queue.peek().getSource());
+		for (int i = 9; i >= 0; i--) {
+			assertEquals(i, queue.poll().getSource());
+		}
+		assertNull(queue.peek());
+	}
+
+	/**
+	 * Tests positional insertion and removal against a LinkedList
+	 */
+	@Test
+	public void testPositionalAccess() {
+		Random random = new Random(42);
+		FIFOEventQueue queue = new FIFOEventQueue(2);
+		LinkedList<Event<?>> reference = new LinkedList<Event<?>>();
+
+		for (int i = 0; i < 2000; i++) {
+			int action = random.nextInt(3);
+			if (action < 2 || reference.isEmpty()) {
+				int index = random.nextInt(reference.size() + 1);
+				NumberedEvent event = new NumberedEvent(i);
+				queue.insert(index, event);
+				reference.add(index, event);
+			} else {
+				int index = random.nextInt(reference.size());
+				assertSame(reference.remove(index), queue.remove(index));
+			}
+
+			assertEquals(reference.size(), queue.size());
+		}
+
+		for (int i = 0; i < reference.size(); i++) {
+			assertSame(reference.get(i), queue.get(i));
+		}
+
+		queue.clear();
+		assertTrue(queue.isEmpty());
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+/**
+ * Determines when the {@link EventInterceptor} hands the events it creates
+ * to the event broker
+ * 
+ * @author Jeroen Steenbeeke
+ */
+public enum DispatchMode {
+	/**
+	 * Dispatch each event as soon as Hibernate notifies the interceptor. This
+	 * is the default, and the behavior of earlier versions of Fortuity
+	 */
+	IMMEDIATE,
+	/**
+	 * Collect the create, update, property change and delete events of the
+	 * current thread, and dispatch them together once Hibernate has finished
+	 * flushing. Events for changes that are never flushed, for instance
+	 * because the transaction is rolled back first, are discarded. Load events
+	 * are always dispatched immediately
+	 */
+	FLUSH,
+	/**
+	 * Collect the create, update, property change and delete events of a
+	 * Hibernate transaction, and dispatch them once the transaction has been
+	 * committed, optionally on a separate executor. The events of a
+	 * transaction that is rolled back are discarded. Events for changes made
+	 * outside a transaction started through Hibernate, as well as load events,
+	 * are dispatched immediately
+	 */
+	AFTER_COMMIT;
+}
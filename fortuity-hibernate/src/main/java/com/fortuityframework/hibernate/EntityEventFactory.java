@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Creates the events dispatched when an entity is created, loaded or
+ * deleted. Registering a factory for an event class with
+ * {@link EventInterceptor#registerEventFactory(Class, EntityEventFactory)}
+ * avoids looking up and invoking the event's constructor reflectively
+ * 
+ * @author Jeroen Steenbeeke
+ * 
+ * @param <E>
+ *            The type of event created
+ */
+public interface EntityEventFactory<E extends Event<?>> {
+	/**
+	 * Creates a new event for the given entity
+	 * 
+	 * @param entity
+	 *            The entity the event applies to
+	 * @return The new event
+	 * @throws EventException
+	 *             If the event cannot be created
+	 */
+	E createEvent(Object entity) throws EventException;
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+
+import com.fortuityframework.core.annotation.jpa.FortuityEntity;
+import com.fortuityframework.core.annotation.jpa.FortuityProperty;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.core.event.jpa.JPAEntityUpdateEvent;
+import com.fortuityframework.core.event.jpa.JPAPropertyChangeEvent;
+
+/**
+ * The Fortuity annotations of a single entity class, read once so the
+ * interceptor does not need reflection while flushing. Declared events are
+ * kept as the factories that create them
+ *
+ * @author Jeroen Steenbeeke
+ */
+final class EntityMetadata {
+	private final EntityEventFactory<?>[] createEvents;
+
+	private final EntityUpdateEventFactory<?>[] updateEvents;
+
+	private final EntityEventFactory<?>[] deleteEvents;
+
+	private final EntityEventFactory<?>[] loadEvents;
+
+	private final String[] propertyNames;
+
+	private final PropertyChangeEventFactory<?>[][] propertyEvents;
+
+	private volatile PropertyEvents lastPropertyEvents;
+
+	private static final EntityEventFactory<?>[] NO_FACTORIES = new EntityEventFactory<?>[0];
+
+	private static final EntityUpdateEventFactory<?>[] NO_UPDATE_FACTORIES = new EntityUpdateEventFactory<?>[0];
+
+	private EntityMetadata(EntityEventFactory<?>[] createEvents,
+			EntityUpdateEventFactory<?>[] updateEvents,
+			EntityEventFactory<?>[] deleteEvents,
+			EntityEventFactory<?>[] loadEvents, List<String> names,
+			List<PropertyChangeEventFactory<?>[]> events) {
+		this.createEvents = createEvents;
+		this.updateEvents = updateEvents;
+		this.deleteEvents = deleteEvents;
+		this.loadEvents = loadEvents;
+		this.propertyNames = names.toArray(new String[names.size()]);
+		this.propertyEvents = events
+				.toArray(new PropertyChangeEventFactory<?>[events.size()][]);
+	}
+
+	/**
+	 * Reads the metadata of the given entity class. The fields of the class
+	 * and of any entity or mapped superclass are scanned for
+	 * {@link FortuityProperty} annotations. The factories for all declared
+	 * events are resolved immediately
+	 *
+	 * @param entityClass
+	 *            The class to read the metadata of
+	 * @param factories
+	 *            The source of event factories
+	 * @return The metadata of the class
+	 * @throws EventException
+	 *             If one of the declared events cannot be created for the
+	 *             given class
+	 */
+	@SuppressWarnings("unchecked")
+	static EntityMetadata create(Class<?> entityClass, EventFactories factories)
+			throws EventException {
+		List<String> names = new ArrayList<String>();
+		List<PropertyChangeEventFactory<?>[]> events = new ArrayList<PropertyChangeEventFactory<?>[]>();
+
+		Class<?> next = entityClass;
+		while (next.isAnnotationPresent(Entity.class)
+				|| next.isAnnotationPresent(MappedSuperclass.class)) {
+			for (Field f : next.getDeclaredFields()) {
+				FortuityProperty property = f
+						.getAnnotation(FortuityProperty.class);
+				if (property != null && property.onChange().length > 0) {
+					Class<? extends JPAPropertyChangeEvent<?>>[] eventClasses = (Class<? extends JPAPropertyChangeEvent<?>>[]) property
+							.onChange();
+					PropertyChangeEventFactory<?>[] propertyFactories = new PropertyChangeEventFactory<?>[eventClasses.length];
+					for (int i = 0; i < eventClasses.length; i++) {
+						propertyFactories[i] = factories
+								.getPropertyChangeEventFactory(
+										eventClasses[i], entityClass);
+					}
+
+					names.add(f.getName());
+					events.add(propertyFactories);
+				}
+			}
+
+			next = next.getSuperclass();
+		}
+
+		FortuityEntity entity = entityClass
+				.getAnnotation(FortuityEntity.class);
+		if (entity == null) {
+			return new EntityMetadata(NO_FACTORIES, NO_UPDATE_FACTORIES,
+					NO_FACTORIES, NO_FACTORIES, names, events);
+		}
+
+		Class<? extends JPAEntityUpdateEvent<?>>[] updateClasses = (Class<? extends JPAEntityUpdateEvent<?>>[]) entity
+				.onUpdate();
+		EntityUpdateEventFactory<?>[] updateEvents = new EntityUpdateEventFactory<?>[updateClasses.length];
+		for (int i = 0; i < updateClasses.length; i++) {
+			updateEvents[i] = factories.getUpdateEventFactory(updateClasses[i],
+					entityClass);
+		}
+
+		return new EntityMetadata(getFactories(entity.onCreate(),
+				entityClass, factories, "JPAEntityCreateEvent"), updateEvents,
+				getFactories(entity.onDelete(), entityClass, factories,
+						"JPAEntityDeleteEvent"), getFactories(entity.onLoad(),
+						entityClass, factories, "JPAEntityLoadEvent"), names,
+				events);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static EntityEventFactory<?>[] getFactories(
+			Class<?>[] eventClasses, Class<?> entityClass,
+			EventFactories factories, String baseClassName)
+			throws EventException {
+		EntityEventFactory<?>[] result = new EntityEventFactory<?>[eventClasses.length];
+		for (int i = 0; i < eventClasses.length; i++) {
+			result[i] = factories.getEntityEventFactory(
+					(Class<? extends Event<?>>) eventClasses[i], entityClass,
+					baseClassName);
+		}
+		return result;
+	}
+
+	/**
+	 * @return {@code true} if the entity class does not declare any events,
+	 *         {@code false} otherwise
+	 */
+	boolean isEmpty() {
+		return createEvents.length == 0 && updateEvents.length == 0
+				&& deleteEvents.length == 0 && loadEvents.length == 0
+				&& propertyNames.length == 0;
+	}
+
+	/**
+	 * @return The factories of the events to dispatch when an entity is
+	 *         created
+	 */
+	EntityEventFactory<?>[] getCreateEvents() {
+		return createEvents;
+	}
+
+	/**
+	 * @return The factories of the events to dispatch when an entity is
+	 *         updated
+	 */
+	EntityUpdateEventFactory<?>[] getUpdateEvents() {
+		return updateEvents;
+	}
+
+	/**
+	 * @return The factories of the events to dispatch when an entity is
+	 *         deleted
+	 */
+	EntityEventFactory<?>[] getDeleteEvents() {
+		return deleteEvents;
+	}
+
+	/**
+	 * @return The factories of the events to dispatch when an entity is
+	 *         loaded
+	 */
+	EntityEventFactory<?>[] getLoadEvents() {
+		return loadEvents;
+	}
+
+	/**
+	 * Gets the property change events of this entity, with the position of
+	 * each property in the given property names. Hibernate passes the same
+	 * array of names for every entity of a class, so the positions are only
+	 * looked up again if a different array is passed
+	 *
+	 * @param hibernatePropertyNames
+	 *            The property names as passed to the interceptor
+	 * @return The property change events of this entity
+	 */
+	PropertyEvents getPropertyEvents(String[] hibernatePropertyNames) {
+		PropertyEvents current = lastPropertyEvents;
+
+		if (current == null || current.propertyNames != hibernatePropertyNames) {
+			current = new PropertyEvents(hibernatePropertyNames);
+			lastPropertyEvents = current;
+		}
+
+		return current;
+	}
+
+	/**
+	 * The property change events of an entity, in the order in which the
+	 * properties are declared, along with the index of each property in the
+	 * state arrays Hibernate passes to the interceptor
+	 */
+	final class PropertyEvents {
+		private final String[] propertyNames;
+
+		private final int[] indices;
+
+		PropertyEvents(String[] hibernatePropertyNames) {
+			this.propertyNames = hibernatePropertyNames;
+			this.indices = new int[EntityMetadata.this.propertyNames.length];
+
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = -1;
+				for (int j = 0; j < hibernatePropertyNames.length; j++) {
+					if (EntityMetadata.this.propertyNames[i]
+							.equals(hibernatePropertyNames[j])) {
+						indices[i] = j;
+						break;
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return The number of annotated properties
+		 */
+		int size() {
+			return indices.length;
+		}
+
+		/**
+		 * @param property
+		 *            The position of the property in declaration order
+		 * @return The index of the property in Hibernate's state arrays, or
+		 *         -1 if Hibernate does not know the property
+		 */
+		int getIndex(int property) {
+			return indices[property];
+		}
+
+		/**
+		 * @param property
+		 *            The position of the property in declaration order
+		 * @return The name of the property
+		 */
+		String getName(int property) {
+			return EntityMetadata.this.propertyNames[property];
+		}
+
+		/**
+		 * @param property
+		 *            The position of the property in declaration order
+		 * @return The factories of the events to dispatch when the property
+		 *         changes
+		 */
+		PropertyChangeEventFactory<?>[] getEvents(int property) {
+			return propertyEvents[property];
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import java.util.Map;
+
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.event.jpa.JPAEntityUpdateEvent;
+
+/**
+ * Creates the events dispatched when an entity is updated. Registering a
+ * factory for an event class with
+ * {@link EventInterceptor#registerEventFactory(Class, EntityUpdateEventFactory)}
+ * avoids looking up and invoking the event's constructor reflectively
+ * 
+ * @author Jeroen Steenbeeke
+ * 
+ * @param <E>
+ *            The type of event created
+ */
+public interface EntityUpdateEventFactory<E extends JPAEntityUpdateEvent<?>> {
+	/**
+	 * Creates a new event for the given entity
+	 * 
+	 * @param entity
+	 *            The entity that was updated
+	 * @param newValues
+	 *            The values of the entity's properties after the update
+	 * @param oldValues
+	 *            The values of the entity's properties before the update
+	 * @return The new event
+	 * @throws EventException
+	 *             If the event cannot be created
+	 */
+	E createEvent(Object entity, Map<String, Object> newValues,
+			Map<String, Object> oldValues) throws EventException;
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Holds the entity events of a flush or transaction until they are
+ * dispatched. The events themselves are only created once the buffer is
+ * drained.
+ * <p>
+ * A coalescing buffer keeps a single update event per entity and event, and
+ * a single property change event per entity, event and property. The merged
+ * event carries the old values of the first change and the new values of the
+ * last one, and keeps the position of the first change. If an entity is
+ * created and deleted within the same buffer, none of its events are
+ * dispatched.
+ *
+ * @author Jeroen Steenbeeke
+ */
+final class EventBuffer {
+	private final List<Record> records = new ArrayList<Record>();
+
+	private final Map<Key, Record> merged;
+
+	private final Map<Object, List<Record>> entityRecords;
+
+	/**
+	 * Creates a new buffer
+	 *
+	 * @param coalesce
+	 *            Whether or not repeated changes should be merged
+	 */
+	EventBuffer(boolean coalesce) {
+		if (coalesce) {
+			this.merged = new HashMap<Key, Record>();
+			this.entityRecords = new IdentityHashMap<Object, List<Record>>();
+		} else {
+			this.merged = null;
+			this.entityRecords = null;
+		}
+	}
+
+	/**
+	 * Adds the events for the creation of an entity
+	 *
+	 * @param entity
+	 *            The entity that was created
+	 * @param factories
+	 *            The factories of the create events, may be empty
+	 */
+	void created(Object entity, EntityEventFactory<?>[] factories) {
+		if (entityRecords != null && !entityRecords.containsKey(entity)) {
+			// Remember the creation even without events, so a delete can
+			// cancel any update events that follow
+			entityRecords.put(entity, new ArrayList<Record>());
+		}
+
+		for (EntityEventFactory<?> factory : factories) {
+			add(new EntityRecord(entity, factory), null);
+		}
+	}
+
+	/**
+	 * Adds the events for the deletion of an entity
+	 *
+	 * @param entity
+	 *            The entity that was deleted
+	 * @param factories
+	 *            The factories of the delete events
+	 */
+	void deleted(Object entity, EntityEventFactory<?>[] factories) {
+		if (entityRecords != null) {
+			List<Record> pending = entityRecords.remove(entity);
+			if (pending != null) {
+				// Created and deleted within this buffer
+				for (Record record : pending) {
+					record.cancelled = true;
+				}
+				return;
+			}
+		}
+
+		for (EntityEventFactory<?> factory : factories) {
+			add(new EntityRecord(entity, factory), null);
+		}
+	}
+
+	/**
+	 * Adds the events for an update of an entity
+	 *
+	 * @param entity
+	 *            The entity that was updated
+	 * @param factories
+	 *            The factories of the update events
+	 * @param newValues
+	 *            The values of the entity after the update
+	 * @param oldValues
+	 *            The values of the entity before the update
+	 */
+	void updated(Object entity, EntityUpdateEventFactory<?>[] factories,
+			Map<String, Object> newValues, Map<String, Object> oldValues) {
+		for (EntityUpdateEventFactory<?> factory : factories) {
+			add(new UpdateRecord(entity, factory, newValues, oldValues),
+					new Key(entity, factory, null));
+		}
+	}
+
+	/**
+	 * Adds the events for a change of a single property
+	 *
+	 * @param entity
+	 *            The entity that was changed
+	 * @param factories
+	 *            The factories of the property change events
+	 * @param propertyName
+	 *            The name of the property
+	 * @param newValue
+	 *            The value of the property after the change
+	 * @param oldValue
+	 *            The value of the property before the change
+	 */
+	void propertyChanged(Object entity,
+			PropertyChangeEventFactory<?>[] factories, String propertyName,
+			Object newValue, Object oldValue) {
+		for (PropertyChangeEventFactory<?> factory : factories) {
+			add(new PropertyRecord(entity, factory, propertyName, newValue,
+					oldValue), new Key(entity, factory, propertyName));
+		}
+	}
+
+	private void add(Record record, Key key) {
+		if (merged != null && key != null) {
+			Record previous = merged.get(key);
+			if (previous != null) {
+				previous.merge(record);
+				return;
+			}
+			merged.put(key, record);
+		}
+
+		if (entityRecords != null) {
+			List<Record> pending = entityRecords.get(record.entity);
+			if (pending != null) {
+				pending.add(record);
+			}
+		}
+
+		records.add(record);
+	}
+
+	/**
+	 * @return {@code true} if the buffer contains no events, {@code false}
+	 *         otherwise
+	 */
+	boolean isEmpty() {
+		for (Record record : records) {
+			if (!record.cancelled) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Creates the buffered events
+	 *
+	 * @return The events, in the order in which they were first added
+	 */
+	List<Event<?>> createEvents() {
+		List<Event<?>> events = new ArrayList<Event<?>>(records.size());
+
+		for (Record record : records) {
+			if (!record.cancelled) {
+				events.add(record.createEvent());
+			}
+		}
+
+		return events;
+	}
+
+	/**
+	 * A buffered event, not yet created
+	 */
+	private abstract static class Record {
+		final Object entity;
+
+		boolean cancelled = false;
+
+		Record(Object entity) {
+			this.entity = entity;
+		}
+
+		abstract Event<?> createEvent();
+
+		/**
+		 * Merges a later record with the same key into this one
+		 */
+		abstract void merge(Record later);
+	}
+
+	private static final class EntityRecord extends Record {
+		private final EntityEventFactory<?> factory;
+
+		EntityRecord(Object entity, EntityEventFactory<?> factory) {
+			super(entity);
+			this.factory = factory;
+		}
+
+		@Override
+		void merge(Record later) {
+			// The same event for the same entity, so the first one is kept
+		}
+
+		@Override
+		Event<?> createEvent() {
+			return factory.createEvent(entity);
+		}
+	}
+
+	private static final class UpdateRecord extends Record {
+		private final EntityUpdateEventFactory<?> factory;
+
+		private Map<String, Object> newValues;
+
+		private final Map<String, Object> oldValues;
+
+		UpdateRecord(Object entity, EntityUpdateEventFactory<?> factory,
+				Map<String, Object> newValues, Map<String, Object> oldValues) {
+			super(entity);
+			this.factory = factory;
+			this.newValues = newValues;
+			this.oldValues = oldValues;
+		}
+
+		@Override
+		void merge(Record later) {
+			newValues = ((UpdateRecord) later).newValues;
+		}
+
+		@Override
+		Event<?> createEvent() {
+			return factory.createEvent(entity, newValues, oldValues);
+		}
+	}
+
+	private static final class PropertyRecord extends Record {
+		private final PropertyChangeEventFactory<?> factory;
+
+		private final String propertyName;
+
+		private Object newValue;
+
+		private final Object oldValue;
+
+		PropertyRecord(Object entity, PropertyChangeEventFactory<?> factory,
+				String propertyName, Object newValue, Object oldValue) {
+			super(entity);
+			this.factory = factory;
+			this.propertyName = propertyName;
+			this.newValue = newValue;
+			this.oldValue = oldValue;
+		}
+
+		@Override
+		void merge(Record later) {
+			newValue = ((PropertyRecord) later).newValue;
+		}
+
+		@Override
+		Event<?> createEvent() {
+			return factory.createEvent(entity, propertyName, newValue,
+					oldValue);
+		}
+	}
+
+	/**
+	 * Identifies the records that may be merged: the same entity instance,
+	 * the same event factory and the same property, if any
+	 */
+	private static final class Key {
+		private final Object entity;
+
+		private final Object factory;
+
+		private final String propertyName;
+
+		Key(Object entity, Object factory, String propertyName) {
+			this.entity = entity;
+			this.factory = factory;
+			this.propertyName = propertyName;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = System.identityHashCode(entity);
+			result = 31 * result + System.identityHashCode(factory);
+			result = 31 * result
+					+ (propertyName == null ? 0 : propertyName.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return entity == other.entity
+					&& factory == other.factory
+					&& (propertyName == null ? other.propertyName == null
+							: propertyName.equals(other.propertyName));
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.core.event.jpa.JPAEntityUpdateEvent;
+import com.fortuityframework.core.event.jpa.JPAPreviousValueAwareEntityUpdateEvent;
+import com.fortuityframework.core.event.jpa.JPAPreviousValueAwarePropertyChangeEvent;
+import com.fortuityframework.core.event.jpa.JPAPropertyChangeEvent;
+
+/**
+ * Finds the factory to create a given event for a given entity class. Uses
+ * explicitly registered factories if available, and otherwise looks up the
+ * constructor of the event. Constructors are looked up when the factory is
+ * requested, so a missing constructor is reported before any entity needs
+ * the event
+ * 
+ * @author Jeroen Steenbeeke
+ */
+class EventFactories {
+	private static final Logger log = LoggerFactory
+			.getLogger(EventFactories.class);
+
+	private final ConcurrentMap<Class<?>, EntityEventFactory<?>> entityFactories = new ConcurrentHashMap<Class<?>, EntityEventFactory<?>>();
+
+	private final ConcurrentMap<Class<?>, EntityUpdateEventFactory<?>> updateFactories = new ConcurrentHashMap<Class<?>, EntityUpdateEventFactory<?>>();
+
+	private final ConcurrentMap<Class<?>, PropertyChangeEventFactory<?>> propertyFactories = new ConcurrentHashMap<Class<?>, PropertyChangeEventFactory<?>>();
+
+	<E extends Event<?>> void register(Class<E> eventClass,
+			EntityEventFactory<E> factory) {
+		entityFactories.put(eventClass, factory);
+	}
+
+	<E extends JPAEntityUpdateEvent<?>> void register(Class<E> eventClass,
+			EntityUpdateEventFactory<E> factory) {
+		updateFactories.put(eventClass, factory);
+	}
+
+	<E extends JPAPropertyChangeEvent<?>> void register(Class<E> eventClass,
+			PropertyChangeEventFactory<E> factory) {
+		propertyFactories.put(eventClass, factory);
+	}
+
+	/**
+	 * Gets the factory for a create, load or delete event
+	 * 
+	 * @param eventClass
+	 *            The event to create
+	 * @param entityClass
+	 *            The class of entity the event is created for
+	 * @param baseClassName
+	 *            The name of the base class of the event, for error messages
+	 * @return A factory for the event
+	 * @throws EventException
+	 *             If the event has no suitable constructor
+	 */
+	EntityEventFactory<?> getEntityEventFactory(
+			Class<? extends Event<?>> eventClass, Class<?> entityClass,
+			String baseClassName) throws EventException {
+		EntityEventFactory<?> factory = entityFactories.get(eventClass);
+		if (factory != null) {
+			return factory;
+		}
+
+		final Constructor<? extends Event<?>> ctor = getConstructor(
+				eventClass, baseClassName, entityClass);
+
+		return new EntityEventFactory<Event<?>>() {
+			@Override
+			public Event<?> createEvent(Object entity) throws EventException {
+				return newInstance(ctor, entity);
+			}
+		};
+	}
+
+	/**
+	 * Gets the factory for an update event
+	 * 
+	 * @param eventClass
+	 *            The event to create
+	 * @param entityClass
+	 *            The class of entity the event is created for
+	 * @return A factory for the event
+	 * @throws EventException
+	 *             If the event has no suitable constructor
+	 */
+	EntityUpdateEventFactory<?> getUpdateEventFactory(
+			Class<? extends JPAEntityUpdateEvent<?>> eventClass,
+			Class<?> entityClass) throws EventException {
+		EntityUpdateEventFactory<?> factory = updateFactories.get(eventClass);
+		if (factory != null) {
+			return factory;
+		}
+
+		final String baseClassName = "JPAEntityUpdateEvent or JPAPreviousValueAwareEntityUpdateEvent";
+
+		if (JPAPreviousValueAwareEntityUpdateEvent.class
+				.isAssignableFrom(eventClass)) {
+			final Constructor<? extends JPAEntityUpdateEvent<?>> ctor = getConstructor(
+					eventClass, baseClassName, entityClass, Map.class,
+					Map.class);
+
+			return new EntityUpdateEventFactory<JPAEntityUpdateEvent<?>>() {
+				@Override
+				public JPAEntityUpdateEvent<?> createEvent(Object entity,
+						Map<String, Object> newValues,
+						Map<String, Object> oldValues) throws EventException {
+					return newInstance(ctor, entity, newValues, oldValues);
+				}
+			};
+		}
+
+		final Constructor<? extends JPAEntityUpdateEvent<?>> ctor = getConstructor(
+				eventClass, baseClassName, entityClass, Map.class);
+
+		return new EntityUpdateEventFactory<JPAEntityUpdateEvent<?>>() {
+			@Override
+			public JPAEntityUpdateEvent<?> createEvent(Object entity,
+					Map<String, Object> newValues,
+					Map<String, Object> oldValues) throws EventException {
+				return newInstance(ctor, entity, newValues);
+			}
+		};
+	}
+
+	/**
+	 * Gets the factory for a property change event
+	 * 
+	 * @param eventClass
+	 *            The event to create
+	 * @param entityClass
+	 *            The class of entity the event is created for
+	 * @return A factory for the event
+	 * @throws EventException
+	 *             If the event has no suitable constructor
+	 */
+	PropertyChangeEventFactory<?> getPropertyChangeEventFactory(
+			Class<? extends JPAPropertyChangeEvent<?>> eventClass,
+			Class<?> entityClass) throws EventException {
+		PropertyChangeEventFactory<?> factory = propertyFactories
+				.get(eventClass);
+		if (factory != null) {
+			return factory;
+		}
+
+		final String baseClassName = "JPAPropertyChangeEvent or that of JPAPreviousValueAwarePropertyChangeEvent";
+
+		if (JPAPreviousValueAwarePropertyChangeEvent.class
+				.isAssignableFrom(eventClass)) {
+			final Constructor<? extends JPAPropertyChangeEvent<?>> ctor = getConstructor(
+					eventClass, baseClassName, entityClass, String.class,
+					Object.class, Object.class);
+
+			return new PropertyChangeEventFactory<JPAPropertyChangeEvent<?>>() {
+				@Override
+				public JPAPropertyChangeEvent<?> createEvent(Object entity,
+						String propertyName, Object newValue, Object oldValue)
+						throws EventException {
+					return newInstance(ctor, entity, propertyName, newValue,
+							oldValue);
+				}
+			};
+		}
+
+		final Constructor<? extends JPAPropertyChangeEvent<?>> ctor = getConstructor(
+				eventClass, baseClassName, entityClass, String.class,
+				Object.class);
+
+		return new PropertyChangeEventFactory<JPAPropertyChangeEvent<?>>() {
+			@Override
+			public JPAPropertyChangeEvent<?> createEvent(Object entity,
+					String propertyName, Object newValue, Object oldValue)
+					throws EventException {
+				return newInstance(ctor, entity, propertyName, newValue);
+			}
+		};
+	}
+
+	private static <T> Constructor<T> getConstructor(Class<T> eventClass,
+			String baseClassName, Class<?>... parameterTypes)
+			throws EventException {
+		try {
+			return eventClass.getConstructor(parameterTypes);
+		} catch (SecurityException e) {
+			log.error("Declared event " + eventClass.getName()
+					+ " does not have an accessible constructor", e);
+			throw new EventException(e);
+		} catch (NoSuchMethodException e) {
+			log.error("Declared event " + eventClass.getName()
+					+ " does not have a proper default constructor. "
+					+ "Please extend the default constructor of "
+					+ baseClassName, e);
+			throw new EventException(e);
+		}
+	}
+
+	private static <T> T newInstance(Constructor<T> ctor, Object... args)
+			throws EventException {
+		try {
+			return ctor.newInstance(args);
+		} catch (IllegalArgumentException e) {
+			log.error("Invocation of event constructor failed", e);
+			throw new EventException(e);
+		} catch (InstantiationException e) {
+			log.error("Invocation of event constructor failed", e);
+			throw new EventException(e);
+		} catch (IllegalAccessException e) {
+			log.error("Invocation of event constructor failed", e);
+			throw new EventException(e);
+		} catch (InvocationTargetException e) {
+			log.error("Invocation of event constructor failed", e);
+			throw new EventException(e);
+		}
+	}
+}
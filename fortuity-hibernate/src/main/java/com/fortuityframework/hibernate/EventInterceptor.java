@@ -16,15 +16,14 @@
 package com.fortuityframework.hibernate;
 
 import java.io.Serializable;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Map;
-
-import javax.persistence.Entity;
-import javax.persistence.MappedSuperclass;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import org.hibernate.CallbackException;
 import org.hibernate.EmptyInterceptor;
@@ -32,21 +31,12 @@ import org.hibernate.EntityMode;
 import org.hibernate.Interceptor;
 import org.hibernate.Transaction;
 import org.hibernate.type.Type;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import com.fortuityframework.core.annotation.jpa.FortuityEntity;
-import com.fortuityframework.core.annotation.jpa.FortuityProperty;
 import com.fortuityframework.core.dispatch.EventBroker;
 import com.fortuityframework.core.dispatch.EventException;
 import com.fortuityframework.core.dispatch.IEventBroker;
 import com.fortuityframework.core.event.Event;
-import com.fortuityframework.core.event.jpa.JPAEntityCreateEvent;
-import com.fortuityframework.core.event.jpa.JPAEntityDeleteEvent;
-import com.fortuityframework.core.event.jpa.JPAEntityLoadEvent;
 import com.fortuityframework.core.event.jpa.JPAEntityUpdateEvent;
-import com.fortuityframework.core.event.jpa.JPAPreviousValueAwareEntityUpdateEvent;
-import com.fortuityframework.core.event.jpa.JPAPreviousValueAwarePropertyChangeEvent;
 import com.fortuityframework.core.event.jpa.JPAPropertyChangeEvent;
 
 /**
@@ -56,13 +46,22 @@ import com.fortuityframework.core.event.jpa.JPAPropertyChangeEvent;
  * 
  */
 public class EventInterceptor implements Interceptor {
-	private static final Logger log = LoggerFactory
-			.getLogger(EventInterceptor.class);
-
 	private IEventBroker broker;
 
 	private Interceptor chainedInterceptor;
 
+	private final ConcurrentMap<Class<?>, EntityMetadata> metadataCache = new ConcurrentHashMap<Class<?>, EntityMetadata>();
+
+	private final EventFactories factories = new EventFactories();
+
+	private final ThreadLocal<Deque<Scope>> scopes = new ThreadLocal<Deque<Scope>>();
+
+	private volatile DispatchMode dispatchMode = DispatchMode.IMMEDIATE;
+
+	private volatile Executor afterCommitExecutor;
+
+	private volatile boolean coalesceEvents = false;
+
 	/**
 	 * Creates a new event interceptor
 	 * 
@@ -91,6 +90,44 @@ public class EventInterceptor implements Interceptor {
 		this.chainedInterceptor = chainedInterceptor;
 	}
 
+	/**
+	 * Sets when events are handed to the event broker. Default is IMMEDIATE
+	 * 
+	 * @param dispatchMode
+	 *            The mode to use
+	 */
+	public void setDispatchMode(DispatchMode dispatchMode) {
+		this.dispatchMode = dispatchMode;
+	}
+
+	/**
+	 * Sets the executor used to dispatch the events of a committed
+	 * transaction in AFTER_COMMIT mode. If no executor is set, the events are
+	 * dispatched by the thread that committed the transaction
+	 * 
+	 * @param afterCommitExecutor
+	 *            The executor to use, or {@code null} to dispatch on the
+	 *            committing thread
+	 */
+	public void setAfterCommitExecutor(Executor afterCommitExecutor) {
+		this.afterCommitExecutor = afterCommitExecutor;
+	}
+
+	/**
+	 * Sets whether or not events held until the end of a flush or
+	 * transaction are coalesced. When enabled, repeated updates of an entity
+	 * result in a single update event and a single change event per property,
+	 * carrying the first old value and the last new value. Entities that are
+	 * created and deleted before the events are dispatched do not cause any
+	 * events. Has no effect in IMMEDIATE mode. Default is {@code false}
+	 * 
+	 * @param coalesceEvents
+	 *            {@code true} to coalesce events, {@code false} otherwise
+	 */
+	public void setCoalesceEvents(boolean coalesceEvents) {
+		this.coalesceEvents = coalesceEvents;
+	}
+
 	/**
 	 * @see org.hibernate.EmptyInterceptor#onDelete(java.lang.Object,
 	 *      java.io.Serializable, java.lang.Object[], java.lang.String[],
@@ -99,13 +136,14 @@ public class EventInterceptor implements Interceptor {
 	@Override
 	public void onDelete(Object entity, Serializable id, Object[] state,
 			String[] propertyNames, Type[] types) {
-		Class<?> entityClass = entity.getClass();
-		FortuityEntity metadata = entityClass
-				.getAnnotation(FortuityEntity.class);
-
-		if (metadata != null) {
-			for (Class<? extends JPAEntityDeleteEvent<?>> eventClass : getDeleteEvents(metadata)) {
-				dispatchDeleteEvent(entity, eventClass);
+		EntityMetadata metadata = getMetadata(entity.getClass());
+
+		EventBuffer buffer = getBuffer();
+		if (buffer != null) {
+			buffer.deleted(entity, metadata.getDeleteEvents());
+		} else {
+			for (EntityEventFactory<?> factory : metadata.getDeleteEvents()) {
+				broker.dispatchEvent(factory.createEvent(entity));
 			}
 		}
 
@@ -120,15 +158,14 @@ public class EventInterceptor implements Interceptor {
 	@Override
 	public boolean onSave(Object entity, Serializable id, Object[] state,
 			String[] propertyNames, Type[] types) {
-		Class<?> entityClass = entity.getClass();
-		FortuityEntity metadata = entityClass
-				.getAnnotation(FortuityEntity.class);
-
-		if (metadata != null) {
-			Class<? extends JPAEntityCreateEvent<?>>[] events = getCreateEvents(metadata);
-
-			for (Class<? extends JPAEntityCreateEvent<?>> eventClass : events) {
-				dispatchCreateEvent(entity, eventClass);
+		EntityMetadata metadata = getMetadata(entity.getClass());
+
+		EventBuffer buffer = getBuffer();
+		if (buffer != null) {
+			buffer.created(entity, metadata.getCreateEvents());
+		} else {
+			for (EntityEventFactory<?> factory : metadata.getCreateEvents()) {
+				broker.dispatchEvent(factory.createEvent(entity));
 			}
 		}
 
@@ -136,39 +173,94 @@ public class EventInterceptor implements Interceptor {
 				types);
 	}
 
-	private Class<? extends JPAEntityCreateEvent<?>>[] getCreateEvents(
-			FortuityEntity metadata) {
-		Class<? extends JPAEntityCreateEvent<?>>[] events = (Class<? extends JPAEntityCreateEvent<?>>[]) metadata
-				.onCreate();
-		return events;
+	/**
+	 * Registers the factory to use for the given create, load or delete
+	 * event, instead of invoking the event's constructor reflectively.
+	 * Factories should be registered before the first entity is intercepted
+	 * 
+	 * @param eventClass
+	 *            The event class to register the factory for
+	 * @param factory
+	 *            The factory that creates the event
+	 */
+	public <E extends Event<?>> void registerEventFactory(Class<E> eventClass,
+			EntityEventFactory<E> factory) {
+		factories.register(eventClass, factory);
+		metadataCache.clear();
 	}
 
-	private Class<? extends JPAEntityUpdateEvent<?>>[] getUpdateEvents(
-			FortuityEntity metadata) {
-		Class<? extends JPAEntityUpdateEvent<?>>[] events = (Class<? extends JPAEntityUpdateEvent<?>>[]) metadata
-				.onUpdate();
-		return events;
+	/**
+	 * Registers the factory to use for the given update event, instead of
+	 * invoking the event's constructor reflectively. Factories should be
+	 * registered before the first entity is intercepted
+	 * 
+	 * @param eventClass
+	 *            The event class to register the factory for
+	 * @param factory
+	 *            The factory that creates the event
+	 */
+	public <E extends JPAEntityUpdateEvent<?>> void registerEventFactory(
+			Class<E> eventClass, EntityUpdateEventFactory<E> factory) {
+		factories.register(eventClass, factory);
+		metadataCache.clear();
 	}
 
-	private Class<? extends JPAEntityDeleteEvent<?>>[] getDeleteEvents(
-			FortuityEntity metadata) {
-		Class<? extends JPAEntityDeleteEvent<?>>[] events = (Class<? extends JPAEntityDeleteEvent<?>>[]) metadata
-				.onDelete();
-		return events;
+	/**
+	 * Registers the factory to use for the given property change event,
+	 * instead of invoking the event's constructor reflectively. Factories
+	 * should be registered before the first entity is intercepted
+	 * 
+	 * @param eventClass
+	 *            The event class to register the factory for
+	 * @param factory
+	 *            The factory that creates the event
+	 */
+	public <E extends JPAPropertyChangeEvent<?>> void registerEventFactory(
+			Class<E> eventClass, PropertyChangeEventFactory<E> factory) {
+		factories.register(eventClass, factory);
+		metadataCache.clear();
 	}
 
-	private Class<? extends JPAEntityLoadEvent<?>>[] getLoadEvents(
-			FortuityEntity metadata) {
-		Class<? extends JPAEntityLoadEvent<?>>[] events = (Class<? extends JPAEntityLoadEvent<?>>[]) metadata
-				.onLoad();
-		return events;
+	/**
+	 * Reads the Fortuity annotations of the given entity classes, and checks
+	 * that all events they declare can be created. Without this call, each
+	 * entity class is checked when the first entity of that class is
+	 * intercepted. Calling this method while configuring Hibernate makes
+	 * misconfigured events fail at startup instead
+	 * 
+	 * @param entityClasses
+	 *            The entity classes to check
+	 * @throws EventException
+	 *             If an event declared by one of the classes has no
+	 *             suitable constructor or factory
+	 */
+	public void validate(Class<?>... entityClasses) throws EventException {
+		for (Class<?> entityClass : entityClasses) {
+			getMetadata(entityClass);
+		}
 	}
 
-	private Class<? extends JPAPropertyChangeEvent<?>>[] getPropertyUpdateEvents(
-			FortuityProperty metadata) {
-		Class<? extends JPAPropertyChangeEvent<?>>[] events = (Class<? extends JPAPropertyChangeEvent<?>>[]) metadata
-				.onChange();
-		return events;
+	/**
+	 * Gets the metadata of the given entity class, reading it if this is the
+	 * first entity of that class
+	 * 
+	 * @param entityClass
+	 *            The class of the entity
+	 * @return The metadata of the class
+	 */
+	private EntityMetadata getMetadata(Class<?> entityClass) {
+		EntityMetadata metadata = metadataCache.get(entityClass);
+
+		if (metadata == null) {
+			metadata = EntityMetadata.create(entityClass, factories);
+			EntityMetadata existing = metadataCache.putIfAbsent(entityClass,
+					metadata);
+			if (existing != null) {
+				metadata = existing;
+			}
+		}
+
+		return metadata;
 	}
 
 	/**
@@ -180,51 +272,71 @@ public class EventInterceptor implements Interceptor {
 	public boolean onFlushDirty(Object entity, Serializable id,
 			Object[] currentState, Object[] previousState,
 			String[] propertyNames, Type[] types) {
-		Class<?> entityClass = entity.getClass();
+		EntityMetadata metadata = getMetadata(entity.getClass());
+
+		if (metadata.isEmpty()) {
+			return chainedInterceptor.onFlushDirty(entity, id, currentState,
+					previousState, propertyNames, types);
+		}
+
+		EventBuffer buffer = getBuffer();
 
-		Map<String, Object> oldValues = new HashMap<String, Object>();
-		Map<String, Object> newValues = new HashMap<String, Object>();
+		EntityUpdateEventFactory<?>[] updateEvents = metadata
+				.getUpdateEvents();
+		if (updateEvents.length > 0) {
+			boolean deferred = buffer != null;
 
-		for (int i = 0; i < propertyNames.length; i++) {
+			// Deferred events may outlive this call, during which the chained
+			// interceptor is allowed to modify the current state
+			Map<String, Object> newValues = new StateMap(propertyNames,
+					deferred ? currentState.clone() : currentState);
+			Map<String, Object> oldValues;
 			if (previousState != null) {
-				oldValues.put(propertyNames[i], previousState[i]);
+				oldValues = new StateMap(propertyNames,
+						deferred ? previousState.clone() : previousState);
+			} else {
+				oldValues = Collections.emptyMap();
 			}
-			newValues.put(propertyNames[i], currentState[i]);
-		}
 
-		FortuityEntity entityMetadata = entityClass
-				.getAnnotation(FortuityEntity.class);
-		if (entityMetadata != null) {
-			for (Class<? extends JPAEntityUpdateEvent<?>> eventClass : getUpdateEvents(entityMetadata)) {
-				dispatchUpdateEvent(entity, oldValues, newValues, eventClass);
+			if (deferred) {
+				buffer.updated(entity, updateEvents, newValues, oldValues);
+			} else {
+				for (EntityUpdateEventFactory<?> factory : updateEvents) {
+					broker.dispatchEvent(factory.createEvent(entity,
+							newValues, oldValues));
+				}
 			}
 		}
 
-		Class<?> next = entityClass;
-		while (next.isAnnotationPresent(Entity.class)
-				|| next.isAnnotationPresent(MappedSuperclass.class)) {
-			for (Field f : next.getDeclaredFields()) {
-				FortuityProperty propertyMetadata = f
-						.getAnnotation(FortuityProperty.class);
-				if (propertyMetadata != null) {
-					for (Class<? extends JPAPropertyChangeEvent<?>> eventClass : getPropertyUpdateEvents(propertyMetadata)) {
-						if (oldValues.containsKey(f.getName())) {
-							Object oldValue = oldValues.get(f.getName());
-							Object newValue = newValues.get(f.getName());
-							String fieldName = f.getName();
-
-							if ((oldValue != null && newValue != null && !oldValue
-									.equals(newValue))
-									|| (oldValue == null && newValue != null)) {
-								dispatchPropertyChangeEvent(entity, eventClass,
-										oldValue, newValue, fieldName);
-							}
-						}
+		// Without a previous state there is nothing to compare against
+		if (previousState != null) {
+			EntityMetadata.PropertyEvents properties = metadata
+					.getPropertyEvents(propertyNames);
+
+			for (int p = 0; p < properties.size(); p++) {
+				int index = properties.getIndex(p);
+				if (index < 0) {
+					continue;
+				}
+
+				Object oldValue = previousState[index];
+				Object newValue = currentState[index];
+
+				if (!isChanged(types, index, oldValue, newValue)) {
+					continue;
+				}
+
+				if (buffer != null) {
+					buffer.propertyChanged(entity, properties.getEvents(p),
+							properties.getName(p), newValue, oldValue);
+				} else {
+					for (PropertyChangeEventFactory<?> factory : properties
+							.getEvents(p)) {
+						broker.dispatchEvent(factory.createEvent(entity,
+								properties.getName(p), newValue, oldValue));
 					}
 				}
 			}
-
-			next = next.getSuperclass();
 		}
 
 		return chainedInterceptor.onFlushDirty(entity, id, currentState,
@@ -232,109 +344,57 @@ public class EventInterceptor implements Interceptor {
 	}
 
 	/**
-	 * @param entity
-	 * @param eventClass
-	 * @param oldValue
-	 * @param newValue
-	 * @param fieldName
-	 */
-	private void dispatchPropertyChangeEvent(Object entity,
-			Class<? extends JPAPropertyChangeEvent<?>> eventClass,
-			Object oldValue, Object newValue, String fieldName) {
-		try {
-			JPAPropertyChangeEvent<?> event;
-
-			if (JPAPreviousValueAwarePropertyChangeEvent.class
-					.isAssignableFrom(eventClass)) {
-				Constructor<? extends JPAPropertyChangeEvent<?>> ctor = eventClass
-						.getConstructor(entity.getClass(), String.class,
-								Object.class, Object.class);
-				event = ctor.newInstance(entity, fieldName, newValue, oldValue);
-			} else {
-
-				Constructor<? extends JPAPropertyChangeEvent<?>> ctor = eventClass
-						.getConstructor(entity.getClass(), String.class,
-								Object.class);
+	 * Gets the buffer that holds the events of the current thread until the
+	 * end of the flush or transaction. In FLUSH mode, each transaction on the
+	 * thread has its own buffer, so a flush in one transaction does not
+	 * dispatch the events of another. In AFTER_COMMIT mode, events are held
+	 * by the innermost transaction, so the events of an outer transaction are
+	 * kept while a nested transaction runs
+	 * 
+	 * @return The buffer, or {@code null} if events should be dispatched
+	 *         immediately
+	 */
+	private EventBuffer getBuffer() {
+		DispatchMode mode = dispatchMode;
+
+		if (mode == DispatchMode.FLUSH) {
+			Deque<Scope> stack = scopes.get();
+			if (stack == null) {
+				stack = new ArrayDeque<Scope>();
+				scopes.set(stack);
+			}
 
-				event = ctor.newInstance(entity, fieldName, newValue);
+			Scope scope = stack.peek();
+			if (scope == null) {
+				scope = new Scope(null, null);
+				stack.push(scope);
 			}
 
-			broker.dispatchEvent(event);
-		} catch (SecurityException e) {
-			log.error("Declared event " + eventClass.getName()
-					+ " does not have an accessible constructor", e);
-			throw new EventException(e);
-		} catch (NoSuchMethodException e) {
-			log.error(
-					"Declared event "
-							+ eventClass.getName()
-							+ " does not have a proper default constructor. Please extend the default constructor of JPAPropertyChangeEvent or that of JPAPreviousValueAwarePropertyChangeEvent",
-					e);
-			throw new EventException(e);
-		} catch (IllegalArgumentException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (java.lang.InstantiationException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (IllegalAccessException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (InvocationTargetException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
+			if (scope.flushBuffer == null) {
+				scope.flushBuffer = new EventBuffer(coalesceEvents);
+			}
+			return scope.flushBuffer;
+		} else if (mode == DispatchMode.AFTER_COMMIT) {
+			Deque<Scope> stack = scopes.get();
+			Scope scope = stack != null ? stack.peek() : null;
+			return scope != null ? scope.transactionBuffer : null;
 		}
+
+		return null;
 	}
 
 	/**
-	 * @param entity
-	 * @param oldValues
-	 * @param newValues
-	 * @param eventClass
+	 * Determines whether a property has changed, using the equality semantics
+	 * of its Hibernate type so the result matches Hibernate's own dirty check
 	 */
-	private void dispatchUpdateEvent(Object entity,
-			Map<String, Object> oldValues, Map<String, Object> newValues,
-			Class<? extends JPAEntityUpdateEvent<?>> eventClass) {
-		try {
-			Event<?> event;
-
-			if (JPAPreviousValueAwareEntityUpdateEvent.class
-					.isAssignableFrom(eventClass)) {
-				Constructor<? extends JPAEntityUpdateEvent<?>> ctor = eventClass
-						.getConstructor(entity.getClass(), Map.class, Map.class);
-				event = ctor.newInstance(entity, newValues, oldValues);
-			} else {
-				Constructor<? extends JPAEntityUpdateEvent<?>> ctor = eventClass
-						.getConstructor(entity.getClass(), Map.class);
-				event = ctor.newInstance(entity, newValues);
-			}
-
-			broker.dispatchEvent(event);
-
-		} catch (SecurityException e) {
-			log.error("Declared event " + eventClass.getName()
-					+ " does not have an accessible constructor", e);
-			throw new EventException(e);
-		} catch (NoSuchMethodException e) {
-			log.error(
-					"Declared event "
-							+ eventClass.getName()
-							+ " does not have a proper default constructor. Please extend the default constructor of JPAEntityUpdateEvent or JPAPreviousValueAwareEntityUpdateEvent",
-					e);
-			throw new EventException(e);
-		} catch (IllegalArgumentException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (java.lang.InstantiationException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (IllegalAccessException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (InvocationTargetException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
+	private static boolean isChanged(Type[] types, int index, Object oldValue,
+			Object newValue) {
+		if (types != null && types[index] != null) {
+			return !types[index].isSame(oldValue, newValue, EntityMode.POJO);
 		}
+
+		return oldValue == null ? newValue != null : !oldValue
+				.equals(newValue);
 	}
 
 	/**
@@ -346,14 +406,10 @@ public class EventInterceptor implements Interceptor {
 	public boolean onLoad(Object entity, Serializable id, Object[] state,
 			String[] propertyNames, Type[] types) {
 		if (entity != null) {
-			Class<?> entityClass = entity.getClass();
-			FortuityEntity metadata = entityClass
-					.getAnnotation(FortuityEntity.class);
+			EntityMetadata metadata = getMetadata(entity.getClass());
 
-			if (metadata != null) {
-				for (Class<? extends JPAEntityLoadEvent<?>> eventClass : getLoadEvents(metadata)) {
-					dispatchLoadEvent(entity, eventClass);
-				}
+			for (EntityEventFactory<?> factory : metadata.getLoadEvents()) {
+				broker.dispatchEvent(factory.createEvent(entity));
 			}
 		}
 
@@ -362,126 +418,102 @@ public class EventInterceptor implements Interceptor {
 	}
 
 	/**
-	 * @param entity
-	 * @param eventClass
+	 * @see org.hibernate.Interceptor#afterTransactionBegin(org.hibernate.Transaction)
 	 */
-	private void dispatchLoadEvent(Object entity,
-			Class<? extends JPAEntityLoadEvent<?>> eventClass) {
-		try {
-			Constructor<? extends JPAEntityLoadEvent<?>> ctor = eventClass
-					.getConstructor(entity.getClass());
-			JPAEntityLoadEvent<?> event = ctor.newInstance(entity);
-			broker.dispatchEvent(event);
-
-		} catch (SecurityException e) {
-			log.error("Declared event " + eventClass.getName()
-					+ " does not have an accessible constructor", e);
-			throw new EventException(e);
-		} catch (NoSuchMethodException e) {
-			log.error(
-					"Declared event "
-							+ eventClass.getName()
-							+ " does not have a proper default constructor. Please extend the default constructor of JPAEntityLoadEvent",
-					e);
-			throw new EventException(e);
-		} catch (IllegalArgumentException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (java.lang.InstantiationException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (IllegalAccessException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (InvocationTargetException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
+	@Override
+	public void afterTransactionBegin(Transaction tx) {
+		Deque<Scope> stack = scopes.get();
+		EventBuffer unflushed = null;
+		if (stack == null) {
+			stack = new ArrayDeque<Scope>();
+			scopes.set(stack);
+		} else if (stack.size() == 1 && stack.peek().transaction == null) {
+			// Work done before the transaction began is flushed along with
+			// it, so its events are held by the transaction from now on
+			unflushed = stack.pop().flushBuffer;
 		}
-	}
 
-	private void dispatchDeleteEvent(Object entity,
-			Class<? extends JPAEntityDeleteEvent<?>> eventClass) {
-		try {
-			Constructor<? extends JPAEntityDeleteEvent<?>> ctor = eventClass
-					.getConstructor(entity.getClass());
-			JPAEntityDeleteEvent<?> event = ctor.newInstance(entity);
-			broker.dispatchEvent(event);
-
-		} catch (SecurityException e) {
-			log.error("Declared event " + eventClass.getName()
-					+ " does not have an accessible constructor", e);
-			throw new EventException(e);
-		} catch (NoSuchMethodException e) {
-			log.error(
-					"Declared event "
-							+ eventClass.getName()
-							+ " does not have a proper default constructor. Please extend the default constructor of JPAEntityDeleteEvent",
-					e);
-			throw new EventException(e);
-		} catch (IllegalArgumentException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (java.lang.InstantiationException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (IllegalAccessException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (InvocationTargetException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		}
+		Scope scope = new Scope(tx,
+				dispatchMode == DispatchMode.AFTER_COMMIT ? new EventBuffer(
+						coalesceEvents) : null);
+		scope.flushBuffer = unflushed;
+		stack.push(scope);
+
+		chainedInterceptor.afterTransactionBegin(tx);
 	}
 
-	private <T> void dispatchCreateEvent(Object entity,
-			Class<? extends JPAEntityCreateEvent<?>> eventClass) {
-		try {
-			Constructor<? extends JPAEntityCreateEvent<?>> ctor = eventClass
-					.getConstructor(entity.getClass());
-
-			JPAEntityCreateEvent<?> event = ctor.newInstance(entity);
-			broker.dispatchEvent(event);
-
-		} catch (SecurityException e) {
-			log.error("Declared event " + eventClass.getName()
-					+ " does not have an accessible constructor", e);
-			throw new EventException(e);
-		} catch (NoSuchMethodException e) {
-			log.error(
-					"Declared event "
-							+ eventClass.getName()
-							+ " does not have a proper default constructor. Please extend the default constructor of JPAEntityCreateEvent",
-					e);
-			throw new EventException(e);
-		} catch (IllegalArgumentException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (java.lang.InstantiationException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (IllegalAccessException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
-		} catch (InvocationTargetException e) {
-			log.error("Invocation of event constructor failed", e);
-			throw new EventException(e);
+	/**
+	 * @see org.hibernate.Interceptor#afterTransactionCompletion(org.hibernate.Transaction)
+	 */
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		// A committed transaction has been flushed, so anything left was
+		// never written to the database
+		Scope scope = removeScope(tx);
+
+		final EventBuffer buffer = scope != null ? scope.transactionBuffer
+				: null;
+		if (buffer != null) {
+			if (tx != null && tx.wasCommitted() && !buffer.isEmpty()) {
+				Executor executor = afterCommitExecutor;
+				if (executor != null) {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							broker.dispatchEvents(buffer.createEvents());
+						}
+					});
+				} else {
+					broker.dispatchEvents(buffer.createEvents());
+				}
+			}
 		}
+
+		chainedInterceptor.afterTransactionCompletion(tx);
 	}
 
 	/**
-	 * @see org.hibernate.Interceptor#afterTransactionBegin(org.hibernate.Transaction)
+	 * Discards the events the current thread holds for work done outside of a
+	 * transaction. In FLUSH mode, these events are only dispatched when a
+	 * session of the thread is flushed, and Hibernate does not tell
+	 * interceptors when a session is closed. Call this method when closing a
+	 * session that was not flushed, so its events are not dispatched by the
+	 * next session or transaction to use the thread
 	 */
-	@Override
-	public void afterTransactionBegin(Transaction tx) {
-		chainedInterceptor.afterTransactionBegin(tx);
+	public void discardUnflushedEvents() {
+		removeScope(null);
 	}
 
 	/**
-	 * @see org.hibernate.Interceptor#afterTransactionCompletion(org.hibernate.Transaction)
+	 * Removes the events held for the given transaction on the current thread
+	 * 
+	 * @param tx
+	 *            The transaction, or {@code null} for work done outside of a
+	 *            transaction
+	 * @return The removed events, or {@code null} if none were held
 	 */
-	@Override
-	public void afterTransactionCompletion(Transaction tx) {
-		chainedInterceptor.afterTransactionCompletion(tx);
+	private Scope removeScope(Transaction tx) {
+		Deque<Scope> stack = scopes.get();
+		if (stack == null) {
+			return null;
+		}
+
+		Scope removed = null;
+		Iterator<Scope> iterator = stack.iterator();
+		while (iterator.hasNext()) {
+			Scope scope = iterator.next();
+			if (scope.transaction == tx) {
+				iterator.remove();
+				removed = scope;
+				break;
+			}
+		}
+
+		if (stack.isEmpty()) {
+			scopes.remove();
+		}
+
+		return removed;
 	}
 
 	/**
@@ -589,6 +621,22 @@ public class EventInterceptor implements Interceptor {
 	@Override
 	public void postFlush(@SuppressWarnings("rawtypes") Iterator entities)
 			throws CallbackException {
+		Deque<Scope> stack = scopes.get();
+		Scope scope = stack != null ? stack.peek() : null;
+
+		if (scope != null && scope.flushBuffer != null) {
+			// Remove the buffer first, listeners may cause another flush
+			EventBuffer buffer = scope.flushBuffer;
+			scope.flushBuffer = null;
+			if (scope.transaction == null) {
+				removeScope(null);
+			}
+
+			if (!buffer.isEmpty()) {
+				broker.dispatchEvents(buffer.createEvents());
+			}
+		}
+
 		chainedInterceptor.postFlush(entities);
 	}
 
@@ -601,4 +649,21 @@ public class EventInterceptor implements Interceptor {
 		chainedInterceptor.preFlush(entities);
 	}
 
+	/**
+	 * The events held for a single transaction, or for work done outside of
+	 * one
+	 */
+	private static final class Scope {
+		private final Transaction transaction;
+
+		private final EventBuffer transactionBuffer;
+
+		private EventBuffer flushBuffer;
+
+		Scope(Transaction transaction, EventBuffer transactionBuffer) {
+			this.transaction = transaction;
+			this.transactionBuffer = transactionBuffer;
+		}
+	}
+
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only map view of the property values of an entity, backed by the
+ * arrays Hibernate passes to the interceptor. Creating the view does not
+ * copy any values, so entities with many properties only pay for the
+ * properties that are actually looked up
+ * 
+ * @author Jeroen Steenbeeke
+ */
+final class StateMap extends AbstractMap<String, Object> {
+	private final String[] propertyNames;
+
+	private final Object[] state;
+
+	private Set<Map.Entry<String, Object>> entrySet;
+
+	/**
+	 * Creates a new view
+	 * 
+	 * @param propertyNames
+	 *            The names of the properties
+	 * @param state
+	 *            The values of the properties, in the same order as the names
+	 */
+	StateMap(String[] propertyNames, Object[] state) {
+		this.propertyNames = propertyNames;
+		this.state = state;
+	}
+
+	/**
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	@Override
+	public Object get(Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? state[index] : null;
+	}
+
+	/**
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * @see java.util.AbstractMap#size()
+	 */
+	@Override
+	public int size() {
+		return propertyNames.length;
+	}
+
+	/**
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					return new EntryIterator();
+				}
+
+				@Override
+				public int size() {
+					return propertyNames.length;
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	private int indexOf(Object key) {
+		for (int i = 0; i < propertyNames.length; i++) {
+			if (propertyNames[i].equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private final class EntryIterator implements
+			Iterator<Map.Entry<String, Object>> {
+		private int next = 0;
+
+		@Override
+		public boolean hasNext() {
+			return next < propertyNames.length;
+		}
+
+		@Override
+		public Map.Entry<String, Object> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int index = next++;
+			return new SimpleImmutableEntry<String, Object>(
+					propertyNames[index], state[index]);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import static org.junit.Assert.*;
+
+import javax.persistence.Entity;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.annotation.jpa.FortuityEntity;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.core.event.jpa.JPAPropertyChangeEvent;
+import com.fortuityframework.hibernate.events.UserCreateEvent;
+import com.fortuityframework.hibernate.events.UserMailChangeEvent;
+import com.fortuityframework.hibernate.testentities.User;
+
+/**
+ * Tests the metadata read from annotated entities
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class EntityMetadataTest {
+	private final EventFactories factories = new EventFactories();
+
+	/**
+	 * Tests that entity events are read from the FortuityEntity annotation
+	 */
+	@Test
+	public void testEntityEvents() {
+		EntityMetadata metadata = EntityMetadata.create(User.class, factories);
+
+		User user = new User();
+
+		assertEquals(1, metadata.getCreateEvents().length);
+		Event<?> event = metadata.getCreateEvents()[0].createEvent(user);
+		assertTrue(event instanceof UserCreateEvent);
+		assertSame(user, event.getSource());
+
+		assertEquals(1, metadata.getUpdateEvents().length);
+		assertEquals(1, metadata.getDeleteEvents().length);
+		assertEquals(1, metadata.getLoadEvents().length);
+	}
+
+	/**
+	 * Tests that classes without annotations have no events
+	 */
+	@Test
+	public void testUnannotatedClass() {
+		EntityMetadata metadata = EntityMetadata.create(Object.class,
+				factories);
+
+		assertEquals(0, metadata.getCreateEvents().length);
+		assertEquals(0, metadata.getPropertyEvents(new String[] { "email" })
+				.size());
+	}
+
+	/**
+	 * Tests that annotated properties are matched to Hibernate's property
+	 * names, and that the match is reused for the same array of names
+	 */
+	@Test
+	public void testPropertyIndices() {
+		EntityMetadata metadata = EntityMetadata.create(User.class, factories);
+
+		String[] names = { "email", "lastActivity", "password", "username" };
+		EntityMetadata.PropertyEvents properties = metadata
+				.getPropertyEvents(names);
+
+		assertEquals(1, properties.size());
+		assertEquals("email", properties.getName(0));
+		assertEquals(0, properties.getIndex(0));
+		assertEquals(1, properties.getEvents(0).length);
+
+		User user = new User();
+		JPAPropertyChangeEvent<?> event = properties.getEvents(0)[0]
+				.createEvent(user, "email", "new@example.com",
+						"old@example.com");
+		assertTrue(event instanceof UserMailChangeEvent);
+		assertEquals("old@example.com",
+				((UserMailChangeEvent) event).getOldValue());
+		assertSame(properties, metadata.getPropertyEvents(names));
+
+		String[] otherNames = { "username", "email" };
+		assertEquals(1, metadata.getPropertyEvents(otherNames).getIndex(0));
+		assertEquals(-1, metadata.getPropertyEvents(new String[] { "id" })
+				.getIndex(0));
+	}
+
+	/**
+	 * Tests that explicitly registered factories are used instead of the
+	 * event's constructor
+	 */
+	@Test
+	public void testRegisteredFactory() {
+		final UserCreateEvent created = new UserCreateEvent(new User());
+
+		factories.register(UserCreateEvent.class,
+				new EntityEventFactory<UserCreateEvent>() {
+					@Override
+					public UserCreateEvent createEvent(Object entity) {
+						return created;
+					}
+				});
+
+		EntityMetadata metadata = EntityMetadata.create(User.class, factories);
+
+		assertSame(created,
+				metadata.getCreateEvents()[0].createEvent(new User()));
+	}
+
+	/**
+	 * Tests that events without a suitable constructor are reported when the
+	 * metadata is read
+	 */
+	@Test(expected = EventException.class)
+	public void testMissingConstructor() {
+		EntityMetadata.create(MisconfiguredUser.class, factories);
+	}
+
+	/**
+	 * Entity with a create event that cannot be constructed for it
+	 */
+	@Entity
+	@FortuityEntity(onCreate = UserCreateEvent.class)
+	public static class MisconfiguredUser {
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.hibernate.events.UserCreateEvent;
+import com.fortuityframework.hibernate.events.UserDeleteEvent;
+import com.fortuityframework.hibernate.events.UserMailChangeEvent;
+import com.fortuityframework.hibernate.events.UserUpdateEvent;
+import com.fortuityframework.hibernate.testentities.User;
+
+/**
+ * Tests the buffering and coalescing of entity events
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class EventBufferTest {
+	private final EntityMetadata metadata = EntityMetadata.create(User.class,
+			new EventFactories());
+
+	private final String[] names = { "email" };
+
+	/**
+	 * Tests that a buffer without coalescing keeps every event
+	 */
+	@Test
+	public void testNoCoalescing() {
+		EventBuffer buffer = new EventBuffer(false);
+		User user = new User();
+
+		buffer.created(user, metadata.getCreateEvents());
+		changeMail(buffer, user, "a", "b");
+		changeMail(buffer, user, "b", "c");
+		buffer.deleted(user, metadata.getDeleteEvents());
+
+		List<Event<?>> events = buffer.createEvents();
+		assertEquals(6, events.size());
+		assertTrue(events.get(0) instanceof UserCreateEvent);
+		assertTrue(events.get(5) instanceof UserDeleteEvent);
+	}
+
+	/**
+	 * Tests that repeated changes are merged into the first event
+	 */
+	@Test
+	public void testMergeChanges() {
+		EventBuffer buffer = new EventBuffer(true);
+		User user = new User();
+		User other = new User();
+
+		changeMail(buffer, user, "a", "b");
+		changeMail(buffer, other, "x", "y");
+		changeMail(buffer, user, "b", "c");
+
+		List<Event<?>> events = buffer.createEvents();
+		assertEquals(4, events.size());
+
+		UserUpdateEvent update = (UserUpdateEvent) events.get(0);
+		assertSame(user, update.getSource());
+		assertEquals("a", update.getOldValues().get("email"));
+		assertEquals("c", update.getNewValues().get("email"));
+
+		UserMailChangeEvent change = (UserMailChangeEvent) events.get(1);
+		assertSame(user, change.getSource());
+		assertEquals("a", change.getOldValue());
+		assertEquals("c", change.getNewValue());
+
+		assertSame(other, ((UserUpdateEvent) events.get(2)).getSource());
+	}
+
+	/**
+	 * Tests that an entity created and deleted within the buffer does not
+	 * cause any events
+	 */
+	@Test
+	public void testCreateThenDelete() {
+		EventBuffer buffer = new EventBuffer(true);
+		User user = new User();
+		User other = new User();
+
+		buffer.created(user, metadata.getCreateEvents());
+		changeMail(buffer, other, "x", "y");
+		changeMail(buffer, user, "a", "b");
+		buffer.deleted(user, metadata.getDeleteEvents());
+
+		List<Event<?>> events = buffer.createEvents();
+		assertEquals(2, events.size());
+		assertSame(other, ((UserUpdateEvent) events.get(0)).getSource());
+
+		buffer = new EventBuffer(true);
+		buffer.created(user, metadata.getCreateEvents());
+		buffer.deleted(user, metadata.getDeleteEvents());
+
+		assertTrue(buffer.isEmpty());
+	}
+
+	/**
+	 * Tests that deleting an entity that was not created in the buffer keeps
+	 * its events
+	 */
+	@Test
+	public void testDeleteExisting() {
+		EventBuffer buffer = new EventBuffer(true);
+		User user = new User();
+
+		changeMail(buffer, user, "a", "b");
+		buffer.deleted(user, metadata.getDeleteEvents());
+
+		List<Event<?>> events = buffer.createEvents();
+		assertEquals(3, events.size());
+		assertTrue(events.get(2) instanceof UserDeleteEvent);
+	}
+
+	private void changeMail(EventBuffer buffer, User user, String oldValue,
+			String newValue) {
+		Map<String, Object> oldValues = new StateMap(names,
+				new Object[] { oldValue });
+		Map<String, Object> newValues = new StateMap(names,
+				new Object[] { newValue });
+
+		buffer.updated(user, metadata.getUpdateEvents(), newValues, oldValues);
+		buffer.propertyChanged(user, metadata.getPropertyEvents(names)
+				.getEvents(0), "email", newValue, oldValue);
+	}
+}
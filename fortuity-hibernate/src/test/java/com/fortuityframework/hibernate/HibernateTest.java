@@ -38,6 +38,8 @@ public abstract class HibernateTest {
 
 	private static EventBroker broker;
 
+	private static EventInterceptor interceptor;
+
 	private Session session;
 
 	@BeforeClass
@@ -64,11 +66,22 @@ public abstract class HibernateTest {
 
 		broker = new PriorityQueueEventBroker();
 
-		config.setInterceptor(new EventInterceptor(broker));
+		interceptor = new EventInterceptor(broker);
+		interceptor.validate(User.class);
+
+		config.setInterceptor(interceptor);
 
 		sessionFactory = config.buildSessionFactory();
 	}
 
+	public static EventInterceptor getInterceptor() {
+		return interceptor;
+	}
+
+	public static SessionFactory getSessionFactory() {
+		return sessionFactory;
+	}
+
 	public Session getSession() {
 		return session;
 	}
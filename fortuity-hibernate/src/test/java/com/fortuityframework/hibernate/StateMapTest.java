@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the map view over Hibernate's state arrays
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class StateMapTest {
+	private static final String[] NAMES = { "email", "password", "username" };
+
+	/**
+	 * Tests lookups by property name
+	 */
+	@Test
+	public void testLookup() {
+		Map<String, Object> map = new StateMap(NAMES, new Object[] {
+				"user@example.com", null, "user" });
+
+		assertEquals(3, map.size());
+		assertEquals("user@example.com", map.get("email"));
+		assertEquals("user", map.get("username"));
+		assertNull(map.get("password"));
+		assertTrue(map.containsKey("password"));
+		assertFalse(map.containsKey("id"));
+		assertNull(map.get("id"));
+	}
+
+	/**
+	 * Tests that the view is equal to a map with the same contents
+	 */
+	@Test
+	public void testEquality() {
+		Map<String, Object> expected = new HashMap<String, Object>();
+		expected.put("email", "user@example.com");
+		expected.put("password", null);
+		expected.put("username", "user");
+
+		Map<String, Object> map = new StateMap(NAMES, new Object[] {
+				"user@example.com", null, "user" });
+
+		assertEquals(expected, map);
+		assertEquals(expected.hashCode(), map.hashCode());
+	}
+
+	/**
+	 * Tests that the view cannot be modified
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		new StateMap(NAMES, new Object[3]).put("email", "other@example.com");
+	}
+}
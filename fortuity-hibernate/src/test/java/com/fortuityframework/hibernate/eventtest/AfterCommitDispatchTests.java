@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate.eventtest;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fortuityframework.core.annotation.ioc.OnFortuityEvent;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.hibernate.DispatchMode;
+import com.fortuityframework.hibernate.HibernateTest;
+import com.fortuityframework.hibernate.events.UserCreateEvent;
+import com.fortuityframework.hibernate.events.UserMailChangeEvent;
+import com.fortuityframework.hibernate.testentities.User;
+
+/**
+ * Tests dispatching events once a transaction is committed
+ * 
+ * @author Jeroen Steenbeeke
+ */
+public class AfterCommitDispatchTests extends HibernateTest {
+	private static final Random rand = new Random();
+
+	private final List<String> received = new ArrayList<String>();
+
+	@Before
+	public void useAfterCommitMode() {
+		getInterceptor().setDispatchMode(DispatchMode.AFTER_COMMIT);
+	}
+
+	@After
+	public void restoreMode() {
+		getInterceptor().setDispatchMode(DispatchMode.IMMEDIATE);
+		getInterceptor().setAfterCommitExecutor(null);
+		getInterceptor().setCoalesceEvents(false);
+	}
+
+	@Test
+	public void testDispatchOnCommit() {
+		Transaction t = getSession().beginTransaction();
+		User user = makeUser();
+		getSession().save(user);
+		getSession().flush();
+
+		assertTrue(received.isEmpty());
+
+		user.setEmail("changed@test.com");
+		t.commit();
+
+		assertEquals(2, received.size());
+		assertEquals("create", received.get(0));
+		assertEquals("mail:changed@test.com", received.get(1));
+	}
+
+	@Test
+	public void testRollbackDiscards() {
+		Transaction t = getSession().beginTransaction();
+		getSession().save(makeUser());
+		getSession().flush();
+		t.rollback();
+
+		assertTrue(received.isEmpty());
+	}
+
+	@Test
+	public void testExecutor() {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		getInterceptor().setAfterCommitExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+
+		Transaction t = getSession().beginTransaction();
+		getSession().save(makeUser());
+		t.commit();
+
+		assertTrue(received.isEmpty());
+		assertEquals(1, tasks.size());
+
+		tasks.get(0).run();
+
+		assertEquals(1, received.size());
+	}
+
+	@Test
+	public void testCoalesce() {
+		getInterceptor().setCoalesceEvents(true);
+
+		Transaction t = getSession().beginTransaction();
+		User user = makeUser();
+		getSession().save(user);
+		getSession().flush();
+		user.setEmail("first@test.com");
+		getSession().flush();
+		user.setEmail("second@test.com");
+		getSession().flush();
+
+		User deleted = makeUser();
+		getSession().save(deleted);
+		getSession().flush();
+		getSession().delete(deleted);
+		t.commit();
+
+		assertEquals(2, received.size());
+		assertEquals("create", received.get(0));
+		assertEquals("mail:second@test.com", received.get(1));
+	}
+
+	@Test
+	public void testNestedTransaction() {
+		Transaction outer = getSession().beginTransaction();
+		getSession().save(makeUser());
+
+		Session inner = getSessionFactory().openSession();
+		try {
+			Transaction t = inner.beginTransaction();
+			inner.save(makeUser());
+			t.commit();
+		} finally {
+			inner.close();
+		}
+
+		assertEquals(1, received.size());
+
+		getSession().save(makeUser());
+		getSession().flush();
+
+		assertEquals(1, received.size());
+
+		outer.commit();
+
+		assertEquals(3, received.size());
+	}
+
+	@Test
+	public void testNoTransaction() {
+		getSession().save(makeUser());
+
+		assertEquals(1, received.size());
+	}
+
+	@OnFortuityEvent(UserCreateEvent.class)
+	public void onCreate(EventContext<UserCreateEvent> context) {
+		received.add("create");
+	}
+
+	@OnFortuityEvent(UserMailChangeEvent.class)
+	public void onMailChange(EventContext<UserMailChangeEvent> context) {
+		received.add("mail:" + context.getEvent().getNewValue());
+	}
+
+	private User makeUser() {
+		User user = new User();
+		user.setId(rand.nextLong());
+		user.setEmail("test@test.com");
+		user.setLastActivity(new Date());
+		user.setPassword("test");
+		user.setUsername("test");
+		return user;
+	}
+}
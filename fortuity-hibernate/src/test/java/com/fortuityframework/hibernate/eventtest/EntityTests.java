@@ -115,6 +115,32 @@ public class EntityTests extends HibernateTest {
 		assertTrue(propUpdated);
 	}
 
+	@Test
+	public void testClearProp() {
+		propUpdated = false;
+		User user = makeUser();
+		getSession().save(user);
+		getSession().flush();
+		user.setEmail(null);
+		getSession().update(user);
+		getSession().flush();
+
+		assertTrue(propUpdated);
+	}
+
+	@Test
+	public void testUnchangedProp() {
+		propUpdated = false;
+		User user = makeUser();
+		getSession().save(user);
+		getSession().flush();
+		user.setUsername("!test");
+		getSession().update(user);
+		getSession().flush();
+
+		assertFalse(propUpdated);
+	}
+
 	@OnFortuityEvent(UserDeleteEvent.class)
 	public void onDelete(EventContext<UserDeleteEvent> context) {
 		deleted = true;
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.hibernate.eventtest;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fortuityframework.core.annotation.ioc.OnFortuityEvent;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.hibernate.DispatchMode;
+import com.fortuityframework.hibernate.HibernateTest;
+import com.fortuityframework.hibernate.events.UserCreateEvent;
+import com.fortuityframework.hibernate.events.UserMailChangeEvent;
+import com.fortuityframework.hibernate.events.UserUpdateEvent;
+import com.fortuityframework.hibernate.testentities.User;
+
+/**
+ * Tests dispatching events at the end of a flush
+ * 
+ * @author Jeroen Steenbeeke
+ */
+public class FlushDispatchTests extends HibernateTest {
+	private static final Random rand = new Random();
+
+	private final List<String> received = new ArrayList<String>();
+
+	@Before
+	public void useFlushMode() {
+		getInterceptor().setDispatchMode(DispatchMode.FLUSH);
+	}
+
+	@After
+	public void restoreMode() {
+		getInterceptor().setDispatchMode(DispatchMode.IMMEDIATE);
+	}
+
+	@Test
+	public void testDispatchOnFlush() {
+		User first = makeUser();
+		User second = makeUser();
+		getSession().save(first);
+		getSession().save(second);
+
+		assertTrue(received.isEmpty());
+
+		getSession().flush();
+
+		assertEquals(2, received.size());
+		assertEquals("create", received.get(0));
+	}
+
+	@Test
+	public void testUpdateValuesKept() {
+		User user = makeUser();
+		getSession().save(user);
+		getSession().flush();
+		received.clear();
+
+		user.setEmail("changed@test.com");
+		getSession().update(user);
+		getSession().flush();
+
+		assertEquals(2, received.size());
+		assertTrue(received.contains("update:changed@test.com"));
+		assertTrue(received.contains("mail:changed@test.com"));
+	}
+
+	@Test
+	public void testRollbackDiscards() {
+		Transaction t = getSession().beginTransaction();
+		getSession().save(makeUser());
+		t.rollback();
+
+		getSession().clear();
+		getSession().flush();
+
+		assertTrue(received.isEmpty());
+	}
+
+	@Test
+	public void testNestedTransactionFlush() {
+		Transaction outer = getSession().beginTransaction();
+		getSession().save(makeUser());
+
+		Session inner = getSessionFactory().openSession();
+		try {
+			Transaction t = inner.beginTransaction();
+			inner.save(makeUser());
+			inner.flush();
+
+			assertEquals(1, received.size());
+
+			t.commit();
+		} finally {
+			inner.close();
+		}
+
+		getSession().flush();
+		outer.commit();
+
+		assertEquals(2, received.size());
+	}
+
+	@Test
+	public void testSaveBeforeTransaction() {
+		getSession().save(makeUser());
+
+		Transaction t = getSession().beginTransaction();
+		assertTrue(received.isEmpty());
+		t.commit();
+
+		assertEquals(1, received.size());
+		assertEquals("create", received.get(0));
+	}
+
+	@Test
+	public void testDiscardUnflushedEvents() {
+		Session abandoned = getSessionFactory().openSession();
+		abandoned.save(makeUser());
+		abandoned.close();
+		getInterceptor().discardUnflushedEvents();
+
+		Transaction t = getSession().beginTransaction();
+		getSession().save(makeUser());
+		t.commit();
+
+		assertEquals(1, received.size());
+	}
+
+	@OnFortuityEvent(UserCreateEvent.class)
+	public void onCreate(EventContext<UserCreateEvent> context) {
+		received.add("create");
+	}
+
+	@OnFortuityEvent(UserUpdateEvent.class)
+	public void onUpdate(EventContext<UserUpdateEvent> context) {
+		received.add("update:"
+				+ context.getEvent().getNewValues().get("email"));
+	}
+
+	@OnFortuityEvent(UserMailChangeEvent.class)
+	public void onMailChange(EventContext<UserMailChangeEvent> context) {
+		received.add("mail:" + context.getEvent().getNewValue());
+	}
+
+	private User makeUser() {
+		User user = new User();
+		user.setId(rand.nextLong());
+		user.setEmail("test@test.com");
+		user.setLastActivity(new Date());
+		user.setPassword("test");
+		user.setUsername("test");
+		return user;
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event covering the processing of a single Fortuity event,
+ * from the moment the broker takes it from the queue until all listeners
+ * have been invoked
+ *
+ * @author Jeroen Steenbeeke
+ */
+@Name("com.fortuityframework.Dispatch")
+@Label("Event Dispatch")
+@Category("Fortuity")
+@Description("Processing of a Fortuity event by an event broker")
+@StackTrace(false)
+class DispatchEvent extends Event {
+	@Label("Event Class")
+	Class<?> eventClass;
+
+	@Label("Queue Wait")
+	@Description("Time between queueing the event and processing it")
+	@Timespan(Timespan.NANOSECONDS)
+	long queueWait;
+
+	@Label("Queue Depth")
+	@Description("Number of events waiting when processing started, or -1 if not processed from a queue")
+	int queueDepth;
+
+	@Label("Failed Listeners")
+	int failedListeners;
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.jfr;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import jdk.jfr.EventType;
+
+import com.fortuityframework.core.dispatch.DispatchMonitor;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Dispatch monitor that emits Flight Recorder events for each processed event
+ * and each listener invocation. The events are named
+ * {@code com.fortuityframework.Dispatch} and
+ * {@code com.fortuityframework.Listener}, and are enabled, disabled and
+ * given thresholds through the usual recording settings. While no recording
+ * includes them, the monitor does little more than check whether they are
+ * enabled.
+ *
+ * Install it using
+ * {@link com.fortuityframework.core.dispatch.EventBroker#setDispatchMonitor(DispatchMonitor)}
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class FlightRecorderDispatchMonitor implements DispatchMonitor {
+	private static final EventType DISPATCH_TYPE = EventType
+			.getEventType(DispatchEvent.class);
+
+	private static final EventType LISTENER_TYPE = EventType
+			.getEventType(ListenerEvent.class);
+
+	private final Map<Event<?>, Long> queuedAt = Collections
+			.synchronizedMap(new WeakHashMap<Event<?>, Long>());
+
+	private final ThreadLocal<State> state = new ThreadLocal<State>() {
+		@Override
+		protected State initialValue() {
+			return new State();
+		}
+	};
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#eventQueued(com.fortuityframework.core.event.Event)
+	 */
+	@Override
+	public void eventQueued(Event<?> event) {
+		if (DISPATCH_TYPE.isEnabled()) {
+			queuedAt.put(event, System.nanoTime());
+		}
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#eventStarted(com.fortuityframework.core.event.Event,
+	 *      int)
+	 */
+	@Override
+	public void eventStarted(Event<?> event, int queueDepth) {
+		if (!DISPATCH_TYPE.isEnabled()) {
+			return;
+		}
+
+		DispatchEvent dispatch = new DispatchEvent();
+		dispatch.eventClass = event.getClass();
+		dispatch.queueDepth = queueDepth;
+
+		Long queued = queuedAt.remove(event);
+		if (queued != null) {
+			dispatch.queueWait = System.nanoTime() - queued;
+		}
+
+		dispatch.begin();
+		state.get().dispatches.put(event, dispatch);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#eventFinished(com.fortuityframework.core.event.Event,
+	 *      long)
+	 */
+	@Override
+	public void eventFinished(Event<?> event, long durationNanos) {
+		DispatchEvent dispatch = state.get().dispatches.remove(event);
+		if (dispatch != null) {
+			dispatch.commit();
+		}
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#listenerStarted(java.lang.Class,
+	 *      com.fortuityframework.core.dispatch.EventListener)
+	 */
+	@Override
+	public void listenerStarted(Class<? extends Event<?>> eventClass,
+			EventListener listener) {
+		if (!LISTENER_TYPE.isEnabled()) {
+			return;
+		}
+
+		ListenerEvent invocation = new ListenerEvent();
+		invocation.eventClass = eventClass;
+		invocation.listenerClass = listener.getClass();
+		invocation.begin();
+
+		State current = state.get();
+		current.listeners.push(invocation);
+		current.invoked.push(listener);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.DispatchMonitor#listenerInvoked(java.lang.Class,
+	 *      com.fortuityframework.core.dispatch.EventListener, int, long,
+	 *      java.lang.RuntimeException)
+	 */
+	@Override
+	public void listenerInvoked(Class<? extends Event<?>> eventClass,
+			EventListener listener, int eventCount, long durationNanos,
+			RuntimeException error) {
+		State current = state.get();
+
+		if (error != null) {
+			for (DispatchEvent dispatch : current.dispatches.values()) {
+				if (dispatch.eventClass == eventClass) {
+					dispatch.failedListeners++;
+				}
+			}
+		}
+
+		// The recording settings may have changed since the listener started
+		if (current.invoked.peek() != listener) {
+			return;
+		}
+
+		current.invoked.pop();
+		ListenerEvent invocation = current.listeners.pop();
+
+		invocation.end();
+		if (invocation.shouldCommit()) {
+			invocation.listener = String.valueOf(listener);
+			invocation.eventCount = eventCount;
+			invocation.outcome = error != null ? error.getClass().getName()
+					: "SUCCESS";
+			invocation.commit();
+		}
+	}
+
+	/**
+	 * The events in progress on a single thread. Several dispatches are open
+	 * at once when events are passed to batch listeners, and listener
+	 * invocations nest when a listener dispatches events itself
+	 */
+	private static final class State {
+		final Map<Event<?>, DispatchEvent> dispatches = new IdentityHashMap<Event<?>, DispatchEvent>();
+
+		final Deque<ListenerEvent> listeners = new ArrayDeque<ListenerEvent>();
+
+		final Deque<EventListener> invoked = new ArrayDeque<EventListener>();
+	}
+}
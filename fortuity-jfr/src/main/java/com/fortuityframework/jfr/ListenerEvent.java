@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering a single listener invocation
+ *
+ * @author Jeroen Steenbeeke
+ */
+@Name("com.fortuityframework.Listener")
+@Label("Listener Invocation")
+@Category("Fortuity")
+@Description("Invocation of a Fortuity event listener")
+@StackTrace(false)
+class ListenerEvent extends Event {
+	@Label("Event Class")
+	Class<?> eventClass;
+
+	@Label("Listener")
+	String listener;
+
+	@Label("Listener Class")
+	Class<?> listenerClass;
+
+	@Label("Event Count")
+	@Description("Number of events passed to the listener")
+	int eventCount;
+
+	@Label("Outcome")
+	@Description("SUCCESS, or the class of the exception thrown by the listener")
+	String outcome;
+}
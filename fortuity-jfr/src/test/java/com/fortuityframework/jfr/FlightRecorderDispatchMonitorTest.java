@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.jfr;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.ErrorPolicy;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.dispatch.broker.FIFOQueueEventBroker;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the Flight Recorder events emitted during dispatch
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class FlightRecorderDispatchMonitorTest {
+	/**
+	 * Tests that dispatches and listener invocations are recorded
+	 *
+	 * @throws Exception
+	 *             If the recording cannot be written or read
+	 */
+	@Test
+	public void testRecording() throws Exception {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setDispatchMonitor(new FlightRecorderDispatchMonitor());
+		broker.setEventErrorPolicy(ErrorPolicy.IGNORE_LISTENER);
+		broker.setEventListenerLocator(new EventListenerLocator() {
+			@Override
+			public List<EventListener> getEventListeners(
+					Class<? extends Event<?>> eventClass) {
+				return Collections.<EventListener> singletonList(new FailingListener());
+			}
+		});
+
+		File file = File.createTempFile("fortuity", ".jfr");
+		try {
+			Recording recording = new Recording();
+			recording.enable("com.fortuityframework.Dispatch");
+			recording.enable("com.fortuityframework.Listener");
+			recording.start();
+
+			broker.dispatchEvent(new TestEvent("a"));
+
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+
+			List<RecordedEvent> dispatches = new ArrayList<RecordedEvent>();
+			List<RecordedEvent> listeners = new ArrayList<RecordedEvent>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file
+					.toPath())) {
+				String name = event.getEventType().getName();
+				if (name.equals("com.fortuityframework.Dispatch")) {
+					dispatches.add(event);
+				} else if (name.equals("com.fortuityframework.Listener")) {
+					listeners.add(event);
+				}
+			}
+
+			assertEquals(1, dispatches.size());
+			RecordedEvent dispatch = dispatches.get(0);
+			assertEquals(TestEvent.class.getName(),
+					dispatch.getClass("eventClass").getName());
+			assertEquals(0, dispatch.getInt("queueDepth"));
+			assertEquals(1, dispatch.getInt("failedListeners"));
+
+			assertEquals(1, listeners.size());
+			RecordedEvent listener = listeners.get(0);
+			assertEquals("failing", listener.getString("listener"));
+			assertEquals(EventException.class.getName(),
+					listener.getString("outcome"));
+			assertEquals(1, listener.getInt("eventCount"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Tests that nothing is recorded without a recording
+	 */
+	@Test
+	public void testNotRecording() {
+		FIFOQueueEventBroker broker = new FIFOQueueEventBroker();
+		broker.setDispatchMonitor(new FlightRecorderDispatchMonitor());
+		broker.setEventListenerLocator(new EventListenerLocator() {
+			@Override
+			public List<EventListener> getEventListeners(
+					Class<? extends Event<?>> eventClass) {
+				return Collections.emptyList();
+			}
+		});
+
+		broker.dispatchEvent(new TestEvent("a"));
+	}
+
+	private static class TestEvent implements Event<String> {
+		private final String source;
+
+		TestEvent(String source) {
+			this.source = source;
+		}
+
+		@Override
+		public String getSource() {
+			return source;
+		}
+	}
+
+	private static class FailingListener implements EventListener {
+		@Override
+		public void dispatchEvent(EventContext<?> context)
+				throws EventException {
+			throw new EventException("Failure");
+		}
+
+		@Override
+		public String toString() {
+			return "failing";
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.spring.broker;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.dispatch.broker.AsyncEventBroker;
+
+/**
+ * Asynchronous Event broker for use with the Spring framework. The executor
+ * to process asynchronous dispatches on is passed as a constructor argument,
+ * for instance a Spring {@code TaskExecutor}:
+ *
+ * {@code <bean id="eventBroker" class="com.fortuityframework.spring.broker.SpringAsyncEventBroker"><constructor-arg ref="taskExecutor"/></bean>}
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public class SpringAsyncEventBroker extends AsyncEventBroker implements
+		ApplicationListener<ApplicationEvent>, ApplicationContextAware,
+		BeanPostProcessor {
+	private final SpringEventListenerLocator locator = new SpringEventListenerLocator();
+
+	/**
+	 * Create a new Spring asynchronous event broker that does not chain the
+	 * events after processing by Spring
+	 *
+	 * @param executor
+	 *            The executor to process asynchronous dispatches on
+	 */
+	public SpringAsyncEventBroker(Executor executor) {
+		super(executor);
+		setEventListenerLocator(locator);
+	}
+
+	/**
+	 * Create a new Spring asynchronous event broker that chains the events to
+	 * an additional locator after processing by Spring
+	 *
+	 * @param executor
+	 *            The executor to process asynchronous dispatches on
+	 * @param chainedLocator
+	 *            The locator to chain to
+	 */
+	public SpringAsyncEventBroker(Executor executor,
+			EventListenerLocator chainedLocator) {
+		super(executor);
+		locator.setChainedLocator(chainedLocator);
+		setEventListenerLocator(locator);
+	}
+
+	/**
+	 * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
+	 */
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		locator.onApplicationEvent(event);
+	}
+
+	/**
+	 * @see org.springframework.context.ApplicationContextAware#setApplicationContext(org.springframework.context.ApplicationContext)
+	 */
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext)
+			throws BeansException {
+		locator.setApplicationContext(applicationContext);
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessBeforeInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName)
+			throws BeansException {
+		return locator.postProcessBeforeInitialization(bean, beanName);
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessAfterInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+			throws BeansException {
+		return locator.postProcessAfterInitialization(bean, beanName);
+	}
+
+	/**
+	 * Restricts the beans inspected for listener methods to those whose class
+	 * is in one of the given packages or their subpackages. By default, all
+	 * beans are inspected
+	 * 
+	 * @param basePackages
+	 *            The packages to inspect
+	 */
+	public void setBasePackages(String[] basePackages) {
+		locator.setBasePackages(basePackages);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.spring.broker;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.context.ApplicationContext;
+
+import com.fortuityframework.core.dispatch.BatchEventListener;
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+
+/**
+ * Event listener that dispatches events to Spring Bean methods that accept a
+ * list of event contexts. Single events are passed as a list of one
+ *
+ * @author Jeroen Steenbeeke
+ */
+class SpringBatchEventListener extends SpringEventListener implements
+		BatchEventListener {
+	private final int maxBatchSize;
+
+	/**
+	 * Creates a new batch listener
+	 *
+	 * @param beanName
+	 *            The name of the bean that responds to the events
+	 * @param method
+	 *            The method to invoke
+	 * @param context
+	 *            The context to get the bean from
+	 * @param maxBatchSize
+	 *            The maximum number of events to pass in one invocation
+	 */
+	SpringBatchEventListener(String beanName, Method method,
+			ApplicationContext context, int maxBatchSize) {
+		super(beanName, method, context);
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventListener#dispatchEvent(com.fortuityframework.core.dispatch.EventContext)
+	 */
+	@Override
+	public void dispatchEvent(EventContext<?> context) throws EventException {
+		invoke(Collections.singletonList(context));
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.BatchEventListener#dispatchEvents(java.util.List)
+	 */
+	@Override
+	public void dispatchEvents(List<EventContext<?>> contexts)
+			throws EventException {
+		invoke(contexts);
+	}
+
+	/**
+	 * @see com.fortuityframework.core.dispatch.BatchEventListener#getMaxBatchSize()
+	 */
+	@Override
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.fortuityframework.spring.broker;
 
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -28,21 +29,27 @@ import com.fortuityframework.core.dispatch.EventException;
 import com.fortuityframework.core.dispatch.EventListener;
 
 /**
- * Event listener that dispatches events to annotated Spring Bean methods
- * 
+ * Event listener that dispatches events to annotated Spring Bean methods.
+ * Singleton beans are looked up once, on the first event, after which the
+ * bean and the way to invoke its method are reused. Beans of other scopes
+ * are looked up for every event.
+ *
  * @author Jeroen Steenbeeke
  */
 class SpringEventListener implements EventListener {
 	private final String beanName;
 	private final Method method;
 	private final ApplicationContext applicationContext;
+	private final boolean singleton;
+
+	private volatile Target target;
 
 	private static final Logger log = LoggerFactory
 			.getLogger(SpringEventListener.class);
 
 	/**
 	 * Creates a new Event Listener based on Spring
-	 * 
+	 *
 	 * @param beanName
 	 *            The name of the bean that responds to this event
 	 * @param method
@@ -55,6 +62,15 @@ class SpringEventListener implements EventListener {
 		this.beanName = beanName;
 		this.method = method;
 		this.applicationContext = context;
+		this.singleton = context.isSingleton(beanName);
+
+		try {
+			// Skip the access check on every invocation. Methods found
+			// through getMethods are public, but their class may not be
+			method.setAccessible(true);
+		} catch (SecurityException e) {
+			log.debug("Could not suppress access checks for {}", method);
+		}
 	}
 
 	/**
@@ -62,30 +78,80 @@ class SpringEventListener implements EventListener {
 	 */
 	@Override
 	public void dispatchEvent(EventContext<?> context) throws EventException {
-		Object bean = applicationContext.getBean(beanName);
+		invoke(context);
+	}
+
+	/**
+	 * Invokes the listener method
+	 *
+	 * @param argument
+	 *            The argument to pass to the method
+	 * @throws EventException
+	 *             If the method could not be invoked, or throws an exception
+	 */
+	final void invoke(Object argument) throws EventException {
+		Target current = target;
+
+		if (current == null) {
+			current = new Target(applicationContext.getBean(beanName));
+
+			if (singleton) {
+				target = current;
+			}
+		}
+
+		current.invoke(argument);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return beanName + "." + method.getName();
+	}
+
+	/**
+	 * A bean combined with the means to invoke the listener method on it
+	 */
+	private final class Target {
+		private final Object bean;
+
+		private final InvocationHandler proxyHandler;
+
+		Target(Object bean) {
+			this.bean = bean;
 
-		try {
 			if (!method.getDeclaringClass().isAssignableFrom(bean.getClass())) {
+				this.proxyHandler = Proxy.getInvocationHandler(bean);
+			} else {
+				this.proxyHandler = null;
+			}
+		}
+
+		void invoke(Object argument) throws EventException {
+			if (proxyHandler != null) {
 				try {
-					Proxy.getInvocationHandler(bean).invoke(bean, method,
-							new Object[] { context });
+					proxyHandler.invoke(bean, method, new Object[] { argument });
 				} catch (Throwable e) {
 					throw new EventException("Could not invoke proxy method", e);
 				}
-			} else {
-				method.invoke(bean, context);
+				return;
 			}
-		} catch (IllegalArgumentException e) {
-			log.error("Could not invoke Spring event bean method", e);
-			throw new EventException(e);
-		} catch (IllegalAccessException e) {
-			log.error("Could not invoke Spring event bean method", e);
-			throw new EventException(e);
-		} catch (InvocationTargetException e) {
-			log.error("Could not invoke Spring event bean method", e);
-			throw new EventException(e);
-		}
 
+			try {
+				method.invoke(bean, argument);
+			} catch (IllegalArgumentException e) {
+				log.error("Could not invoke Spring event bean method", e);
+				throw new EventException(e);
+			} catch (IllegalAccessException e) {
+				log.error("Could not invoke Spring event bean method", e);
+				throw new EventException(e);
+			} catch (InvocationTargetException e) {
+				log.error("Could not invoke Spring event bean method", e);
+				throw new EventException(e);
+			}
+		}
 	}
 
 }
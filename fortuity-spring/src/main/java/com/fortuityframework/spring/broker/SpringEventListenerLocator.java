@@ -16,19 +16,28 @@
 package com.fortuityframework.spring.broker;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ApplicationContextEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.ContextStartedEvent;
+import org.springframework.util.ClassUtils;
 
 import com.fortuityframework.core.annotation.ioc.OnFortuityEvent;
+import com.fortuityframework.core.dispatch.CachingEventListenerLocator;
 import com.fortuityframework.core.dispatch.EventContext;
 import com.fortuityframework.core.dispatch.EventListener;
 import com.fortuityframework.core.dispatch.EventListenerLocator;
@@ -37,13 +46,46 @@ import com.fortuityframework.core.event.Event;
 
 /**
  * EventListenerLocator that uses Spring to find responders to various events.
+ * Beans are inspected as they are initialized, rather than by going over
+ * all bean definitions once the context has been refreshed. Only beans that
+ * have not been created by then, such as prototypes and lazy singletons,
+ * have their type looked up from the context. The annotated methods of each
+ * class are found once, and shared by all locators
  * 
  * @author Jeroen Steenbeeke
  * 
  */
 class SpringEventListenerLocator implements
-		ApplicationListener<ApplicationEvent>, EventListenerLocator {
-	private Map<Class<? extends Event<?>>, List<EventListener>> listeners;
+		ApplicationListener<ApplicationEvent>, ApplicationContextAware,
+		BeanPostProcessor, EventListenerLocator {
+	private static final ConcurrentMap<Class<?>, Method[]> listenerMethods = new ConcurrentHashMap<Class<?>, Method[]>();
+
+	private static final Method[] NO_METHODS = new Method[0];
+
+	private volatile ConcurrentMap<Class<? extends Event<?>>, List<EventListener>> listeners;
+
+	private final CachingEventListenerLocator resolved = new CachingEventListenerLocator(
+			new EventListenerLocator() {
+				@Override
+				public List<EventListener> getEventListeners(
+						Class<? extends Event<?>> eventClass) {
+					return resolve(eventClass);
+				}
+			});
+
+	private final Map<String, Method[]> discovered = new ConcurrentHashMap<String, Method[]>();
+
+	private final Set<String> processed = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private final Set<String> registered = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private volatile ApplicationContext context;
+
+	private volatile ApplicationContext owner;
+
+	private volatile String[] packagePrefixes;
 
 	private EventListenerLocator chainedLocator;
 
@@ -52,10 +94,82 @@ class SpringEventListenerLocator implements
 	 * 
 	 */
 	public SpringEventListenerLocator() {
-		listeners = new HashMap<Class<? extends Event<?>>, List<EventListener>>();
+		listeners = new ConcurrentHashMap<Class<? extends Event<?>>, List<EventListener>>();
 		chainedLocator = new NullEventListenerLocator();
 	}
 
+	/**
+	 * Restricts the beans inspected for listener methods to those whose class
+	 * is in one of the given packages or their subpackages
+	 * 
+	 * @param basePackages
+	 *            The packages to inspect, or {@code null} to inspect all
+	 *            beans
+	 */
+	public void setBasePackages(String[] basePackages) {
+		if (basePackages == null || basePackages.length == 0) {
+			packagePrefixes = null;
+			return;
+		}
+
+		String[] prefixes = new String[basePackages.length];
+		for (int i = 0; i < basePackages.length; i++) {
+			prefixes[i] = basePackages[i].trim() + ".";
+		}
+		packagePrefixes = prefixes;
+	}
+
+	/**
+	 * Sets the context this locator belongs to. Child contexts also publish
+	 * their refresh and start events to their parent, and such events of
+	 * other contexts are ignored. Without a context, the locator follows
+	 * whichever context was refreshed or started last
+	 * 
+	 * @see org.springframework.context.ApplicationContextAware#setApplicationContext(org.springframework.context.ApplicationContext)
+	 */
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext)
+			throws BeansException {
+		this.owner = applicationContext;
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessBeforeInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName)
+			throws BeansException {
+		return bean;
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessAfterInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+			throws BeansException {
+		processed.add(beanName);
+
+		Class<?> type = ClassUtils.getUserClass(bean);
+		if (isIncluded(type)) {
+			Method[] methods = getListenerMethods(type);
+			if (methods.length > 0) {
+				discovered.put(beanName, methods);
+
+				// Beans created after the context was refreshed
+				ApplicationContext current = context;
+				if (current != null && current.containsBeanDefinition(beanName)) {
+					register(current, listeners, beanName, methods);
+					resolved.invalidate();
+				}
+			}
+		}
+
+		return bean;
+	}
+
 	/**
 	 * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
 	 */
@@ -63,73 +177,183 @@ class SpringEventListenerLocator implements
 	public void onApplicationEvent(ApplicationEvent event) {
 		if (event instanceof ContextStartedEvent
 				|| event instanceof ContextRefreshedEvent) {
-			ApplicationContext context = ((ApplicationContextEvent) event)
+			ApplicationContext refreshed = ((ApplicationContextEvent) event)
 					.getApplicationContext();
 
-			for (String beanDefinitionName : context.getBeanDefinitionNames()) {
-				Class<?> type = context.getType(beanDefinitionName);
+			ApplicationContext own = owner;
+			if (own != null && own != refreshed) {
+				return;
+			}
+
+			ConcurrentMap<Class<? extends Event<?>>, List<EventListener>> created = new ConcurrentHashMap<Class<? extends Event<?>>, List<EventListener>>();
+			registered.clear();
+
+			for (String beanDefinitionName : refreshed.getBeanDefinitionNames()) {
+				Method[] methods = discovered.get(beanDefinitionName);
 
-				if (type != null && type.getMethods() != null) {
-					for (Method m : type.getMethods()) {
-						registerMethodAsListener(context, beanDefinitionName, m);
-					}
+				if (methods == null && !processed.contains(beanDefinitionName)) {
+					// Not created yet, so not seen by postProcessAfterInitialization
+					Class<?> type = refreshed.getType(beanDefinitionName);
+					methods = type != null && isIncluded(type) ? getListenerMethods(type)
+							: NO_METHODS;
+				}
+
+				if (methods != null && methods.length > 0) {
+					register(refreshed, created, beanDefinitionName, methods);
 				}
 			}
+
+			listeners = created;
+			context = refreshed;
+			resolved.invalidate();
 		}
 
 	}
 
-	private void registerMethodAsListener(ApplicationContext context,
-			String beanDefinitionName, Method m) {
-		OnFortuityEvent eventRef = m.getAnnotation(OnFortuityEvent.class);
-		if (eventRef != null) {
-			Class<?>[] paramTypes = m.getParameterTypes();
-			if (paramTypes.length == 1
-					&& EventContext.class.isAssignableFrom(paramTypes[0])) {
-				Class<? extends Event<?>>[] events = getEvents(eventRef);
-
-				for (Class<? extends Event<?>> eventClass : events) {
-					registerListener(eventClass, beanDefinitionName, m, context);
+	private boolean isIncluded(Class<?> type) {
+		String[] prefixes = packagePrefixes;
+		if (prefixes == null) {
+			return true;
+		}
+
+		String name = type.getName();
+		for (String prefix : prefixes) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the listener methods of the given class, inspecting the class if
+	 * it has not been inspected before
+	 * 
+	 * @param type
+	 *            The class to inspect
+	 * @return The methods annotated with {@link OnFortuityEvent} that take
+	 *         either an event context or a list of them. Classes without such
+	 *         methods all share the same empty array
+	 */
+	static Method[] getListenerMethods(Class<?> type) {
+		Method[] methods = listenerMethods.get(type);
+
+		if (methods == null) {
+			methods = findListenerMethods(type);
+			listenerMethods.putIfAbsent(type, methods);
+		}
+
+		return methods;
+	}
+
+	private static Method[] findListenerMethods(Class<?> type) {
+		List<Method> result = new ArrayList<Method>();
+
+		for (Method m : type.getMethods()) {
+			if (m.isAnnotationPresent(OnFortuityEvent.class)) {
+				Class<?>[] paramTypes = m.getParameterTypes();
+				if (paramTypes.length == 1
+						&& (EventContext.class.isAssignableFrom(paramTypes[0]) || paramTypes[0] == List.class)) {
+					result.add(m);
 				}
 			}
 		}
+
+		return result.isEmpty() ? NO_METHODS : result
+				.toArray(new Method[result.size()]);
+	}
+
+	private void register(ApplicationContext context,
+			ConcurrentMap<Class<? extends Event<?>>, List<EventListener>> target,
+			String beanDefinitionName, Method[] methods) {
+		if (!registered.add(beanDefinitionName)) {
+			return;
+		}
+
+		for (Method m : methods) {
+			OnFortuityEvent eventRef = m.getAnnotation(OnFortuityEvent.class);
+
+			EventListener listener;
+			if (m.getParameterTypes()[0] == List.class) {
+				listener = new SpringBatchEventListener(beanDefinitionName, m,
+						context, eventRef.maxBatchSize());
+			} else {
+				listener = new SpringEventListener(beanDefinitionName, m,
+						context);
+			}
+
+			for (Class<? extends Event<?>> eventClass : getEvents(eventRef)) {
+				registerListener(target, eventClass, listener);
+			}
+		}
 	}
 
+	@SuppressWarnings("unchecked")
 	private Class<? extends Event<?>>[] getEvents(OnFortuityEvent eventRef) {
 		Class<? extends Event<?>>[] events = (Class<? extends Event<?>>[]) eventRef
 				.value();
 		return events;
 	}
 
-	private void registerListener(Class<? extends Event<?>> eventClass,
-			String beanName, Method method, ApplicationContext context) {
-		if (!listeners.containsKey(eventClass)) {
-			listeners.put(eventClass, new LinkedList<EventListener>());
+	private void registerListener(
+			ConcurrentMap<Class<? extends Event<?>>, List<EventListener>> target,
+			Class<? extends Event<?>> eventClass, EventListener listener) {
+		List<EventListener> eventListeners = target.get(eventClass);
+		if (eventListeners == null) {
+			List<EventListener> created = new CopyOnWriteArrayList<EventListener>();
+			eventListeners = target.putIfAbsent(eventClass, created);
+			if (eventListeners == null) {
+				eventListeners = created;
+			}
 		}
 
-		listeners.get(eventClass).add(
-				new SpringEventListener(beanName, method, context));
+		eventListeners.add(listener);
 	}
 
+	/**
+	 * @see com.fortuityframework.core.dispatch.EventListenerLocator#getEventListeners(java.lang.Class)
+	 */
 	@Override
 	public List<EventListener> getEventListeners(
 			Class<? extends Event<?>> eventClass) {
-		List<EventListener> result = new LinkedList<EventListener>();
+		List<EventListener> springListeners = resolved
+				.getEventListeners(eventClass);
+
+		List<EventListener> chained = chainedLocator
+				.getEventListeners(eventClass);
+		if (chained.isEmpty()) {
+			return springListeners;
+		}
+
+		List<EventListener> result = new ArrayList<EventListener>(
+				springListeners.size() + chained.size());
+		result.addAll(springListeners);
+		result.addAll(chained);
+
+		return result;
+	}
+
+	/**
+	 * Collects the listeners registered for the given event class and its
+	 * superclasses
+	 */
+	private List<EventListener> resolve(Class<? extends Event<?>> eventClass) {
+		List<EventListener> result = new ArrayList<EventListener>();
 
 		Class<?> next = eventClass;
 
-		while (listeners.containsKey(next)) {
-			result.addAll(listeners.get(eventClass));
+		Map<Class<? extends Event<?>>, List<EventListener>> current = listeners;
 
-			if (!Event.class.isAssignableFrom(next.getSuperclass())) {
-				break;
+		while (next != null && Event.class.isAssignableFrom(next)) {
+			List<EventListener> registered = current.get(next);
+			if (registered != null) {
+				result.addAll(registered);
 			}
 
 			next = next.getSuperclass();
 		}
 
-		result.addAll(chainedLocator.getEventListeners(eventClass));
-
 		return result;
 	}
 
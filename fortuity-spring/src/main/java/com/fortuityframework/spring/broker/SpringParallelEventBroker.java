@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.spring.broker;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.dispatch.broker.ParallelEventBroker;
+
+/**
+ * Parallel Event broker for use with the Spring framework. The executor to
+ * process events on and the maximum number of events processed at the same
+ * time are passed as constructor arguments:
+ *
+ * {@code <bean id="eventBroker" class="com.fortuityframework.spring.broker.SpringParallelEventBroker"><constructor-arg ref="taskExecutor"/><constructor-arg value="16"/></bean>}
+ *
+ * @author Jeroen Steenbeeke
+ *
+ */
+public class SpringParallelEventBroker extends ParallelEventBroker implements
+		ApplicationListener<ApplicationEvent>, ApplicationContextAware,
+		BeanPostProcessor {
+	private final SpringEventListenerLocator locator = new SpringEventListenerLocator();
+
+	/**
+	 * Create a new Spring parallel event broker that does not chain the events
+	 * after processing by Spring
+	 *
+	 * @param executor
+	 *            The executor to process events on
+	 * @param maxConcurrency
+	 *            The maximum number of events processed at the same time
+	 */
+	public SpringParallelEventBroker(Executor executor, int maxConcurrency) {
+		super(executor, maxConcurrency);
+		setEventListenerLocator(locator);
+	}
+
+	/**
+	 * Create a new Spring parallel event broker that chains the events to an
+	 * additional locator after processing by Spring
+	 *
+	 * @param executor
+	 *            The executor to process events on
+	 * @param maxConcurrency
+	 *            The maximum number of events processed at the same time
+	 * @param chainedLocator
+	 *            The locator to chain to
+	 */
+	public SpringParallelEventBroker(Executor executor, int maxConcurrency,
+			EventListenerLocator chainedLocator) {
+		super(executor, maxConcurrency);
+		locator.setChainedLocator(chainedLocator);
+		setEventListenerLocator(locator);
+	}
+
+	/**
+	 * @see org.springframework.context.ApplicationListener#onApplicationEvent(org.springframework.context.ApplicationEvent)
+	 */
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		locator.onApplicationEvent(event);
+	}
+
+	/**
+	 * @see org.springframework.context.ApplicationContextAware#setApplicationContext(org.springframework.context.ApplicationContext)
+	 */
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext)
+			throws BeansException {
+		locator.setApplicationContext(applicationContext);
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessBeforeInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName)
+			throws BeansException {
+		return locator.postProcessBeforeInitialization(bean, beanName);
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessAfterInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+			throws BeansException {
+		return locator.postProcessAfterInitialization(bean, beanName);
+	}
+
+	/**
+	 * Restricts the beans inspected for listener methods to those whose class
+	 * is in one of the given packages or their subpackages. By default, all
+	 * beans are inspected
+	 * 
+	 * @param basePackages
+	 *            The packages to inspect
+	 */
+	public void setBasePackages(String[] basePackages) {
+		locator.setBasePackages(basePackages);
+	}
+}
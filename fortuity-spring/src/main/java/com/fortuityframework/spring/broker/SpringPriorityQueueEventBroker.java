@@ -15,13 +15,14 @@
  */
 package com.fortuityframework.spring.broker;
 
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
-import org.springframework.context.event.ContextRefreshedEvent;
-import org.springframework.context.event.ContextStartedEvent;
 
 import com.fortuityframework.core.dispatch.EventListenerLocator;
-import com.fortuityframework.core.dispatch.NullEventListenerLocator;
 import com.fortuityframework.core.dispatch.broker.PriorityQueueEventBroker;
 
 /**
@@ -34,14 +35,15 @@ import com.fortuityframework.core.dispatch.broker.PriorityQueueEventBroker;
  * 
  */
 public class SpringPriorityQueueEventBroker extends PriorityQueueEventBroker
-		implements ApplicationListener<ApplicationEvent> {
-	private EventListenerLocator chainedLocator;
+		implements ApplicationListener<ApplicationEvent>,
+		ApplicationContextAware, BeanPostProcessor {
+	private final SpringEventListenerLocator locator = new SpringEventListenerLocator();
 
 	/**
 	 * Create a new Spring Priority Queue Event Broker
 	 */
 	public SpringPriorityQueueEventBroker() {
-		this.chainedLocator = new NullEventListenerLocator();
+		setEventListenerLocator(locator);
 	}
 
 	/**
@@ -53,7 +55,8 @@ public class SpringPriorityQueueEventBroker extends PriorityQueueEventBroker
 	 */
 	public SpringPriorityQueueEventBroker(EventListenerLocator chainedLocator) {
 		super();
-		this.chainedLocator = chainedLocator;
+		locator.setChainedLocator(chainedLocator);
+		setEventListenerLocator(locator);
 	}
 
 	/**
@@ -61,12 +64,47 @@ public class SpringPriorityQueueEventBroker extends PriorityQueueEventBroker
 	 */
 	@Override
 	public void onApplicationEvent(ApplicationEvent event) {
-		if (event instanceof ContextStartedEvent
-				|| event instanceof ContextRefreshedEvent) {
-			SpringEventListenerLocator locator = new SpringEventListenerLocator();
-			locator.onApplicationEvent(event);
-			locator.setChainedLocator(chainedLocator);
-			setEventListenerLocator(locator);
-		}
+		locator.onApplicationEvent(event);
+	}
+
+	/**
+	 * @see org.springframework.context.ApplicationContextAware#setApplicationContext(org.springframework.context.ApplicationContext)
+	 */
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext)
+			throws BeansException {
+		locator.setApplicationContext(applicationContext);
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessBeforeInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName)
+			throws BeansException {
+		return locator.postProcessBeforeInitialization(bean, beanName);
+	}
+
+	/**
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessAfterInitialization(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+			throws BeansException {
+		return locator.postProcessAfterInitialization(bean, beanName);
+	}
+
+	/**
+	 * Restricts the beans inspected for listener methods to those whose class
+	 * is in one of the given packages or their subpackages. By default, all
+	 * beans are inspected
+	 * 
+	 * @param basePackages
+	 *            The packages to inspect
+	 */
+	public void setBasePackages(String[] basePackages) {
+		locator.setBasePackages(basePackages);
 	}
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.spring.broker;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.fortuityframework.spring.broker.events.MessageEvent;
+import com.fortuityframework.spring.broker.events.ResponseEvent;
+
+/**
+ * Tests the discovery of listener beans by SpringEventListenerLocator
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class SpringEventListenerLocatorTest {
+	private GenericApplicationContext applicationContext;
+
+	private SpringEventListenerLocator locator;
+
+	/**
+	 * Creates an application context that has not been refreshed yet
+	 */
+	@Before
+	public void createContext() {
+		locator = new SpringEventListenerLocator();
+
+		applicationContext = new GenericApplicationContext();
+		applicationContext.getBeanFactory().addBeanPostProcessor(locator);
+		applicationContext.addApplicationListener(locator);
+	}
+
+	/**
+	 * Closes the application context
+	 */
+	@After
+	public void closeContext() {
+		applicationContext.close();
+	}
+
+	/**
+	 * Tests that singletons are found as they are created
+	 */
+	@Test
+	public void testSingleton() {
+		applicationContext.registerBeanDefinition("responder",
+				new RootBeanDefinition(Responder.class));
+		applicationContext.refresh();
+
+		assertEquals(1, locator.getEventListeners(MessageEvent.class).size());
+		assertEquals(1, locator.getEventListeners(ResponseEvent.class).size());
+	}
+
+	/**
+	 * Tests that lazy and prototype beans are found without creating them,
+	 * and are not registered again once they are created
+	 */
+	@Test
+	public void testLazyAndPrototype() {
+		RootBeanDefinition lazy = new RootBeanDefinition(Responder.class);
+		lazy.setLazyInit(true);
+
+		RootBeanDefinition prototype = new RootBeanDefinition(Responder.class);
+		prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+
+		applicationContext.registerBeanDefinition("lazy", lazy);
+		applicationContext.registerBeanDefinition("prototype", prototype);
+		applicationContext.refresh();
+
+		assertFalse(applicationContext.getBeanFactory().containsSingleton(
+				"lazy"));
+		assertEquals(2, locator.getEventListeners(MessageEvent.class).size());
+
+		applicationContext.getBean("lazy");
+		applicationContext.getBean("prototype");
+		applicationContext.getBean("prototype");
+
+		assertEquals(2, locator.getEventListeners(MessageEvent.class).size());
+	}
+
+	/**
+	 * Tests that beans outside the configured packages are ignored
+	 */
+	@Test
+	public void testBasePackages() {
+		locator.setBasePackages(new String[] { "com.fortuityframework.spring.broker.events" });
+
+		applicationContext.registerBeanDefinition("responder",
+				new RootBeanDefinition(Responder.class));
+		applicationContext.refresh();
+
+		assertTrue(locator.getEventListeners(MessageEvent.class).isEmpty());
+	}
+
+	/**
+	 * Tests that the listener methods of each class are found once, and that
+	 * classes without listener methods share a single empty result
+	 */
+	@Test
+	public void testListenerMethods() {
+		assertEquals(2,
+				SpringEventListenerLocator.getListenerMethods(Responder.class).length);
+		assertSame(SpringEventListenerLocator.getListenerMethods(Responder.class),
+				SpringEventListenerLocator.getListenerMethods(Responder.class));
+		assertEquals(0,
+				SpringEventListenerLocator.getListenerMethods(String.class).length);
+		assertSame(SpringEventListenerLocator.getListenerMethods(String.class),
+				SpringEventListenerLocator.getListenerMethods(Integer.class));
+	}
+
+	/**
+	 * Tests that events reach beans found through a broker
+	 *
+	 * @throws Exception
+	 *             If dispatching fails
+	 */
+	@Test
+	public void testBroker() throws Exception {
+		RootBeanDefinition lazy = new RootBeanDefinition(Responder.class);
+		lazy.setLazyInit(true);
+
+		applicationContext.registerBeanDefinition("responder", lazy);
+		applicationContext.registerBeanDefinition("eventBroker",
+				new RootBeanDefinition(SpringFIFOQueueEventBroker.class));
+		applicationContext.refresh();
+
+		SpringFIFOQueueEventBroker broker = applicationContext.getBean(
+				"eventBroker", SpringFIFOQueueEventBroker.class);
+		broker.dispatchEvent(new MessageEvent("first"));
+
+		Responder responder = applicationContext.getBean("responder",
+				Responder.class);
+		List<String> queue = responder.getQueue();
+		assertEquals(1, queue.size());
+
+		broker.dispatchEvent(new MessageEvent("second"));
+		assertEquals(1, queue.size());
+		assertEquals("second", queue.get(0));
+	}
+
+	/**
+	 * Tests that refreshing a child context, which also publishes its refresh
+	 * event to the parent, does not replace the listeners of the parent's
+	 * broker
+	 *
+	 * @throws Exception
+	 *             If dispatching fails
+	 */
+	@Test
+	public void testChildContext() throws Exception {
+		applicationContext.registerBeanDefinition("responder",
+				new RootBeanDefinition(Responder.class));
+		applicationContext.registerBeanDefinition("eventBroker",
+				new RootBeanDefinition(SpringFIFOQueueEventBroker.class));
+		applicationContext.refresh();
+
+		GenericApplicationContext child = new GenericApplicationContext(
+				applicationContext);
+		child.registerBeanDefinition("other", new RootBeanDefinition(
+				Object.class));
+		try {
+			child.refresh();
+
+			SpringFIFOQueueEventBroker broker = applicationContext.getBean(
+					"eventBroker", SpringFIFOQueueEventBroker.class);
+			broker.dispatchEvent(new MessageEvent("first"));
+
+			Responder responder = applicationContext.getBean("responder",
+					Responder.class);
+			assertEquals(1, responder.getQueue().size());
+		} finally {
+			child.close();
+		}
+	}
+}
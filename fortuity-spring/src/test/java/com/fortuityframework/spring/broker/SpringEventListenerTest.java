@@ -0,0 +1,180 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.spring.broker;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.event.Event;
+import com.fortuityframework.spring.broker.events.MessageEvent;
+
+/**
+ * Tests the bean lookup behavior of SpringEventListener
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class SpringEventListenerTest {
+	private static final Set<Object> receivers = Collections
+			.synchronizedSet(Collections
+					.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+
+	private static final List<Integer> batchSizes = Collections
+			.synchronizedList(new ArrayList<Integer>());
+
+	private GenericApplicationContext applicationContext;
+
+	/**
+	 * Bean that remembers which instances received events
+	 */
+	public static class ReceivingBean {
+		/**
+		 * Receives an event
+		 *
+		 * @param context
+		 *            The context of the event
+		 */
+		public void onEvent(EventContext<MessageEvent> context) {
+			receivers.add(this);
+		}
+
+		/**
+		 * Receives several events
+		 *
+		 * @param contexts
+		 *            The contexts of the events
+		 */
+		public void onEvents(List<EventContext<MessageEvent>> contexts) {
+			batchSizes.add(contexts.size());
+		}
+	}
+
+	/**
+	 * Creates an application context with a singleton and a prototype bean
+	 */
+	@Before
+	public void createContext() {
+		receivers.clear();
+		batchSizes.clear();
+
+		RootBeanDefinition prototype = new RootBeanDefinition(
+				ReceivingBean.class);
+		prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+
+		applicationContext = new GenericApplicationContext();
+		applicationContext.registerBeanDefinition("singleton",
+				new RootBeanDefinition(ReceivingBean.class));
+		applicationContext.registerBeanDefinition("prototype", prototype);
+		applicationContext.refresh();
+	}
+
+	/**
+	 * Closes the application context
+	 */
+	@After
+	public void closeContext() {
+		applicationContext.close();
+	}
+
+	/**
+	 * Tests that singleton beans are reused
+	 *
+	 * @throws Exception
+	 *             If the listener method cannot be found
+	 */
+	@Test
+	public void testSingleton() throws Exception {
+		SpringEventListener listener = createListener("singleton");
+
+		listener.dispatchEvent(createEventContext());
+		listener.dispatchEvent(createEventContext());
+
+		assertEquals(1, receivers.size());
+		assertTrue(receivers.contains(applicationContext.getBean("singleton")));
+	}
+
+	/**
+	 * Tests that prototype beans are looked up for every event
+	 *
+	 * @throws Exception
+	 *             If the listener method cannot be found
+	 */
+	@Test
+	public void testPrototype() throws Exception {
+		SpringEventListener listener = createListener("prototype");
+
+		listener.dispatchEvent(createEventContext());
+		listener.dispatchEvent(createEventContext());
+
+		assertEquals(2, receivers.size());
+	}
+
+	/**
+	 * Tests that methods taking a list of contexts receive batches, and
+	 * single events as a list of one
+	 *
+	 * @throws Exception
+	 *             If the listener method cannot be found
+	 */
+	@Test
+	public void testBatch() throws Exception {
+		SpringBatchEventListener listener = new SpringBatchEventListener(
+				"singleton", ReceivingBean.class.getMethod("onEvents",
+						List.class), applicationContext, 10);
+
+		listener.dispatchEvent(createEventContext());
+		listener.dispatchEvents(Arrays.<EventContext<?>> asList(
+				createEventContext(), createEventContext()));
+
+		assertEquals(10, listener.getMaxBatchSize());
+		assertEquals(Arrays.asList(1, 2), batchSizes);
+	}
+
+	private SpringEventListener createListener(String beanName)
+			throws NoSuchMethodException {
+		return new SpringEventListener(beanName, ReceivingBean.class.getMethod(
+				"onEvent", EventContext.class), applicationContext);
+	}
+
+	private EventContext<MessageEvent> createEventContext() {
+		final MessageEvent event = new MessageEvent("test");
+
+		return new EventContext<MessageEvent>() {
+			@Override
+			public MessageEvent getEvent() {
+				return event;
+			}
+
+			@Override
+			public void triggerEvent(Event<?> triggered) {
+				// Not used
+			}
+		};
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.fortuityframework.wicket;
 
+import org.apache.wicket.Application;
 import org.apache.wicket.Component;
 import org.apache.wicket.application.IComponentInstantiationListener;
 
@@ -31,12 +32,18 @@ public class FortuityComponentInstantiationListener implements
 
 	/**
 	 * Creates a new Fortuity instantiation listener that will listen for Wicket component instantiation, and
-	 * scans the component for fortuity event responder methods
+	 * scans the component for fortuity event responder methods. If created while an application is
+	 * initialized, the locator is bound to it right away, rather than when the first component with
+	 * event responder methods is created
 	 * @param locator The WicketEventListenerLocator to delegate components to 
 	 */
 	public FortuityComponentInstantiationListener(
 			WicketEventListenerLocator locator) {
 		this.locator = locator;
+
+		if (Application.exists()) {
+			locator.bind(Application.get());
+		}
 	}
 
 	/**
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.Session;
+import org.apache.wicket.application.IComponentOnBeforeRenderListener;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.handler.IPageRequestHandler;
+
+/**
+ * Request cycle listener that handles the parts of event delivery tied to
+ * the request:
+ * <ul>
+ * <li>The events waiting in a page's mailbox are delivered when the page is
+ * requested, before the request is handled</li>
+ * <li>If batch delivery is enabled on the WicketEventListenerLocator, the
+ * events raised while handling a request are delivered in one go, before
+ * anything is rendered or, failing that, after the request handler</li>
+ * <li>Components that received events are detached once, at the end of the
+ * request, rather than after every event</li>
+ * </ul>
+ * To use it, add the following to your WicketApplication's init() method:
+ * 
+ * <pre>
+ * {@code
+ * FortuityRequestCycleListener listener = new FortuityRequestCycleListener(locator);
+ * getRequestCycleListeners().add(listener);
+ * getComponentPreOnBeforeRenderListeners().add(listener);
+ * }
+ * </pre>
+ * 
+ * @author Jeroen Steenbeeke
+ * 
+ */
+public class FortuityRequestCycleListener extends AbstractRequestCycleListener
+		implements IComponentOnBeforeRenderListener {
+	private final WicketEventListenerLocator locator;
+
+	/**
+	 * Creates a new request cycle listener for the given locator
+	 * 
+	 * @param locator
+	 *            The locator whose mailboxes should be delivered
+	 */
+	public FortuityRequestCycleListener(WicketEventListenerLocator locator) {
+		this.locator = locator;
+	}
+
+	/**
+	 * @see org.apache.wicket.request.cycle.AbstractRequestCycleListener#onBeginRequest(org.apache.wicket.request.cycle.RequestCycle)
+	 */
+	@Override
+	public void onBeginRequest(RequestCycle cycle) {
+		RequestBatch.begin(cycle);
+	}
+
+	/**
+	 * @see org.apache.wicket.request.cycle.AbstractRequestCycleListener#onRequestHandlerResolved(org.apache.wicket.request.cycle.RequestCycle,
+	 *      org.apache.wicket.request.IRequestHandler)
+	 */
+	@Override
+	public void onRequestHandlerResolved(RequestCycle cycle,
+			IRequestHandler handler) {
+		if (handler instanceof IPageRequestHandler && Session.exists()) {
+			String sessionId = Session.get().getId();
+			Integer pageId = ((IPageRequestHandler) handler).getPageId();
+
+			if (sessionId != null && pageId != null) {
+				locator.deliverMail(sessionId, pageId);
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.application.IComponentOnBeforeRenderListener#onBeforeRender(org.apache.wicket.Component)
+	 */
+	@Override
+	public void onBeforeRender(Component component) {
+		RequestBatch batch = RequestBatch.get();
+		if (batch != null) {
+			batch.deliver();
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.request.cycle.AbstractRequestCycleListener#onRequestHandlerExecuted(org.apache.wicket.request.cycle.RequestCycle,
+	 *      org.apache.wicket.request.IRequestHandler)
+	 */
+	@Override
+	public void onRequestHandlerExecuted(RequestCycle cycle,
+			IRequestHandler handler) {
+		RequestBatch batch = RequestBatch.get(cycle);
+		if (batch != null) {
+			batch.deliver();
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.request.cycle.AbstractRequestCycleListener#onEndRequest(org.apache.wicket.request.cycle.RequestCycle)
+	 */
+	@Override
+	public void onEndRequest(RequestCycle cycle) {
+		RequestBatch batch = RequestBatch.get(cycle);
+		if (batch != null) {
+			batch.deliver();
+			batch.detach();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.fortuityframework.core.dispatch.EventContext;
+
+/**
+ * Bounded queue of events waiting to be delivered to the listeners on a
+ * page. When full, the oldest event is dropped to make room for the newest.
+ * Optionally, a new event replaces any earlier event of the same class for
+ * the same listener
+ *
+ * @param <L>
+ *            The type of listener
+ *
+ * @author Jeroen Steenbeeke
+ */
+final class Mailbox<L> {
+	private LinkedList<Mail<L>> mail;
+
+	/**
+	 * Adds an event to the mailbox
+	 *
+	 * @param listener
+	 *            The listener to deliver the event to
+	 * @param context
+	 *            The context of the event
+	 * @param capacity
+	 *            The maximum number of events in the mailbox
+	 * @param coalesce
+	 *            Whether or not to replace earlier events of the same class
+	 *            for the same listener
+	 * @return The event that was dropped to make room, or {@code null} if
+	 *         none was
+	 */
+	synchronized Mail<L> post(L listener, EventContext<?> context,
+			int capacity, boolean coalesce) {
+		if (mail == null) {
+			mail = new LinkedList<Mail<L>>();
+		}
+
+		if (coalesce) {
+			Class<?> eventClass = context.getEvent().getClass();
+
+			Iterator<Mail<L>> iterator = mail.iterator();
+			while (iterator.hasNext()) {
+				Mail<L> next = iterator.next();
+				if (next.listener == listener
+						&& next.context.getEvent().getClass() == eventClass) {
+					iterator.remove();
+					break;
+				}
+			}
+		}
+
+		mail.add(new Mail<L>(listener, context));
+
+		return mail.size() > capacity ? mail.removeFirst() : null;
+	}
+
+	/**
+	 * Takes all events out of the mailbox
+	 *
+	 * @return The events in the order they were posted
+	 */
+	synchronized List<Mail<L>> take() {
+		if (mail == null || mail.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<Mail<L>> result = new ArrayList<Mail<L>>(mail);
+		mail.clear();
+
+		return result;
+	}
+
+	/**
+	 * An event waiting to be delivered to a listener
+	 *
+	 * @param <L>
+	 *            The type of listener
+	 */
+	static final class Mail<L> {
+		final L listener;
+
+		final EventContext<?> context;
+
+		Mail(L listener, EventContext<?> context) {
+			this.listener = listener;
+			this.context = context;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.dispatch.EventException;
+import com.fortuityframework.core.dispatch.EventListener;
+
+/**
+ * The events raised for components during a single request, and the
+ * components that received events. Kept as metadata of the request cycle by
+ * the {@link FortuityRequestCycleListener}, which delivers the events and
+ * detaches the components once the request has been handled
+ *
+ * @author Jeroen Steenbeeke
+ */
+final class RequestBatch {
+	private static final MetaDataKey<RequestBatch> KEY = new MetaDataKey<RequestBatch>() {
+		private static final long serialVersionUID = 1L;
+	};
+
+	private static final Logger log = LoggerFactory
+			.getLogger(RequestBatch.class);
+
+	private List<Mailbox.Mail<EventListener>> pending = new ArrayList<Mailbox.Mail<EventListener>>();
+
+	private final Set<Component> touched = Collections
+			.newSetFromMap(new IdentityHashMap<Component, Boolean>());
+
+	/**
+	 * Starts a new batch for the given request cycle
+	 *
+	 * @param cycle
+	 *            The request cycle
+	 */
+	static void begin(RequestCycle cycle) {
+		cycle.setMetaData(KEY, new RequestBatch());
+	}
+
+	/**
+	 * @return The batch of the current request cycle, or {@code null} if
+	 *         there is no request cycle, or no FortuityRequestCycleListener
+	 *         is registered
+	 */
+	static RequestBatch get() {
+		RequestCycle cycle = RequestCycle.get();
+
+		return cycle != null ? cycle.getMetaData(KEY) : null;
+	}
+
+	/**
+	 * @param cycle
+	 *            The request cycle
+	 * @return The batch of the given request cycle, or {@code null} if there
+	 *         is none
+	 */
+	static RequestBatch get(RequestCycle cycle) {
+		return cycle.getMetaData(KEY);
+	}
+
+	/**
+	 * Adds an event to deliver once the current request handler is done
+	 *
+	 * @param listener
+	 *            The listener to deliver the event to
+	 * @param context
+	 *            The context of the event
+	 */
+	void add(EventListener listener, EventContext<?> context) {
+		pending.add(new Mailbox.Mail<EventListener>(listener, context));
+	}
+
+	/**
+	 * Registers a component that received an event, and should be detached
+	 * at the end of the request
+	 *
+	 * @param component
+	 *            The component
+	 */
+	void touched(Component component) {
+		touched.add(component);
+	}
+
+	/**
+	 * Delivers all pending events, including any events raised while doing
+	 * so. Failures are logged, as the broker that dispatched the events is
+	 * no longer involved
+	 */
+	void deliver() {
+		while (!pending.isEmpty()) {
+			List<Mailbox.Mail<EventListener>> current = pending;
+			pending = new ArrayList<Mailbox.Mail<EventListener>>();
+
+			for (Mailbox.Mail<EventListener> mail : current) {
+				try {
+					mail.listener.dispatchEvent(mail.context);
+				} catch (EventException e) {
+					log.error("Could not deliver event", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Detaches every component that received an event, once
+	 */
+	void detach() {
+		for (Component component : touched) {
+			if (component.hasBeenRendered()) {
+				component.detach();
+			}
+		}
+
+		touched.clear();
+	}
+}
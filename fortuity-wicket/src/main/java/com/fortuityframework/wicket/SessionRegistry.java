@@ -0,0 +1,345 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.fortuityframework.core.dispatch.EventContext;
+
+/**
+ * Keeps track of the sessions that contain event listening components, the
+ * last page rendered in each of them, and the listeners on that page indexed
+ * by event class. Events may be left in a mailbox for the last page, to be
+ * delivered when the page is next requested. Only the listeners and mailbox
+ * of the last page are kept: rendering a newer page discards those of the
+ * previous one in one go. Sessions are only
+ * weakly referenced. An entry is removed when its session is unbound, or when
+ * the session has been garbage collected, whichever comes first
+ *
+ * @param <S>
+ *            The type of session
+ * @param <L>
+ *            The type of listener
+ *
+ * @author Jeroen Steenbeeke
+ */
+final class SessionRegistry<S, L> {
+	private final ConcurrentMap<String, Entry<S, L>> entries = new ConcurrentHashMap<String, Entry<S, L>>();
+
+	private final ReferenceQueue<S> collected = new ReferenceQueue<S>();
+
+	/**
+	 * Registers a session, unless it is already registered. If a different
+	 * session with the same ID is registered, it is replaced
+	 *
+	 * @param id
+	 *            The ID of the session
+	 * @param session
+	 *            The session
+	 */
+	void register(String id, S session) {
+		expunge();
+
+		Entry<S, L> entry = entries.get(id);
+		while (entry == null || entry.get() != session) {
+			// A different instance with the same ID, for instance after
+			// deserialization, starts without pages. Its listeners will
+			// register again when their pages are rendered
+			Entry<S, L> created = new Entry<S, L>(id, session, collected);
+
+			if (entry == null) {
+				entry = entries.putIfAbsent(id, created);
+				if (entry == null) {
+					return;
+				}
+			} else if (entries.replace(id, entry, created)) {
+				return;
+			} else {
+				entry = entries.get(id);
+			}
+		}
+	}
+
+	/**
+	 * @param id
+	 *            The ID of the session
+	 * @return The session with the given ID, or {@code null} if it is not
+	 *         registered or no longer exists
+	 */
+	S get(String id) {
+		expunge();
+
+		Entry<S, L> entry = entries.get(id);
+
+		return entry != null ? entry.get() : null;
+	}
+
+	/**
+	 * Records that a page has been rendered in the given session. Only the
+	 * most recent page, which is the one with the highest ID, is remembered.
+	 * If the page is newer than the last one, the listeners of the last page
+	 * are discarded
+	 *
+	 * @param id
+	 *            The ID of the session
+	 * @param pageId
+	 *            The ID of the rendered page
+	 */
+	void pageRendered(String id, int pageId) {
+		Entry<S, L> entry = entries.get(id);
+
+		if (entry != null) {
+			PageListeners<L> last = entry.page.get();
+			while (last.pageId < pageId
+					&& !entry.page.compareAndSet(last, new PageListeners<L>(
+							pageId))) {
+				last = entry.page.get();
+			}
+		}
+	}
+
+	/**
+	 * @param id
+	 *            The ID of the session
+	 * @param pageId
+	 *            The ID of a page
+	 * @return {@code true} if the given page is the last page rendered in
+	 *         the given session, {@code false} otherwise
+	 */
+	boolean isLastPage(String id, int pageId) {
+		Entry<S, L> entry = entries.get(id);
+
+		return entry != null && entry.page.get().pageId == pageId;
+	}
+
+	/**
+	 * Adds a listener to a page. The listener is only kept if the page is the
+	 * last page rendered in the session. A listener added earlier with the
+	 * same key and event class, such as the original of a deserialized copy,
+	 * is replaced
+	 *
+	 * @param id
+	 *            The ID of the session
+	 * @param pageId
+	 *            The ID of the page containing the listener
+	 * @param eventClass
+	 *            The class of event the listener responds to
+	 * @param key
+	 *            The key that identifies the listener within the page
+	 * @param listener
+	 *            The listener
+	 */
+	void addListener(String id, int pageId, Class<?> eventClass, Object key,
+			L listener) {
+		Entry<S, L> entry = entries.get(id);
+
+		if (entry != null) {
+			PageListeners<L> page = entry.page.get();
+			if (page.pageId == pageId) {
+				page.add(eventClass, key, listener);
+			}
+		}
+	}
+
+	/**
+	 * Adds the listeners of the last page of the given session that respond
+	 * to any of the given event classes to a collection
+	 *
+	 * @param id
+	 *            The ID of the session
+	 * @param eventClasses
+	 *            The event classes
+	 * @param result
+	 *            The collection to add the listeners to
+	 */
+	void collectListeners(String id, Iterable<Class<?>> eventClasses,
+			Collection<? super L> result) {
+		Entry<S, L> entry = entries.get(id);
+
+		if (entry != null && entry.get() != null) {
+			entry.page.get().collect(eventClasses, result);
+		}
+	}
+
+	/**
+	 * Adds the listeners of the last page of every session that respond to
+	 * any of the given event classes to a collection
+	 *
+	 * @param eventClasses
+	 *            The event classes
+	 * @param result
+	 *            The collection to add the listeners to
+	 */
+	void collectListeners(Iterable<Class<?>> eventClasses,
+			Collection<? super L> result) {
+		expunge();
+
+		for (Entry<S, L> entry : entries.values()) {
+			if (entry.get() != null) {
+				entry.page.get().collect(eventClasses, result);
+			}
+		}
+	}
+
+	/**
+	 * Leaves an event in the mailbox of a page, provided the page is the last
+	 * page rendered in the session
+	 *
+	 * @param id
+	 *            The ID of the session
+	 * @param pageId
+	 *            The ID of the page containing the listener
+	 * @param listener
+	 *            The listener to deliver the event to
+	 * @param context
+	 *            The context of the event
+	 * @param capacity
+	 *            The maximum number of events in the mailbox
+	 * @param coalesce
+	 *            Whether or not to replace earlier events of the same class
+	 *            for the same listener
+	 * @return The event that was dropped to make room, or {@code null} if
+	 *         none was
+	 */
+	Mailbox.Mail<L> post(String id, int pageId, L listener,
+			EventContext<?> context, int capacity, boolean coalesce) {
+		Entry<S, L> entry = entries.get(id);
+
+		if (entry != null) {
+			PageListeners<L> page = entry.page.get();
+			if (page.pageId == pageId) {
+				return page.mailbox.post(listener, context, capacity, coalesce);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Takes the events out of the mailbox of a page
+	 *
+	 * @param id
+	 *            The ID of the session
+	 * @param pageId
+	 *            The ID of the page
+	 * @return The events in the mailbox, which is empty if the page is not
+	 *         the last page rendered in the session
+	 */
+	List<Mailbox.Mail<L>> takeMail(String id, int pageId) {
+		Entry<S, L> entry = entries.get(id);
+
+		if (entry != null) {
+			PageListeners<L> page = entry.page.get();
+			if (page.pageId == pageId) {
+				return page.mailbox.take();
+			}
+		}
+
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Removes the given session
+	 *
+	 * @param id
+	 *            The ID of the session
+	 */
+	void remove(String id) {
+		entries.remove(id);
+		expunge();
+	}
+
+	/**
+	 * @return The number of registered sessions, including sessions that
+	 *         have been collected but not yet removed
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes the entries of sessions that have been garbage collected
+	 */
+	@SuppressWarnings("unchecked")
+	void expunge() {
+		Reference<? extends S> reference;
+		while ((reference = collected.poll()) != null) {
+			Entry<S, L> entry = (Entry<S, L>) reference;
+			entries.remove(entry.id, entry);
+		}
+	}
+
+	private static final class Entry<S, L> extends WeakReference<S> {
+		private final String id;
+
+		private final AtomicReference<PageListeners<L>> page = new AtomicReference<PageListeners<L>>(
+				new PageListeners<L>(-1));
+
+		Entry(String id, S session, ReferenceQueue<S> queue) {
+			super(session, queue);
+			this.id = id;
+		}
+	}
+
+	private static final class PageListeners<L> {
+		private final int pageId;
+
+		private final ConcurrentMap<Class<?>, ConcurrentMap<Object, L>> listeners = new ConcurrentHashMap<Class<?>, ConcurrentMap<Object, L>>();
+
+		private final Mailbox<L> mailbox = new Mailbox<L>();
+
+		PageListeners(int pageId) {
+			this.pageId = pageId;
+		}
+
+		void add(Class<?> eventClass, Object key, L listener) {
+			ConcurrentMap<Object, L> eventListeners = listeners.get(eventClass);
+
+			if (eventListeners == null) {
+				ConcurrentMap<Object, L> created = new ConcurrentHashMap<Object, L>();
+				eventListeners = listeners.putIfAbsent(eventClass, created);
+				if (eventListeners == null) {
+					eventListeners = created;
+				}
+			}
+
+			eventListeners.put(key, listener);
+		}
+
+		void collect(Iterable<Class<?>> eventClasses,
+				Collection<? super L> result) {
+			if (listeners.isEmpty()) {
+				return;
+			}
+
+			for (Class<?> eventClass : eventClasses) {
+				ConcurrentMap<Object, L> eventListeners = listeners
+						.get(eventClass);
+				if (eventListeners != null) {
+					result.addAll(eventListeners.values());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import java.util.Collection;
+
+/**
+ * Marker for events that only concern the components of specific sessions.
+ * The WicketEventListenerLocator only delegates events implementing this
+ * interface to components on the last page of the given sessions, rather
+ * than to those of every session. To target the current session, pass
+ * {@code Session.get().getId()} when creating the event
+ *
+ * @author Jeroen Steenbeeke
+ */
+public interface SessionTargetedEvent {
+	/**
+	 * @return The IDs of the sessions whose components should receive this
+	 *         event
+	 */
+	Collection<String> getTargetSessionIds();
+}
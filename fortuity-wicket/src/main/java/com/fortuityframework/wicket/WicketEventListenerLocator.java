@@ -16,23 +16,24 @@
 package com.fortuityframework.wicket;
 
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.wicket.Application;
 import org.apache.wicket.Component;
+import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.Page;
 import org.apache.wicket.PageReference;
 import org.apache.wicket.Session;
 import org.apache.wicket.behavior.Behavior;
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.page.IPageManager;
+import org.apache.wicket.session.ISessionStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +42,7 @@ import com.fortuityframework.core.dispatch.EventContext;
 import com.fortuityframework.core.dispatch.EventException;
 import com.fortuityframework.core.dispatch.EventListener;
 import com.fortuityframework.core.dispatch.EventListenerLocator;
+import com.fortuityframework.core.dispatch.IEventBroker;
 import com.fortuityframework.core.dispatch.NullEventListenerLocator;
 import com.fortuityframework.core.event.Event;
 
@@ -61,21 +63,48 @@ import com.fortuityframework.core.event.Event;
  * 			Duration.minutes(15));
  * 	FortuityComponentInstantiationListener listener = new FortuityComponentInstantiationListener(
  * 			locator);
+ * 	getSessionStore().registerUnboundListener(locator);
  * }
  * </pre>
  * 
+ * Registering the locator as unbound listener allows it to forget about
+ * sessions as soon as they expire, rather than when they are garbage
+ * collected.
+ * 
+ * Only components on the last rendered page of each session receive events.
+ * Events are delivered to such components in all sessions, unless the event
+ * implements {@link SessionTargetedEvent}, in which case only the given
+ * sessions are considered.
+ * 
  * 
  * @author Jeroen Steenbeeke
  * 
  */
-public class WicketEventListenerLocator implements EventListenerLocator {
+public class WicketEventListenerLocator implements EventListenerLocator,
+		ISessionStore.UnboundListener {
 	private EventListenerLocator chainedLocator;
 
-	Map<Class<?>, Set<ComponentEventListener>> listeners = new HashMap<Class<?>, Set<ComponentEventListener>>();
+	private final ConcurrentMap<Class<?>, ComponentEventDispatcher> dispatchers = new ConcurrentHashMap<Class<?>, ComponentEventDispatcher>();
+
+	private final ConcurrentMap<Class<?>, ListenerMethod[]> listenerMethods = new ConcurrentHashMap<Class<?>, ListenerMethod[]>();
+
+	private static final ListenerMethod[] NO_METHODS = new ListenerMethod[0];
+
+	private volatile int mailboxCapacity = 0;
+
+	private volatile boolean coalesceMail = false;
 
-	private static Map<String, WeakReference<Session>> sessionReferences = new HashMap<String, WeakReference<Session>>();
+	private volatile boolean batchDelivery = false;
 
-	private static Map<String, Integer> lastPageIdReferences = new HashMap<String, Integer>();
+	private volatile IEventBroker eventBroker;
+
+	private volatile boolean bound = false;
+
+	private final SessionRegistry<Session, ComponentEventListener> sessions = new SessionRegistry<Session, ComponentEventListener>();
+
+	private static final MetaDataKey<WicketEventListenerLocator> LOCATOR_KEY = new MetaDataKey<WicketEventListenerLocator>() {
+		private static final long serialVersionUID = 1L;
+	};
 
 	private static Logger log = LoggerFactory
 			.getLogger(WicketEventListenerLocator.class);
@@ -100,56 +129,223 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 		this.chainedLocator = chainedLocator;
 	}
 
-	static Session getSession(String id) {
-		return sessionReferences.containsKey(id) ? sessionReferences.get(id)
-				.get() : null;
+	Session getSession(String id) {
+		return id != null ? sessions.get(id) : null;
+	}
+
+	void addSession(Session session) {
+		if (session.getId() != null) {
+			sessions.register(session.getId(), session);
+		}
+	}
+
+	/**
+	 * Enables or disables mailboxes. With mailboxes enabled, events for
+	 * components in sessions other than the current one are not delivered
+	 * right away, since that would require loading their page, possibly from
+	 * disk. Instead they are left in a mailbox for the page, and delivered
+	 * when the page is next requested. This requires a
+	 * {@link FortuityRequestCycleListener} to be registered with the
+	 * application, and components that trigger events in response require
+	 * the broker to be set using {@link #setEventBroker(IEventBroker)}.
+	 * Mailboxes are disabled by default
+	 * 
+	 * @param mailboxCapacity
+	 *            The maximum number of events waiting for a single page, or
+	 *            {@code 0} to deliver all events right away. When a mailbox is
+	 *            full, its oldest event is dropped
+	 */
+	public void setMailboxCapacity(int mailboxCapacity) {
+		this.mailboxCapacity = mailboxCapacity;
+	}
+
+	/**
+	 * Sets whether or not events waiting in a mailbox are coalesced. If so, a
+	 * new event replaces any event of the same class still waiting for the
+	 * same component method, so only the latest is delivered. Events are not
+	 * coalesced by default
+	 * 
+	 * @param coalesceMail
+	 *            {@code true} to coalesce events, {@code false} to deliver
+	 *            all of them
+	 */
+	public void setCoalesceMail(boolean coalesceMail) {
+		this.coalesceMail = coalesceMail;
+	}
+
+	/**
+	 * Sets whether or not events raised during a request are delivered in a
+	 * batch. If so, events are not delivered to components when they are
+	 * dispatched, but all at once before the response is rendered.
+	 * Failures are then logged rather than reported to the broker. This
+	 * requires a {@link FortuityRequestCycleListener} to be registered with
+	 * the application; events dispatched outside of a request are always
+	 * delivered right away. Batch delivery is disabled by default
+	 * 
+	 * @param batchDelivery
+	 *            {@code true} to deliver events in a batch, {@code false} to
+	 *            deliver them right away
+	 */
+	public void setBatchDelivery(boolean batchDelivery) {
+		this.batchDelivery = batchDelivery;
+	}
+
+	/**
+	 * Sets the broker that dispatches events to this locator. Events that are
+	 * not delivered right away, such as those left in a mailbox, reach their
+	 * components after the broker has finished dispatching them. Events
+	 * triggered by those components are then dispatched through this broker
+	 * 
+	 * @param eventBroker
+	 *            The broker to dispatch triggered events through
+	 */
+	public void setEventBroker(IEventBroker eventBroker) {
+		this.eventBroker = eventBroker;
+	}
+
+	/**
+	 * Creates the context for an event that is delivered after the broker has
+	 * finished dispatching it
+	 * 
+	 * @param event
+	 *            The event
+	 * @return A context that dispatches triggered events through the broker
+	 */
+	EventContext<?> createDeferredContext(final Event<?> event) {
+		return new EventContext<Event<?>>() {
+			/**
+			 * @see com.fortuityframework.core.dispatch.EventContext#getEvent()
+			 */
+			@Override
+			public Event<?> getEvent() {
+				return event;
+			}
+
+			/**
+			 * @see com.fortuityframework.core.dispatch.EventContext#triggerEvent(com.fortuityframework.core.event.Event)
+			 */
+			@Override
+			public void triggerEvent(Event<?> triggered) {
+				IEventBroker broker = eventBroker;
+				if (broker == null) {
+					throw new EventException(
+							"No event broker set, cannot dispatch triggered event of type "
+									+ triggered.getClass().getName());
+				}
+
+				broker.dispatchEvent(triggered);
+			}
+		};
 	}
 
-	static void addSession(Session session) {
-		if (!sessionReferences.containsKey(session)) {
-			sessionReferences.put(session.getId(), new WeakReference<Session>(
-					session));
+	/**
+	 * Delivers the events waiting in the mailbox of the given page
+	 * 
+	 * @param sessionId
+	 *            The ID of the session containing the page
+	 * @param pageId
+	 *            The ID of the page
+	 */
+	void deliverMail(String sessionId, int pageId) {
+		for (Mailbox.Mail<ComponentEventListener> mail : sessions.takeMail(
+				sessionId, pageId)) {
+			try {
+				mail.listener.dispatchEvent(mail.context);
+			} catch (EventException e) {
+				log.error("Could not deliver event from mailbox", e);
+			}
 		}
 	}
 
+	/**
+	 * @see org.apache.wicket.session.ISessionStore.UnboundListener#sessionUnbound(java.lang.String)
+	 */
+	@Override
+	public void sessionUnbound(String sessionId) {
+		sessions.remove(sessionId);
+	}
+
 	/**
 	 * Called by the FortuityComponentInstantiationListener when a new component
-	 * has been created. Scans the component's class structure and adds handlers
-	 * for any event response method in the component
+	 * has been created. Adds handlers for any event response method in the
+	 * component, which are registered with the component's session and page
+	 * once it is first rendered. The class structure of each component class is only scanned
+	 * once, so for the many components without such methods this amounts to
+	 * a single lookup
 	 * 
 	 * @param component
 	 *            The component that was added
 	 */
-	synchronized void onComponentAdded(Component component) {
-		Class<?> componentClass = component.getClass();
+	void onComponentAdded(Component component) {
+		ListenerMethod[] methods = getListenerMethods(component.getClass());
+
+		if (methods.length > 0 && !bound) {
+			bind(Application.get());
+		}
+
+		for (ListenerMethod method : methods) {
+			// The listener registers itself when the component is rendered
+			new ComponentEventListener(this, component, method);
+		}
+	}
+
+	/**
+	 * Stores this locator with the given application, which allows listeners
+	 * to find it after their page has been deserialized. Done once, as the
+	 * metadata of the application is guarded by a lock
+	 * 
+	 * @param application
+	 *            The application this locator delivers events for
+	 */
+	void bind(Application application) {
+		application.setMetaData(LOCATOR_KEY, this);
+		bound = true;
+	}
+
+	/**
+	 * Gets the event response methods of the given component class, scanning
+	 * the class if it has not been scanned before
+	 * 
+	 * @param componentClass
+	 *            The class of component
+	 * @return The event response methods of the class. Classes without such
+	 *         methods all share the same empty array
+	 */
+	ListenerMethod[] getListenerMethods(Class<?> componentClass) {
+		ListenerMethod[] methods = listenerMethods.get(componentClass);
+
+		if (methods == null) {
+			// Scanning the same class twice is harmless, so no need to lock
+			methods = scan(componentClass);
+			listenerMethods.putIfAbsent(componentClass, methods);
+		}
+
+		return methods;
+	}
+
+	private ListenerMethod[] scan(Class<?> componentClass) {
+		List<ListenerMethod> result = new ArrayList<ListenerMethod>();
 
 		for (Method m : componentClass.getMethods()) {
 			OnFortuityEvent metadata = m.getAnnotation(OnFortuityEvent.class);
 			if (metadata != null) {
 				if (m.getParameterTypes().length == 1
 						&& m.getParameterTypes()[0] == EventContext.class) {
-					Class<? extends Event<?>>[] events = getEvents(metadata);
-					for (Class<? extends Event<?>> event : events) {
-						if (!listeners.containsKey(event)) {
-							listeners.put(event,
-									new HashSet<ComponentEventListener>());
-						}
-
-						listeners.get(event).add(
-								new ComponentEventListener(component, m));
-					}
+					result.add(new ListenerMethod(m, getEvents(metadata)));
 				} else {
 					log.error("Fortuity event listener has incorrect parameter sequence for method "
 							+ m.toGenericString()
-							+ " on component "
-							+ component.getPath()
-							+ " of page "
-							+ component.getPage().toString());
+							+ " on component class "
+							+ componentClass.getName());
 				}
 			}
 		}
+
+		return result.isEmpty() ? NO_METHODS : result
+				.toArray(new ListenerMethod[result.size()]);
 	}
 
+	@SuppressWarnings("unchecked")
 	private Class<? extends Event<?>>[] getEvents(OnFortuityEvent metadata) {
 		Class<? extends Event<?>>[] events = (Class<? extends Event<?>>[]) metadata
 				.value();
@@ -170,39 +366,127 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 		// data integrity
 		result.addAll(chainedLocator.getEventListeners(eventClass));
 
-		Class<?> next = eventClass;
-
-		while (Event.class.isAssignableFrom(next)) {
-			// If we have listeners for this event then dispatch the event
-			if (listeners.containsKey(next)) {
-				// Set for removing inactive listeners. Components expire when
-				// either they have been
-				// garbage collected, or they have expired according to their
-				// duration. However,
-				// we must prevent a ConcurrentModificationException so we
-				// simply put those that should be removed
-				// in a set, and remove it outside the loop
-				Set<ComponentEventListener> removeListeners = new HashSet<ComponentEventListener>();
-
-				for (ComponentEventListener listener : listeners.get(next)) {
-					// Only dispatch to active listeners
-					if (listener.isActive()) {
-						result.add(listener);
+		ComponentEventDispatcher dispatcher = dispatchers.get(eventClass);
+		if (dispatcher == null) {
+			dispatcher = new ComponentEventDispatcher(eventClass);
+			ComponentEventDispatcher existing = dispatchers.putIfAbsent(
+					eventClass, dispatcher);
+			if (existing != null) {
+				dispatcher = existing;
+			}
+		}
+		result.add(dispatcher);
+
+		return result;
+	}
+
+	/**
+	 * An event response method of a component class, along with the events it
+	 * responds to
+	 */
+	static final class ListenerMethod {
+		final Method method;
+
+		final Class<? extends Event<?>>[] events;
+
+		ListenerMethod(Method method, Class<? extends Event<?>>[] events) {
+			this.method = method;
+			this.events = events;
+		}
+	}
+
+	/**
+	 * Event listener that delegates events of a single class to the
+	 * components that respond to them. Which components receive an event is
+	 * only decided when it is dispatched: events implementing
+	 * {@link SessionTargetedEvent} go to the components of the given
+	 * sessions, other events to those of all sessions. Either way only the
+	 * last page of each session is considered, so the work done is
+	 * proportional to the number of recipients
+	 */
+	private class ComponentEventDispatcher implements EventListener {
+		private final List<Class<?>> eventClasses = new ArrayList<Class<?>>();
+
+		ComponentEventDispatcher(Class<?> eventClass) {
+			Class<?> next = eventClass;
+
+			// Include superclasses to ensure polymorphic event handling
+			while (next != null && Event.class.isAssignableFrom(next)) {
+				eventClasses.add(next);
+				next = next.getSuperclass();
+			}
+		}
+
+		/**
+		 * Delegates the event to all recipients. If any of them fails, the
+		 * remaining recipients still receive the event, after which the first
+		 * failure is rethrown
+		 * 
+		 * @see com.fortuityframework.core.dispatch.EventListener#dispatchEvent(com.fortuityframework.core.dispatch.EventContext)
+		 */
+		@Override
+		public void dispatchEvent(EventContext<?> context)
+				throws EventException {
+			List<ComponentEventListener> recipients = new ArrayList<ComponentEventListener>();
+
+			Event<?> event = context.getEvent();
+			if (event instanceof SessionTargetedEvent) {
+				for (String id : ((SessionTargetedEvent) event)
+						.getTargetSessionIds()) {
+					sessions.collectListeners(id, eventClasses, recipients);
+				}
+			} else {
+				sessions.collectListeners(eventClasses, recipients);
+			}
+
+			int capacity = mailboxCapacity;
+			boolean coalesce = coalesceMail;
+			RequestBatch batch = batchDelivery ? RequestBatch.get() : null;
+
+			// The context of the broker cannot be used once it has finished
+			// dispatching the event
+			EventContext<?> deferred = null;
+
+			EventException failure = null;
+			for (ComponentEventListener recipient : recipients) {
+				boolean mail = capacity > 0 && !recipient.isInCurrentSession();
+				if ((mail || batch != null) && deferred == null) {
+					deferred = createDeferredContext(event);
+				}
+
+				if (mail) {
+					recipient.post(deferred, capacity, coalesce);
+					continue;
+				}
+
+				if (batch != null) {
+					batch.add(recipient, deferred);
+					continue;
+				}
+
+				try {
+					recipient.dispatchEvent(context);
+				} catch (EventException e) {
+					if (failure == null) {
+						failure = e;
 					} else {
-						// Remove inactive ones
-						removeListeners.add(listener);
+						log.error(e.getMessage(), e);
 					}
 				}
-
-				// Perform the remove
-				listeners.get(next).removeAll(removeListeners);
 			}
 
-			// Check superclass to ensure polymorphic event handling
-			next = next.getSuperclass();
+			if (failure != null) {
+				throw failure;
+			}
 		}
 
-		return result;
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "wicket:" + eventClasses.get(0).getName();
+		}
 	}
 
 	/**
@@ -222,30 +506,45 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 
 		private String sessionRef;
 
+		private Class<? extends Event<?>>[] events;
+
+		private transient volatile Method method;
+
+		private transient WicketEventListenerLocator locator;
+
+		private transient boolean registered;
+
 		/**
 		 * Create a new event listener for the given method of the given
 		 * component
 		 * 
+		 * @param locator
+		 *            The locator that keeps track of the listener
 		 * @param component
 		 *            The component that contains the method
 		 * @param eventMethod
-		 *            The method to invoke when it's event occurs
+		 *            The method to invoke when it's events occur
 		 */
-		public ComponentEventListener(Component component, Method eventMethod) {
+		public ComponentEventListener(WicketEventListenerLocator locator,
+				Component component, ListenerMethod eventMethod) {
+
+			this.locator = locator;
 
 			this.componentPath = component.getPath();
 
 			this.isPage = component instanceof Page;
 
-			this.methodName = eventMethod.getName();
+			this.methodName = eventMethod.method.getName();
+
+			this.events = eventMethod.events;
 
 			Session session = Session.get();
 
-			addSession(session);
+			locator.addSession(session);
 
 			this.sessionRef = session.getId();
 
-			// Add a callback to report the reference before render, since
+			// Add a callback to register the listener before render, since
 			// we cannot get a reliable PageReference at this stage
 			component.add(new Behavior() {
 
@@ -258,28 +557,35 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 				public void beforeRender(Component component) {
 					super.beforeRender(component);
 
-					if (ComponentEventListener.this.ref == null) {
+					// Copies deserialized along with their page register
+					// again, as their session may have been registered anew
+					if (!ComponentEventListener.this.registered) {
 						Page pg = component.getPage();
 
-						ComponentEventListener.this.ref = pg.getPageReference();
+						if (ComponentEventListener.this.ref == null) {
+							ComponentEventListener.this.ref = pg
+									.getPageReference();
+						}
 
 						Session sess = pg.getSession();
-						if (sess != null) {
-							Integer lastId = lastPageIdReferences.get(sess
-									.getId());
-
-							if (lastId != null) {
-								if (lastId < ComponentEventListener.this.ref
-										.getPageId()) {
-									lastPageIdReferences.put(sess.getId(),
-											ComponentEventListener.this.ref
-													.getPageId());
-								}
-							} else {
-								lastPageIdReferences.put(sess.getId(),
-										ComponentEventListener.this.ref
-												.getPageId());
+						if (sess != null && sess.getId() != null) {
+							// The session may not have been bound when the
+							// component was created
+							getLocator().addSession(sess);
+							ComponentEventListener.this.sessionRef = sess
+									.getId();
+
+							int pageId = ComponentEventListener.this.ref
+									.getPageId();
+							SessionRegistry<Session, ComponentEventListener> registry = getLocator().sessions;
+							registry.pageRendered(sess.getId(), pageId);
+							for (Class<? extends Event<?>> event : events) {
+								registry.addListener(sess.getId(), pageId,
+										event, getKey(),
+										ComponentEventListener.this);
 							}
+
+							ComponentEventListener.this.registered = true;
 						}
 					}
 
@@ -287,12 +593,70 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 			});
 		}
 
+		/**
+		 * @return The key of this listener within its page. A deserialized
+		 *         copy has the same key as the original, so it replaces the
+		 *         original when it registers
+		 */
+		private String getKey() {
+			return componentPath + ":" + methodName;
+		}
+
+		/**
+		 * @return The locator that keeps track of this listener. Copies of
+		 *         the listener deserialized along with their page look it up
+		 *         from the application
+		 */
+		private WicketEventListenerLocator getLocator() {
+			if (locator == null) {
+				locator = Application.get().getMetaData(LOCATOR_KEY);
+			}
+
+			return locator;
+		}
+
+		/**
+		 * @return {@code true} if this listener belongs to the session of
+		 *         the current request, {@code false} otherwise
+		 */
+		boolean isInCurrentSession() {
+			return Session.exists() && sessionRef != null
+					&& sessionRef.equals(Session.get().getId());
+		}
+
+		/**
+		 * Leaves an event in the mailbox of this listener's page
+		 * 
+		 * @param context
+		 *            The context of the event
+		 * @param capacity
+		 *            The maximum number of events in the mailbox
+		 * @param coalesce
+		 *            Whether or not to coalesce events
+		 */
+		void post(EventContext<?> context, int capacity, boolean coalesce) {
+			if (ref == null) {
+				return;
+			}
+
+			Mailbox.Mail<ComponentEventListener> dropped = getLocator().sessions
+					.post(sessionRef, ref.getPageId(), this, context,
+							capacity, coalesce);
+			if (dropped != null) {
+				log.warn("Mailbox of page {} full, dropped event of type {}",
+						ref.getPageId(), dropped.context.getEvent().getClass()
+								.getName());
+			}
+		}
+
 		public boolean isActive() {
-			Session session = getSession(sessionRef);
+			WicketEventListenerLocator current = getLocator();
+			Session session = current.getSession(sessionRef);
 
 			if (session != null && !session.isSessionInvalidated()) {
-				return new Integer(ref.getPageId()).equals(lastPageIdReferences
-						.get(session.getId()));
+				return ref != null
+						&& current.sessions.isLastPage(sessionRef,
+								ref.getPageId());
 			}
 
 			return false;
@@ -305,7 +669,7 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 		public void dispatchEvent(EventContext<?> context)
 				throws EventException {
 			try {
-				Session session = getSession(sessionRef);
+				Session session = getLocator().getSession(sessionRef);
 
 				if (session != null && !session.isSessionInvalidated()) {
 					IPageManager pageManager = session.getPageManager();
@@ -321,16 +685,10 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 							Component component = isPage ? page : page
 									.get(componentPath);
 
-							Method eventMethod = component.getClass()
-									.getMethod(methodName, EventContext.class);
-
 							if (component != null) {
 								// Invoke the event
-								eventMethod.invoke(component, context);
-								// Detach the component
-								if (component.hasBeenRendered()) {
-									component.detach();
-								}
+								getMethod(component).invoke(component, context);
+								detach(component);
 							}
 						}
 					}
@@ -347,5 +705,48 @@ public class WicketEventListenerLocator implements EventListenerLocator {
 				throw new EventException(e.getMessage());
 			}
 		}
+
+		/**
+		 * Gets the event method of the given component. The method is looked
+		 * up once, and again only if the component at this listener's path is
+		 * replaced by one of an unrelated class. Invoking the method still
+		 * calls any override in subclasses
+		 */
+		private Method getMethod(Component component)
+				throws NoSuchMethodException {
+			Method current = method;
+
+			if (current == null
+					|| !current.getDeclaringClass().isInstance(component)) {
+				current = component.getClass().getMethod(methodName,
+						EventContext.class);
+				try {
+					current.setAccessible(true);
+				} catch (SecurityException e) {
+					log.debug("Could not suppress access checks for {}",
+							current);
+				}
+
+				method = current;
+			}
+
+			return current;
+		}
+
+		/**
+		 * Detaches a component after it has received an event. During a
+		 * request with a FortuityRequestCycleListener, this is left until the
+		 * end of the request, so components receiving several events are only
+		 * detached once
+		 */
+		private void detach(Component component) {
+			RequestBatch batch = RequestBatch.get();
+
+			if (batch != null) {
+				batch.touched(component);
+			} else if (component.hasBeenRendered()) {
+				component.detach();
+			}
+		}
 	}
 }
@@ -13,6 +13,8 @@ public class EventReceivingPanel extends Panel {
 
 	private int value;
 
+	private int triggered;
+
 	/**
 	 * Creates a new panel that can receive events
 	 * @param id The id of the panel
@@ -30,6 +32,17 @@ public class EventReceivingPanel extends Panel {
 	@OnFortuityEvent(ExampleEvent.class)
 	public void receiveExample(EventContext<ExampleEvent> context) {
 		this.value++;
+
+		context.triggerEvent(new TriggeredExampleEvent());
+	}
+
+	/**
+	 * Responds to the events triggered by this panel
+	 * @param context The context containing the event
+	 */
+	@OnFortuityEvent(TriggeredExampleEvent.class)
+	public void receiveTriggered(EventContext<TriggeredExampleEvent> context) {
+		this.triggered++;
 	}
 
 	/**
@@ -38,4 +51,11 @@ public class EventReceivingPanel extends Panel {
 	public int getValue() {
 		return value;
 	}
+
+	/**
+	 * @return the number of triggered events received
+	 */
+	public int getTriggered() {
+		return triggered;
+	}
 }
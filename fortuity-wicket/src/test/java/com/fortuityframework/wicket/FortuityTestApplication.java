@@ -28,6 +28,8 @@ import com.fortuityframework.core.dispatch.broker.FIFOQueueEventBroker;
 public class FortuityTestApplication extends WebApplication {
 	private EventBroker broker;
 
+	private WicketEventListenerLocator locator;
+
 	/**
 	 * @see org.apache.wicket.Application#getHomePage()
 	 */
@@ -44,11 +46,17 @@ public class FortuityTestApplication extends WebApplication {
 		super.init();
 
 		broker = new FIFOQueueEventBroker();
-		WicketEventListenerLocator locator = new WicketEventListenerLocator();
+		locator = new WicketEventListenerLocator();
+		locator.setEventBroker(broker);
 		broker.setEventListenerLocator(locator);
 
 		getComponentInstantiationListeners().add(
 				new FortuityComponentInstantiationListener(locator));
+		getSessionStore().registerUnboundListener(locator);
+		FortuityRequestCycleListener requestCycleListener = new FortuityRequestCycleListener(
+				locator);
+		getRequestCycleListeners().add(requestCycleListener);
+		getComponentPreOnBeforeRenderListeners().add(requestCycleListener);
 	}
 
 	/**
@@ -57,4 +65,11 @@ public class FortuityTestApplication extends WebApplication {
 	public EventBroker getEventBroker() {
 		return broker;
 	}
+
+	/**
+	 * @return This application's event listener locator
+	 */
+	public WicketEventListenerLocator getLocator() {
+		return locator;
+	}
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fortuityframework.core.dispatch.EventContext;
+import com.fortuityframework.core.event.Event;
+
+/**
+ * Tests the bounds and coalescing of mailboxes
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class MailboxTest {
+	/**
+	 * Tests that the oldest events are dropped when the mailbox is full
+	 */
+	@Test
+	public void testCapacity() {
+		Mailbox<String> mailbox = new Mailbox<String>();
+
+		EventContext<?> first = createContext(new ExampleEvent());
+		EventContext<?> second = createContext(new ExampleEvent());
+		EventContext<?> third = createContext(new ExampleEvent());
+
+		assertNull(mailbox.post("a", first, 2, false));
+		assertNull(mailbox.post("a", second, 2, false));
+		assertSame(first, mailbox.post("a", third, 2, false).context);
+
+		List<Mailbox.Mail<String>> mail = mailbox.take();
+		assertEquals(2, mail.size());
+		assertSame(second, mail.get(0).context);
+		assertSame(third, mail.get(1).context);
+		assertTrue(mailbox.take().isEmpty());
+	}
+
+	/**
+	 * Tests that coalescing keeps only the latest event of each class for
+	 * each listener
+	 */
+	@Test
+	public void testCoalesce() {
+		Mailbox<String> mailbox = new Mailbox<String>();
+
+		EventContext<?> first = createContext(new ExampleEvent());
+		EventContext<?> other = createContext(new TargetedExampleEvent());
+		EventContext<?> second = createContext(new ExampleEvent());
+		EventContext<?> forB = createContext(new ExampleEvent());
+
+		mailbox.post("a", first, 10, true);
+		mailbox.post("a", other, 10, true);
+		mailbox.post("a", second, 10, true);
+		mailbox.post("b", forB, 10, true);
+
+		List<Mailbox.Mail<String>> mail = mailbox.take();
+		assertEquals(3, mail.size());
+		assertSame(other, mail.get(0).context);
+		assertSame(second, mail.get(1).context);
+		assertSame(forB, mail.get(2).context);
+		assertEquals("b", mail.get(2).listener);
+	}
+
+	private static <T extends Event<?>> EventContext<T> createContext(
+			final T event) {
+		return new EventContext<T>() {
+			@Override
+			public T getEvent() {
+				return event;
+			}
+
+			@Override
+			public void triggerEvent(Event<?> triggered) {
+				// Not used
+			}
+		};
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the registry of sessions used by the WicketEventListenerLocator
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class SessionRegistryTest {
+	private static final int SESSIONS = 1000000;
+
+	private static final int COLLECTED_SESSIONS = 10000;
+
+	private static final long COLLECT_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * Tests registration, page tracking and removal of sessions
+	 */
+	@Test
+	public void testRegistration() {
+		SessionRegistry<Object, Object> registry = new SessionRegistry<Object, Object>();
+		Object session = new Object();
+
+		registry.register("a", session);
+		registry.register("a", session);
+		assertSame(session, registry.get("a"));
+		assertEquals(1, registry.size());
+		assertNull(registry.get("b"));
+
+		assertFalse(registry.isLastPage("a", 0));
+		registry.pageRendered("a", 3);
+		registry.pageRendered("a", 2);
+		assertTrue(registry.isLastPage("a", 3));
+		assertFalse(registry.isLastPage("a", 2));
+
+		Object replacement = new Object();
+		registry.register("a", replacement);
+		assertSame(replacement, registry.get("a"));
+		assertFalse(registry.isLastPage("a", 3));
+
+		registry.remove("a");
+		assertNull(registry.get("a"));
+		assertEquals(0, registry.size());
+
+		registry.pageRendered("a", 4);
+		assertFalse(registry.isLastPage("a", 4));
+	}
+
+	/**
+	 * Tests that listeners are kept for the last page only, and can be
+	 * collected for a single session or for all of them
+	 */
+	@Test
+	public void testListeners() {
+		SessionRegistry<Object, Object> registry = new SessionRegistry<Object, Object>();
+		Object session = new Object();
+		Object other = new Object();
+		List<Class<?>> eventClasses = Collections
+				.<Class<?>> singletonList(ExampleEvent.class);
+
+		registry.register("a", session);
+		registry.register("b", other);
+		registry.pageRendered("a", 1);
+		registry.pageRendered("b", 1);
+		registry.addListener("a", 1, ExampleEvent.class, "a1", "a1");
+		registry.addListener("b", 1, ExampleEvent.class, "b1", "b1");
+		registry.addListener("b", 1, TargetedExampleEvent.class, "b1", "b1");
+
+		assertEquals(Arrays.asList("a1"), collect(registry, "a", eventClasses));
+		assertEquals(new HashSet<Object>(Arrays.asList("a1", "b1")),
+				new HashSet<Object>(collect(registry, null, eventClasses)));
+
+		registry.pageRendered("a", 2);
+		assertTrue(collect(registry, "a", eventClasses).isEmpty());
+
+		registry.addListener("a", 1, ExampleEvent.class, "a1", "a1");
+		registry.addListener("a", 2, ExampleEvent.class, "a2", "a2");
+		assertEquals(Arrays.asList("a2"), collect(registry, "a", eventClasses));
+
+		registry.addListener("a", 2, ExampleEvent.class, "a2", "a2 copy");
+		assertEquals(Arrays.asList("a2 copy"),
+				collect(registry, "a", eventClasses));
+
+		registry.remove("b");
+		assertEquals(Arrays.asList("a2 copy"),
+				collect(registry, null, eventClasses));
+	}
+
+	/**
+	 * Tests that unbound sessions are forgotten immediately
+	 */
+	@Test
+	public void testUnbound() {
+		SessionRegistry<Object, Object> registry = new SessionRegistry<Object, Object>();
+
+		for (int i = 0; i < SESSIONS; i++) {
+			String id = Integer.toString(i);
+			registry.register(id, new Object());
+			registry.pageRendered(id, 0);
+			registry.remove(id);
+		}
+
+		assertEquals(0, registry.size());
+	}
+
+	/**
+	 * Tests that sessions that are garbage collected without being unbound
+	 * are removed from the registry
+	 *
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for garbage collection
+	 */
+	@Test
+	public void testCollectedSessions() throws InterruptedException {
+		SessionRegistry<Object, Object> registry = new SessionRegistry<Object, Object>();
+
+		for (int i = 0; i < COLLECTED_SESSIONS; i++) {
+			String id = Integer.toString(i);
+			registry.register(id, new Object());
+			registry.pageRendered(id, 0);
+		}
+		assertEquals(COLLECTED_SESSIONS, registry.size());
+
+		long deadline = System.currentTimeMillis() + COLLECT_TIMEOUT_MILLIS;
+		while (registry.size() > 0 && System.currentTimeMillis() < deadline) {
+			awaitCollection(deadline);
+			registry.expunge();
+		}
+
+		assertEquals(0, registry.size());
+	}
+
+	private static List<Object> collect(
+			SessionRegistry<Object, Object> registry, String id,
+			List<Class<?>> eventClasses) {
+		List<Object> result = new ArrayList<Object>();
+
+		if (id != null) {
+			registry.collectListeners(id, eventClasses, result);
+		} else {
+			registry.collectListeners(eventClasses, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Waits until a garbage collection has cleared a weakly referenced
+	 * sentinel. Allocates while waiting, so a collection happens even if
+	 * explicit garbage collection is disabled
+	 */
+	private static void awaitCollection(long deadline)
+			throws InterruptedException {
+		ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+		WeakReference<Object> sentinel = new WeakReference<Object>(
+				new Object(), queue);
+
+		List<byte[]> garbage = new ArrayList<byte[]>();
+		while (System.currentTimeMillis() < deadline) {
+			System.gc();
+			garbage.add(new byte[1024 * 1024]);
+			if (garbage.size() > 16) {
+				garbage.clear();
+			}
+			if (queue.remove(10) != null) {
+				break;
+			}
+		}
+
+		// Keeps the reference itself reachable until here
+		sentinel.clear();
+	}
+}
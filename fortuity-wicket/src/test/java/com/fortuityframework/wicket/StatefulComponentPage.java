@@ -61,6 +61,17 @@ public class StatefulComponentPage extends WebPage {
 
 		});
 
+		add(new AjaxLink<Void>("refresh") {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void onClick(AjaxRequestTarget target) {
+				if (target != null) {
+					target.add(getPage().get("counter"));
+				}
+			}
+		});
+
 		add(new EventReceivingPanel("receiver"));
 	}
 
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Example event that only concerns the given sessions
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class TargetedExampleEvent extends ExampleEvent implements
+		SessionTargetedEvent {
+	private final Collection<String> sessionIds;
+
+	/**
+	 * Creates a new event for the given sessions
+	 *
+	 * @param sessionIds
+	 *            The IDs of the sessions that should receive the event
+	 */
+	public TargetedExampleEvent(String... sessionIds) {
+		this.sessionIds = Arrays.asList(sessionIds);
+	}
+
+	/**
+	 * @see com.fortuityframework.wicket.SessionTargetedEvent#getTargetSessionIds()
+	 */
+	@Override
+	public Collection<String> getTargetSessionIds() {
+		return sessionIds;
+	}
+}
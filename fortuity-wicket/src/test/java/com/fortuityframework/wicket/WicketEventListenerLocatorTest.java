@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 Jeroen Steenbeeke
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortuityframework.wicket;
+
+import static org.junit.Assert.*;
+
+import org.apache.wicket.markup.html.basic.Label;
+import org.junit.Test;
+
+import com.fortuityframework.wicket.WicketEventListenerLocator.ListenerMethod;
+
+/**
+ * Tests the scanning of component classes by the WicketEventListenerLocator
+ *
+ * @author Jeroen Steenbeeke
+ */
+public class WicketEventListenerLocatorTest {
+	/**
+	 * Tests that event response methods are found, and that each class is
+	 * scanned only once
+	 */
+	@Test
+	public void testAnnotatedClass() {
+		WicketEventListenerLocator locator = new WicketEventListenerLocator();
+
+		ListenerMethod[] methods = locator
+				.getListenerMethods(StatefulComponentPage.class);
+
+		assertEquals(1, methods.length);
+		assertEquals("onTestEvent", methods[0].method.getName());
+		assertArrayEquals(new Class<?>[] { ExampleEvent.class },
+				methods[0].events);
+		assertSame(methods,
+				locator.getListenerMethods(StatefulComponentPage.class));
+	}
+
+	/**
+	 * Tests that classes without event response methods share the same empty
+	 * result
+	 */
+	@Test
+	public void testUnannotatedClass() {
+		WicketEventListenerLocator locator = new WicketEventListenerLocator();
+
+		ListenerMethod[] methods = locator.getListenerMethods(Label.class);
+
+		assertEquals(0, methods.length);
+		assertSame(methods,
+				locator.getListenerMethods(FortuityTestIndexPage.class));
+	}
+}
@@ -18,7 +18,11 @@ package com.fortuityframework.wicket;
 import static org.junit.Assert.*;
 
 import org.apache.wicket.Component;
+import org.apache.wicket.Page;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.lang.WicketObjects;
 import org.apache.wicket.util.tester.WicketTester;
 import org.junit.After;
 import org.junit.Before;
@@ -64,6 +68,184 @@ public class WicketFortuityTest {
 				.getComponentFromLastRenderedPage("receiver");
 
 		assertEquals(2, receiver.getValue());
+		assertEquals(1, receiver.getTriggered());
+	}
+
+	/**
+	 * Test that targeted events only reach components of the given sessions
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testTargetedEvents() {
+		tester.startPage(FortuityTestIndexPage.class);
+		tester.clickLink("next");
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		FortuityTestApplication app = (FortuityTestApplication) tester
+				.getApplication();
+		IModel<Integer> cModel = (IModel<Integer>) tester
+				.getComponentFromLastRenderedPage("counter").getDefaultModel();
+
+		app.getEventBroker().dispatchEvent(new TargetedExampleEvent("other"));
+		assertEquals(1, cModel.getObject().intValue());
+
+		app.getEventBroker().dispatchEvent(
+				new TargetedExampleEvent(tester.getSession().getId()));
+		assertEquals(2, cModel.getObject().intValue());
+	}
+
+	/**
+	 * Test that events for other sessions wait in a mailbox until their page
+	 * is requested
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testMailbox() {
+		tester.startPage(FortuityTestIndexPage.class);
+		tester.clickLink("next");
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		FortuityTestApplication app = (FortuityTestApplication) tester
+				.getApplication();
+		app.getLocator().setMailboxCapacity(10);
+		IModel<Integer> cModel = (IModel<Integer>) tester
+				.getComponentFromLastRenderedPage("counter").getDefaultModel();
+
+		// Dispatch as if from a request in another session
+		Session session = tester.getSession();
+		ThreadContext.setSession(null);
+		try {
+			app.getEventBroker().dispatchEvent(new ExampleEvent());
+			app.getEventBroker().dispatchEvent(new ExampleEvent());
+		} finally {
+			ThreadContext.setSession(session);
+		}
+		assertEquals(1, cModel.getObject().intValue());
+
+		tester.clickLink("up", true);
+		cModel = (IModel<Integer>) tester.getComponentFromLastRenderedPage(
+				"counter").getDefaultModel();
+		assertEquals(4, cModel.getObject().intValue());
+	}
+
+	/**
+	 * Test that listeners deserialized along with their page register again
+	 * once their session has been registered anew
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testDeserializedListeners() {
+		tester.startPage(FortuityTestIndexPage.class);
+		tester.clickLink("next");
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		FortuityTestApplication app = (FortuityTestApplication) tester
+				.getApplication();
+		Page copy = (Page) WicketObjects.cloneObject(tester
+				.getLastRenderedPage());
+
+		// As if the session was deserialized as well
+		app.getLocator().sessionUnbound(tester.getSession().getId());
+
+		tester.startPage(copy);
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		IModel<Integer> cModel = (IModel<Integer>) tester
+				.getComponentFromLastRenderedPage("counter").getDefaultModel();
+		assertEquals(1, cModel.getObject().intValue());
+
+		app.getEventBroker().dispatchEvent(new ExampleEvent());
+		assertEquals(2, cModel.getObject().intValue());
+	}
+
+	/**
+	 * Test that listeners deserialized along with their page in a session
+	 * that is still registered replace the listeners of the original page,
+	 * rather than receiving events alongside them
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testDeserializedListenersReplaceOriginals() {
+		tester.startPage(FortuityTestIndexPage.class);
+		tester.clickLink("next");
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		FortuityTestApplication app = (FortuityTestApplication) tester
+				.getApplication();
+		Page copy = (Page) WicketObjects.cloneObject(tester
+				.getLastRenderedPage());
+
+		tester.startPage(copy);
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		IModel<Integer> cModel = (IModel<Integer>) tester
+				.getComponentFromLastRenderedPage("counter").getDefaultModel();
+		assertEquals(1, cModel.getObject().intValue());
+
+		app.getEventBroker().dispatchEvent(new ExampleEvent());
+		assertEquals(2, cModel.getObject().intValue());
+	}
+
+	/**
+	 * Test that events triggered by components receiving their events from a
+	 * mailbox are dispatched right away, rather than left for the next
+	 * dispatch
+	 */
+	@Test
+	public void testMailTriggersEvents() {
+		tester.startPage(FortuityTestIndexPage.class);
+		tester.clickLink("next");
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		FortuityTestApplication app = (FortuityTestApplication) tester
+				.getApplication();
+		app.getLocator().setMailboxCapacity(10);
+
+		// Dispatch as if from a request in another session
+		Session session = tester.getSession();
+		ThreadContext.setSession(null);
+		try {
+			app.getEventBroker().dispatchEvent(new ExampleEvent());
+			app.getEventBroker().dispatchEvent(new ExampleEvent());
+		} finally {
+			ThreadContext.setSession(session);
+		}
+
+		// Does not dispatch any events itself
+		tester.clickLink("refresh", true);
+
+		EventReceivingPanel receiver = (EventReceivingPanel) tester
+				.getComponentFromLastRenderedPage("receiver");
+		assertEquals(3, receiver.getValue());
+		assertEquals(2, receiver.getTriggered());
+	}
+
+	/**
+	 * Test that events raised during a request can be delivered in a batch,
+	 * before the Ajax response is rendered
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testBatchDelivery() {
+		tester.startPage(FortuityTestIndexPage.class);
+		tester.clickLink("next");
+		tester.assertRenderedPage(StatefulComponentPage.class);
+
+		FortuityTestApplication app = (FortuityTestApplication) tester
+				.getApplication();
+		app.getLocator().setBatchDelivery(true);
+
+		tester.clickLink("up", true);
+
+		IModel<Integer> cModel = (IModel<Integer>) tester
+				.getComponentFromLastRenderedPage("counter").getDefaultModel();
+		assertEquals(2, cModel.getObject().intValue());
+		tester.assertContains(">2</h1>");
+
+		EventReceivingPanel receiver = (EventReceivingPanel) tester
+				.getComponentFromLastRenderedPage("receiver");
+		assertEquals(2, receiver.getValue());
+		assertEquals(1, receiver.getTriggered());
 	}
 
 	/**